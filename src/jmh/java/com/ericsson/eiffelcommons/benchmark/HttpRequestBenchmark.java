@@ -0,0 +1,139 @@
+/*
+   Copyright 2019 Ericsson AB.
+   For a full list of individual contributors, please see the commit history.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.ericsson.eiffelcommons.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ericsson.eiffelcommons.http.HttpExecutor;
+import com.ericsson.eiffelcommons.http.HttpExecutorConfig;
+import com.ericsson.eiffelcommons.http.HttpRequest;
+import com.ericsson.eiffelcommons.http.HttpRequest.HttpMethod;
+import com.ericsson.eiffelcommons.http.HttpRequestTemplate;
+import com.ericsson.eiffelcommons.http.ResponseEntity;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Throughput of HttpRequest.performRequest against an in-process HTTP stub, with a new
+ * HttpExecutor per request compared to a single shared, pooled HttpExecutor, and with the
+ * Authorization header encoded per request compared to a shared HttpRequestTemplate.
+ *
+ * @author Ericsson 2019
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class HttpRequestBenchmark {
+
+    private static final byte[] RESPONSE_BODY = "{\"status\":\"ok\"}".getBytes(StandardCharsets.UTF_8);
+
+    private HttpServer server;
+    private String baseUrl;
+    private HttpExecutor sharedExecutor;
+    private HttpRequestTemplate sharedTemplate;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        // Without TCP_NODELAY the stub stalls on delayed ACKs over kept-alive connections
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.sendResponseHeaders(200, RESPONSE_BODY.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(RESPONSE_BODY);
+            }
+        });
+        server.setExecutor(Executors.newFixedThreadPool(8));
+        server.start();
+
+        baseUrl = "http://localhost:" + server.getAddress()
+                                              .getPort();
+        sharedExecutor = new HttpExecutor(new HttpExecutorConfig());
+        sharedTemplate = HttpRequestTemplate.builder()
+                                            .setBaseUrl(baseUrl)
+                                            .setBasicAuth("user", "token")
+                                            .setExecutor(sharedExecutor)
+                                            .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        sharedExecutor.close();
+        server.stop(0);
+    }
+
+    @Benchmark
+    public ResponseEntity freshExecutor() throws Exception {
+        try (HttpExecutor executor = new HttpExecutor()) {
+            return performRequest(executor);
+        }
+    }
+
+    @Benchmark
+    public ResponseEntity sharedExecutor() throws Exception {
+        return performRequest(sharedExecutor);
+    }
+
+    @Benchmark
+    public ResponseEntity sharedExecutorWithAuth() throws Exception {
+        HttpRequest request = new HttpRequest(HttpMethod.GET, sharedExecutor);
+        request.setBaseUrl(baseUrl)
+               .setBasicAuth("user", "token")
+               .setEndpoint("/api/json")
+               .addParameter("tree", "result,building");
+        return request.performRequest();
+    }
+
+    @Benchmark
+    public ResponseEntity sharedTemplate() throws Exception {
+        return sharedTemplate.newRequest(HttpMethod.GET)
+                             .setEndpoint("/api/json")
+                             .addParameter("tree", "result,building")
+                             .performRequest();
+    }
+
+    private ResponseEntity performRequest(HttpExecutor executor) throws Exception {
+        HttpRequest request = new HttpRequest(HttpMethod.GET, executor);
+        request.setBaseUrl(baseUrl)
+               .setEndpoint("/api/json")
+               .addParameter("tree", "result,building");
+        return request.performRequest();
+    }
+}
@@ -0,0 +1,73 @@
+/*
+   Copyright 2019 Ericsson AB.
+   For a full list of individual contributors, please see the commit history.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.ericsson.eiffelcommons.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ericsson.eiffelcommons.jenkins.JenkinsXmlData;
+
+/**
+ * Cost of building a jenkins job configuration and rendering it with getXmlAsString.
+ *
+ * @author Ericsson 2019
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JenkinsXmlDataBenchmark {
+
+    private JenkinsXmlData xmlData;
+
+    @Setup
+    public void setUp() throws Exception {
+        xmlData = createXmlData();
+    }
+
+    @Benchmark
+    public String getXmlAsString() {
+        return xmlData.getXmlAsString();
+    }
+
+    @Benchmark
+    public String buildAndGetXmlAsString() throws Exception {
+        return createXmlData().getXmlAsString();
+    }
+
+    private JenkinsXmlData createXmlData() throws Exception {
+        return new JenkinsXmlData().addJobToken("token")
+                                   .addBuildParameter("param1")
+                                   .addBuildParameter("param2", "default", "A parameter", true)
+                                   .addBashScript("echo 'Hello World' && exit 0")
+                                   .addGrovyScript("println 'Hello World'")
+                                   .addSystemGrovyScript("println 'Hello System'", true);
+    }
+}
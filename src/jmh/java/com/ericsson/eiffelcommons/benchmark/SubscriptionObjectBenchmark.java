@@ -0,0 +1,93 @@
+/*
+   Copyright 2019 Ericsson AB.
+   For a full list of individual contributors, please see the commit history.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.ericsson.eiffelcommons.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ericsson.eiffelcommons.subscriptionobject.RestPostSubscriptionObject;
+
+/**
+ * Cost of constructing subscriptions and serializing them to the JSON sent to Eiffel Intelligence.
+ *
+ * @author Ericsson 2019
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SubscriptionObjectBenchmark {
+
+    private RestPostSubscriptionObject subscription;
+    private int subscriptionCounter = 0;
+
+    @Setup
+    public void setUp() throws IOException {
+        subscription = createSubscription("Subscription");
+    }
+
+    @Benchmark
+    public RestPostSubscriptionObject construct() throws IOException {
+        return createSubscription("Subscription" + subscriptionCounter++);
+    }
+
+    @Benchmark
+    public RestPostSubscriptionObject copyPrototype() {
+        return subscription.copy("Subscription" + subscriptionCounter++)
+                           .addNotificationMessageKeyValue("json", "{}");
+    }
+
+    @Benchmark
+    public String serialize() {
+        return subscription.toString();
+    }
+
+    @Benchmark
+    public String constructAndSerialize() throws IOException {
+        return createSubscription("Subscription" + subscriptionCounter++).getAsSubscriptions()
+                                                                          .toString();
+    }
+
+    private RestPostSubscriptionObject createSubscription(String subscriptionName)
+            throws IOException {
+        JSONObject condition = new JSONObject().put("jmespath",
+                "meta.type=='EiffelActivityFinishedEvent'");
+        return new RestPostSubscriptionObject(subscriptionName).setNotificationMeta(
+                "http://localhost:8080/job/JenkinsJob/build")
+                                                               .setRestPostBodyMediaType(
+                                                                       "application/x-www-form-urlencoded")
+                                                               .addNotificationMessageKeyValue(
+                                                                       "json", "{}")
+                                                               .addConditionToRequirement(0,
+                                                                       condition);
+    }
+}
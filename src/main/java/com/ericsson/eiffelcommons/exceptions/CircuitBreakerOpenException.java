@@ -0,0 +1,32 @@
+/*
+   Copyright 2020 Ericsson AB.
+   For a full list of individual contributors, please see the commit history.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.ericsson.eiffelcommons.exceptions;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of sending a request when the circuit breaker of the target host is open.
+ */
+public class CircuitBreakerOpenException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public CircuitBreakerOpenException(String message) {
+        super(message);
+    }
+
+}
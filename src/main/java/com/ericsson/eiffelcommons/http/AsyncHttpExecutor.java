@@ -0,0 +1,513 @@
+/*
+   Copyright 2019 Ericsson AB.
+   For a full list of individual contributors, please see the commit history.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.ericsson.eiffelcommons.http;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+
+/**
+ * Non-blocking counterpart of HttpExecutor. Requests are executed on a small number of I/O reactor
+ * threads, so a large number of requests can be in flight without holding a thread per request.
+ *
+ * Callbacks attached to the returned futures without an executor run on an I/O reactor thread and
+ * should therefore not block.
+ *
+ * The I/O reactor threads of an executor created with a constructor are not daemon threads, so
+ * such an executor must be closed or it keeps the JVM from exiting. The shared executor returned
+ * by getInstance() runs on daemon threads and is never closed.
+ *
+ * @author Ericsson 2019
+ *
+ */
+public class AsyncHttpExecutor implements Closeable {
+
+    private final CloseableHttpAsyncClient client;
+    private final RequestConfig defaultRequestConfig;
+    private final Semaphore inFlightPermits;
+    private final int maxConnectionsPerRoute;
+    private final Queue<Runnable> pendingRequests = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private volatile RetryPolicy retryPolicy = RetryPolicy.noRetry();
+    private final HostGuards hostGuards = new HostGuards();
+    private volatile MetricsRecorder metricsRecorder = MetricsRecorder.NO_OP;
+    private volatile RequestTracer requestTracer = RequestTracer.NO_OP;
+
+    /**
+     * Creates an asynchronous executor with the default configuration.
+     */
+    public AsyncHttpExecutor() {
+        this(new HttpExecutorConfig());
+    }
+
+    /**
+     * Creates an asynchronous executor, the I/O thread count, connection pool and in-flight limit
+     * are taken from the given configuration.
+     *
+     * @param config
+     */
+    public AsyncHttpExecutor(HttpExecutorConfig config) {
+        this(config, null);
+    }
+
+    /**
+     * Creates an asynchronous executor whose I/O reactor threads are created by the given factory.
+     *
+     * @param config
+     * @param threadFactory :: Factory of the I/O reactor threads, or null for the default
+     */
+    private AsyncHttpExecutor(HttpExecutorConfig config, ThreadFactory threadFactory) {
+        IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
+                                                         .setIoThreadCount(config.getIoThreadCount())
+                                                         .build();
+        this.defaultRequestConfig = config.createRequestConfig();
+        HttpAsyncClientBuilder builder = HttpAsyncClientBuilder.create()
+                                                               .setDefaultIOReactorConfig(ioReactorConfig)
+                                                               .setMaxConnTotal(config.getMaxTotalConnections())
+                                                               .setMaxConnPerRoute(config.getMaxConnectionsPerRoute())
+                                                               .setDefaultRequestConfig(defaultRequestConfig)
+                                                               .setKeepAliveStrategy(config.createKeepAliveStrategy());
+        if (config.getSslContext() != null) {
+            builder.setSSLContext(config.getSslContext());
+        }
+        if (config.getHostnameVerifier() != null) {
+            builder.setSSLHostnameVerifier(config.getHostnameVerifier());
+        }
+        if (threadFactory != null) {
+            builder.setThreadFactory(threadFactory);
+        }
+
+        this.client = builder.build();
+        this.maxConnectionsPerRoute = config.getMaxConnectionsPerRoute();
+        this.inFlightPermits = config.getMaxInFlightRequests() > 0
+                ? new Semaphore(config.getMaxInFlightRequests())
+                : null;
+        this.client.start();
+    }
+
+    /**
+     * Returns a shared executor with the default configuration. Its I/O reactor threads are daemon
+     * threads, so it does not need to be closed.
+     *
+     * @return AsyncHttpExecutor
+     */
+    public static AsyncHttpExecutor getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Sets the retry policy used for requests that do not have a policy of their own. By default
+     * requests are not retried.
+     *
+     * @param retryPolicy
+     * @return AsyncHttpExecutor
+     */
+    public AsyncHttpExecutor setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy != null ? retryPolicy : RetryPolicy.noRetry();
+        return this;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Sets the policy of the circuit breakers kept per target host, resetting their state. By
+     * default there are no circuit breakers.
+     *
+     * @param circuitBreakerPolicy :: Policy, or null to disable the circuit breakers
+     * @return AsyncHttpExecutor
+     */
+    public AsyncHttpExecutor setCircuitBreakerPolicy(CircuitBreakerPolicy circuitBreakerPolicy) {
+        hostGuards.setCircuitBreakerPolicy(circuitBreakerPolicy);
+        return this;
+    }
+
+    public CircuitBreakerPolicy getCircuitBreakerPolicy() {
+        return hostGuards.getCircuitBreakerPolicy();
+    }
+
+    /**
+     * Sets the policy of the bulkheads limiting the concurrent requests per target host, a request
+     * exceeding the limit fails at once without waiting. By
+     * default the number of concurrent requests is only limited by the connection pool.
+     *
+     * @param bulkheadPolicy :: Policy, or null to disable the bulkheads
+     * @return AsyncHttpExecutor
+     */
+    public AsyncHttpExecutor setBulkheadPolicy(BulkheadPolicy bulkheadPolicy) {
+        hostGuards.setBulkheadPolicy(bulkheadPolicy);
+        return this;
+    }
+
+    public BulkheadPolicy getBulkheadPolicy() {
+        return hostGuards.getBulkheadPolicy();
+    }
+
+    /**
+     * Returns the circuit breaker towards a host, or null if no request has been sent to the host
+     * since the circuit breaker policy was set.
+     *
+     * @param host :: Target host including port, e.g. new HttpHost("localhost", 8080, "http")
+     * @return CircuitBreaker
+     */
+    public CircuitBreaker getCircuitBreaker(HttpHost host) {
+        return hostGuards.getCircuitBreaker(host);
+    }
+
+    /**
+     * Sets the recorder of request metrics. Connection lease times are not recorded by an
+     * asynchronous executor.
+     *
+     * @param metricsRecorder :: Recorder, or null to record nothing
+     * @return AsyncHttpExecutor
+     */
+    public AsyncHttpExecutor setMetricsRecorder(MetricsRecorder metricsRecorder) {
+        this.metricsRecorder = metricsRecorder != null ? metricsRecorder : MetricsRecorder.NO_OP;
+        return this;
+    }
+
+    public MetricsRecorder getMetricsRecorder() {
+        return metricsRecorder;
+    }
+
+    /**
+     * Sets the tracer called around every attempt of a request. An asynchronous executor only
+     * measures the total time of an attempt, the other phases of its RequestTiming are -1.
+     *
+     * @param requestTracer :: Tracer, or null to trace nothing
+     * @return AsyncHttpExecutor
+     */
+    public AsyncHttpExecutor setRequestTracer(RequestTracer requestTracer) {
+        this.requestTracer = requestTracer != null ? requestTracer : RequestTracer.NO_OP;
+        return this;
+    }
+
+    public RequestTracer getRequestTracer() {
+        return requestTracer;
+    }
+
+    /**
+     * Returns the request configuration the client of this executor was built with. Used
+     * as the base when a single request overrides some of its settings.
+     *
+     * @return RequestConfig
+     */
+    RequestConfig getDefaultRequestConfig() {
+        return defaultRequestConfig;
+    }
+
+    /**
+     * Executes a HTTP request without blocking the calling thread. When the in-flight limit is
+     * reached the request is queued and dispatched as soon as an earlier request completes, on a
+     * shared dispatcher thread rather than on the I/O reactor thread that completed it.
+     *
+     * @param request
+     *            :: A HTTP request method, e.g. httpGet, httpPost
+     * @return CompletableFuture that completes with the ResponseEntity of the request
+     */
+    public CompletableFuture<ResponseEntity> executeRequestAsync(HttpRequestBase request) {
+        return executeRequestAsync(request, null);
+    }
+
+    /**
+     * Executes a HTTP request without blocking the calling thread, retrying it according to the
+     * given policy. Retries are scheduled on a shared scheduler and queued like any other request
+     * when the in-flight limit is reached.
+     *
+     * @param request
+     *            :: A HTTP request method, e.g. httpGet, httpPost
+     * @param retryPolicy
+     *            :: Retry policy of the request, or null to use the policy of this executor
+     * @return CompletableFuture that completes with the ResponseEntity of the last attempt
+     */
+    public CompletableFuture<ResponseEntity> executeRequestAsync(HttpRequestBase request,
+            RetryPolicy retryPolicy) {
+        return executeRequestAsync(request, retryPolicy, null);
+    }
+
+    /**
+     * Executes a HTTP request without blocking the calling thread, the endpoint template is used
+     * as endpoint in the recorded metrics.
+     *
+     * @param request
+     * @param retryPolicy      :: Retry policy of the request, or null to use the policy of this
+     *                         executor
+     * @param endpointTemplate :: Endpoint template, or null to use the path of the request
+     * @return CompletableFuture that completes with the ResponseEntity of the last attempt
+     */
+    CompletableFuture<ResponseEntity> executeRequestAsync(HttpRequestBase request,
+            RetryPolicy retryPolicy, String endpointTemplate) {
+        RetryPolicy policy = retryPolicy != null ? retryPolicy : this.retryPolicy;
+        if (policy.getMaxAttempts() <= 1) {
+            return executeOnceAsync(request, endpointTemplate);
+        }
+
+        return RetryExecution.executeAsync(request, policy,
+                () -> executeOnceAsync(request, endpointTemplate));
+    }
+
+    /**
+     * Returns the maximum number of connections this executor opens towards a single host.
+     *
+     * @return int
+     */
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    /**
+     * Returns the number of requests waiting for an in-flight permit.
+     *
+     * @return int
+     */
+    public int getPendingRequestCount() {
+        return pendingRequests.size();
+    }
+
+    /**
+     * Closes the underlying client, its I/O reactor and all pooled connections.
+     */
+    @Override
+    public void close() throws IOException {
+        client.close();
+    }
+
+    private CompletableFuture<ResponseEntity> executeOnceAsync(HttpRequestBase request,
+            String endpointTemplate) {
+        CompletableFuture<ResponseEntity> responseFuture = new CompletableFuture<>();
+        if (inFlightPermits == null) {
+            dispatch(request, endpointTemplate, responseFuture);
+        } else {
+            pendingRequests.add(() -> dispatch(request, endpointTemplate, responseFuture));
+            dispatchPendingRequests();
+        }
+
+        return responseFuture;
+    }
+
+    /**
+     * Dispatches queued requests for as long as there are free in-flight permits. Only one thread
+     * drains the queue at a time, a call made while another thread is draining returns at once
+     * and the draining thread picks up the requests and permits added in the meantime.
+     */
+    private void dispatchPendingRequests() {
+        do {
+            if (!draining.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                while (!pendingRequests.isEmpty() && inFlightPermits.tryAcquire()) {
+                    Runnable pendingRequest = pendingRequests.poll();
+                    if (pendingRequest == null) {
+                        inFlightPermits.release();
+                    } else {
+                        pendingRequest.run();
+                    }
+                }
+            } finally {
+                draining.set(false);
+            }
+        } while (!pendingRequests.isEmpty() && inFlightPermits.availablePermits() > 0);
+    }
+
+    private void dispatch(HttpRequestBase request, String endpointTemplate,
+            CompletableFuture<ResponseEntity> responseFuture) {
+        if (responseFuture.isDone()) {
+            requestFinished();
+            return;
+        }
+
+        MetricsRecorder recorder = metricsRecorder;
+        RequestMetrics metrics = recorder == MetricsRecorder.NO_OP ? null
+                : new RequestMetrics(recorder, request, endpointTemplate);
+        RequestTracer tracer = requestTracer;
+        RequestTiming timing = null;
+        if (tracer != RequestTracer.NO_OP) {
+            try {
+                tracer.onRequest(request);
+            } catch (RuntimeException e) {
+                requestFinished();
+                responseFuture.completeExceptionally(e);
+                return;
+            }
+            timing = new RequestTiming();
+        }
+        HostGuards.Permit permit = null;
+        if (hostGuards.isEnabled()) {
+            try {
+                permit = hostGuards.acquire(request, false);
+            } catch (IOException e) {
+                if (metrics != null) {
+                    metrics.recordFailure(e);
+                }
+                if (timing != null) {
+                    timing.finish();
+                    tracer.onFailure(request, e, timing);
+                }
+                requestFinished();
+                responseFuture.completeExceptionally(e);
+                return;
+            }
+        }
+
+        final HostGuards.Permit requestPermit = permit;
+        final RequestTiming requestTiming = timing;
+        Future<HttpResponse> clientFuture;
+        try {
+            clientFuture = execute(request, requestPermit, metrics, tracer, requestTiming,
+                    responseFuture);
+        } catch (RuntimeException e) {
+            // E.g. IllegalStateException when the I/O reactor has been stopped by close()
+            if (requestPermit != null) {
+                requestPermit.release(0, e);
+            }
+            if (metrics != null) {
+                metrics.recordFailure(e);
+            }
+            if (requestTiming != null) {
+                requestTiming.finish();
+                tracer.onFailure(request, e, requestTiming);
+            }
+            requestFinished();
+            responseFuture.completeExceptionally(e);
+            return;
+        }
+
+        responseFuture.whenComplete((response, throwable) -> {
+            if (responseFuture.isCancelled()) {
+                clientFuture.cancel(true);
+            }
+        });
+    }
+
+    private Future<HttpResponse> execute(HttpRequestBase request,
+            HostGuards.Permit requestPermit, RequestMetrics metrics, RequestTracer tracer,
+            RequestTiming requestTiming, CompletableFuture<ResponseEntity> responseFuture) {
+        return client.execute(request, new FutureCallback<HttpResponse>() {
+            @Override
+            public void completed(HttpResponse httpResponse) {
+                if (requestPermit != null) {
+                    requestPermit.release(httpResponse.getStatusLine()
+                                                      .getStatusCode(),
+                            null);
+                }
+                requestFinished();
+                try {
+                    if (metrics != null) {
+                        metrics.countResponseBody(httpResponse);
+                    }
+                    ResponseEntity response = new ResponseEntity(httpResponse);
+                    if (metrics != null) {
+                        metrics.recordResponse(response.getStatusCode());
+                    }
+                    if (requestTiming != null) {
+                        requestTiming.finish();
+                        tracer.onResponse(request, response.getStatusCode(), requestTiming);
+                    }
+                    responseFuture.complete(response);
+                } catch (IOException | RuntimeException e) {
+                    if (metrics != null) {
+                        metrics.recordFailure(e);
+                    }
+                    if (requestTiming != null && requestTiming.getTotalNanos() < 0) {
+                        requestTiming.finish();
+                        tracer.onFailure(request, e, requestTiming);
+                    }
+                    responseFuture.completeExceptionally(e);
+                }
+            }
+
+            @Override
+            public void failed(Exception e) {
+                if (requestPermit != null) {
+                    requestPermit.release(0, e);
+                }
+                if (metrics != null) {
+                    metrics.recordFailure(e);
+                }
+                if (requestTiming != null) {
+                    requestTiming.finish();
+                    tracer.onFailure(request, e, requestTiming);
+                }
+                requestFinished();
+                responseFuture.completeExceptionally(e);
+            }
+
+            @Override
+            public void cancelled() {
+                if (requestPermit != null) {
+                    requestPermit.release(0, null);
+                }
+                requestFinished();
+                responseFuture.cancel(false);
+            }
+        });
+    }
+
+    /**
+     * Releases the in-flight permit of a finished request. Queued requests are dispatched on the
+     * shared dispatcher thread, since this is mostly called on an I/O reactor thread, which must
+     * not run tracers or other work of the requests.
+     */
+    private void requestFinished() {
+        if (inFlightPermits != null) {
+            inFlightPermits.release();
+            if (!pendingRequests.isEmpty()) {
+                DispatcherHolder.DISPATCHER.execute(this::dispatchPendingRequests);
+            }
+        }
+    }
+
+    private static class DispatcherHolder {
+        private static final ExecutorService DISPATCHER = Executors.newSingleThreadExecutor(
+                runnable -> {
+                    Thread thread = new Thread(runnable, "async-http-dispatcher");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    private static class InstanceHolder {
+        private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+        private static final AsyncHttpExecutor INSTANCE = new AsyncHttpExecutor(
+                new HttpExecutorConfig(), runnable -> {
+                    Thread thread = new Thread(runnable,
+                            "shared-async-http-executor-" + THREAD_COUNT.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+}
@@ -0,0 +1,46 @@
+/*
+   Copyright 2019 Ericsson AB.
+   For a full list of individual contributors, please see the commit history.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.ericsson.eiffelcommons.http;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+/**
+ * Configuration of the bulkheads an HttpExecutor or AsyncHttpExecutor keeps per target host. A
+ * bulkhead limits the number of concurrent requests towards one host, so a slow host cannot hold
+ * every pooled connection and calling thread.
+ *
+ * @author Ericsson 2019
+ *
+ */
+@Getter
+@Setter
+@Accessors(chain = true)
+public class BulkheadPolicy {
+
+    /**
+     * Maximum number of requests in progress towards one host.
+     */
+    private int maxConcurrentCalls = 20;
+
+    /**
+     * How long a blocking request waits for a free slot before it fails with a
+     * BulkheadFullException. Asynchronous requests never wait.
+     */
+    private long maxWaitMillis = 0;
+}
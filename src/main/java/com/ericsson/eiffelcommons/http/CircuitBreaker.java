@@ -0,0 +1,161 @@
+/*
+   Copyright 2019 Ericsson AB.
+   For a full list of individual contributors, please see the commit history.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.ericsson.eiffelcommons.http;
+
+/**
+ * Circuit breaker of the requests towards a single host, configured by a CircuitBreakerPolicy.
+ * The state can be inspected through HttpExecutor.getCircuitBreaker, it is changed only by the
+ * requests sent by the executor.
+ *
+ * @author Ericsson 2019
+ *
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final CircuitBreakerPolicy policy;
+    private final boolean[] failedCalls;
+    private final boolean[] slowCalls;
+    private State state = State.CLOSED;
+    private int recordedCalls = 0;
+    private int nextCall = 0;
+    private int failedCallCount = 0;
+    private int slowCallCount = 0;
+    private long openedAt;
+    private int probesStarted = 0;
+    private int probesSucceeded = 0;
+
+    CircuitBreaker(CircuitBreakerPolicy policy) {
+        this.policy = policy;
+        this.failedCalls = new boolean[Math.max(1, policy.getSlidingWindowSize())];
+        this.slowCalls = new boolean[failedCalls.length];
+    }
+
+    /**
+     * Returns the current state, an open circuit whose open duration has passed is reported as
+     * half open.
+     *
+     * @return State
+     */
+    public synchronized State getState() {
+        if (state == State.OPEN && isOpenDurationPassed()) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * Returns the share of failed requests among the recorded ones.
+     *
+     * @return failure rate between 0 and 1
+     */
+    public synchronized double getFailureRate() {
+        return recordedCalls == 0 ? 0 : (double) failedCallCount / recordedCalls;
+    }
+
+    /**
+     * Returns the share of slow requests among the recorded ones.
+     *
+     * @return slow call rate between 0 and 1
+     */
+    public synchronized double getSlowCallRate() {
+        return recordedCalls == 0 ? 0 : (double) slowCallCount / recordedCalls;
+    }
+
+    /**
+     * Checks if a request may be sent, counting it as a probe if the circuit is half open.
+     *
+     * @return boolean
+     */
+    synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (!isOpenDurationPassed()) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            probesStarted = 0;
+            probesSucceeded = 0;
+        }
+
+        if (state == State.HALF_OPEN) {
+            if (probesStarted >= policy.getHalfOpenProbeCalls()) {
+                return false;
+            }
+            probesStarted++;
+        }
+        return true;
+    }
+
+    /**
+     * Records the outcome of a request that was given permission.
+     *
+     * @param durationMillis
+     * @param failed
+     */
+    synchronized void onResult(long durationMillis, boolean failed) {
+        boolean slow = durationMillis > policy.getSlowCallDurationMillis();
+        if (state == State.HALF_OPEN) {
+            if (failed || slow) {
+                open();
+            } else if (++probesSucceeded >= policy.getHalfOpenProbeCalls()) {
+                close();
+            }
+            return;
+        }
+        if (state == State.OPEN) {
+            return;
+        }
+
+        if (recordedCalls == failedCalls.length) {
+            failedCallCount -= failedCalls[nextCall] ? 1 : 0;
+            slowCallCount -= slowCalls[nextCall] ? 1 : 0;
+        } else {
+            recordedCalls++;
+        }
+        failedCalls[nextCall] = failed;
+        slowCalls[nextCall] = slow;
+        failedCallCount += failed ? 1 : 0;
+        slowCallCount += slow ? 1 : 0;
+        nextCall = (nextCall + 1) % failedCalls.length;
+
+        if (recordedCalls >= policy.getMinimumNumberOfCalls()
+                && (getFailureRate() >= policy.getFailureRateThreshold()
+                        || getSlowCallRate() >= policy.getSlowCallRateThreshold())) {
+            open();
+        }
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.currentTimeMillis();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        recordedCalls = 0;
+        nextCall = 0;
+        failedCallCount = 0;
+        slowCallCount = 0;
+    }
+
+    private boolean isOpenDurationPassed() {
+        return System.currentTimeMillis() - openedAt >= policy.getOpenDurationMillis();
+    }
+}
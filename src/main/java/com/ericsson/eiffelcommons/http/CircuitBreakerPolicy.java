@@ -0,0 +1,84 @@
+/*
+   Copyright 2019 Ericsson AB.
+   For a full list of individual contributors, please see the commit history.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.ericsson.eiffelcommons.http;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+/**
+ * Configuration of the circuit breakers an HttpExecutor or AsyncHttpExecutor keeps per target
+ * host. All durations are given in milliseconds.
+ *
+ * The outcome of the last slidingWindowSize requests towards a host is recorded. When the share
+ * of failed or slow requests reaches its threshold the circuit opens, and requests towards the
+ * host fail at once with a CircuitBreakerOpenException. After openDurationMillis a few probe
+ * requests are let through, the circuit closes if they all succeed and opens again otherwise.
+ *
+ * @author Ericsson 2019
+ *
+ */
+@Getter
+@Setter
+@Accessors(chain = true)
+public class CircuitBreakerPolicy {
+
+    /**
+     * Number of recent requests the failure and slow call rates are computed from.
+     */
+    private int slidingWindowSize = 20;
+
+    /**
+     * Minimum number of recorded requests before the circuit may open.
+     */
+    private int minimumNumberOfCalls = 10;
+
+    /**
+     * Share of failed requests, between 0 and 1, that opens the circuit.
+     */
+    private double failureRateThreshold = 0.5;
+
+    /**
+     * Share of slow requests, between 0 and 1, that opens the circuit.
+     */
+    private double slowCallRateThreshold = 1.0;
+
+    /**
+     * Requests taking longer than this are counted as slow.
+     */
+    private long slowCallDurationMillis = 10000;
+
+    /**
+     * How long the circuit stays open before probe requests are let through.
+     */
+    private long openDurationMillis = 30000;
+
+    /**
+     * Number of probe requests that must succeed for the circuit to close again.
+     */
+    private int halfOpenProbeCalls = 3;
+
+    /**
+     * Response status codes counted as failures, in addition to requests failing with an
+     * exception.
+     */
+    private Set<Integer> failureStatusCodes = new HashSet<>(Arrays.asList(500, 502, 503, 504));
+}
@@ -0,0 +1,109 @@
+/*
+   Copyright 2019 Ericsson AB.
+   For a full list of individual contributors, please see the commit history.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.ericsson.eiffelcommons.http;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A parsed endpoint template such as /job/{jobName}/{buildNumber}/api/json. Parsed templates are
+ * cached, so expanding a template only appends its literal parts and the encoded values.
+ *
+ * @author Ericsson 2019
+ *
+ */
+final class EndpointTemplate {
+
+    /**
+     * Templates are normally constants, the limit only protects against templates built from
+     * variable data.
+     */
+    private static final int MAX_CACHED_TEMPLATES = 512;
+    private static final ConcurrentMap<String, EndpointTemplate> CACHE = new ConcurrentHashMap<>();
+
+    private final String template;
+    private final String[] literals;
+    private final int literalLength;
+
+    private EndpointTemplate(String template) {
+        this.template = template;
+        List<String> parts = new ArrayList<>();
+        int literalStart = 0;
+        int length = 0;
+        int placeholderStart;
+        while ((placeholderStart = template.indexOf('{', literalStart)) >= 0) {
+            int placeholderEnd = template.indexOf('}', placeholderStart);
+            if (placeholderEnd < 0) {
+                throw new IllegalArgumentException(
+                        "Unterminated placeholder in endpoint template " + template);
+            }
+            parts.add(template.substring(literalStart, placeholderStart));
+            length += placeholderStart - literalStart;
+            literalStart = placeholderEnd + 1;
+        }
+        parts.add(template.substring(literalStart));
+        length += template.length() - literalStart;
+
+        this.literals = parts.toArray(new String[0]);
+        this.literalLength = length;
+    }
+
+    /**
+     * Returns the parsed form of a template, from the cache if it has been parsed before.
+     *
+     * @param template :: Endpoint template, e.g. /job/{jobName}/api/json
+     * @return EndpointTemplate
+     * @throws IllegalArgumentException if a placeholder is not terminated
+     */
+    static EndpointTemplate of(String template) {
+        EndpointTemplate endpointTemplate = CACHE.get(template);
+        if (endpointTemplate == null) {
+            endpointTemplate = new EndpointTemplate(template);
+            if (CACHE.size() < MAX_CACHED_TEMPLATES) {
+                CACHE.putIfAbsent(template, endpointTemplate);
+            }
+        }
+
+        return endpointTemplate;
+    }
+
+    /**
+     * Replaces the placeholders of the template in order with the given values. Characters of the
+     * values that are not allowed in a URI path are percent-encoded, slashes are kept.
+     *
+     * @param values :: One value per placeholder
+     * @return String
+     * @throws IllegalArgumentException if the number of values does not match the template
+     */
+    String expand(Object... values) {
+        if (values.length != literals.length - 1) {
+            throw new IllegalArgumentException("The endpoint template " + template + " expects "
+                    + (literals.length - 1) + " values but got " + values.length);
+        }
+
+        StringBuilder endpoint = new StringBuilder(literalLength + 16 * values.length);
+        endpoint.append(literals[0]);
+        for (int i = 0; i < values.length; i++) {
+            UriEncoder.appendPathEncoded(endpoint, String.valueOf(values[i]));
+            endpoint.append(literals[i + 1]);
+        }
+
+        return endpoint.toString();
+    }
+}
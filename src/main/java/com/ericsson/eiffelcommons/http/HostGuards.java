@@ -0,0 +1,187 @@
+/*
+   Copyright 2019 Ericsson AB.
+   For a full list of individual contributors, please see the commit history.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.ericsson.eiffelcommons.http;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.http.HttpHost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.utils.URIUtils;
+
+import com.ericsson.eiffelcommons.exceptions.BulkheadFullException;
+import com.ericsson.eiffelcommons.exceptions.CircuitBreakerOpenException;
+
+/**
+ * The circuit breakers and bulkheads of one executor, one of each per target host. Requests are
+ * sent between acquire and Permit.release, a request that is rejected is never sent.
+ */
+class HostGuards {
+
+    private volatile CircuitBreakerPolicy circuitBreakerPolicy;
+    private volatile BulkheadPolicy bulkheadPolicy;
+    private final ConcurrentMap<HttpHost, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<HttpHost, Semaphore> bulkheads = new ConcurrentHashMap<>();
+
+    /**
+     * Sets the circuit breaker policy, resetting all circuit breakers. Null disables them.
+     *
+     * @param policy
+     */
+    void setCircuitBreakerPolicy(CircuitBreakerPolicy policy) {
+        circuitBreakerPolicy = policy;
+        circuitBreakers.clear();
+    }
+
+    CircuitBreakerPolicy getCircuitBreakerPolicy() {
+        return circuitBreakerPolicy;
+    }
+
+    /**
+     * Sets the bulkhead policy, requests already in progress are not counted by the new
+     * bulkheads. Null disables them.
+     *
+     * @param policy
+     */
+    void setBulkheadPolicy(BulkheadPolicy policy) {
+        bulkheadPolicy = policy;
+        bulkheads.clear();
+    }
+
+    BulkheadPolicy getBulkheadPolicy() {
+        return bulkheadPolicy;
+    }
+
+    boolean isEnabled() {
+        return circuitBreakerPolicy != null || bulkheadPolicy != null;
+    }
+
+    /**
+     * Returns the circuit breaker of a host, or null if none has been created.
+     *
+     * @param host
+     * @return CircuitBreaker
+     */
+    CircuitBreaker getCircuitBreaker(HttpHost host) {
+        return circuitBreakers.get(host);
+    }
+
+    /**
+     * Acquires permission to send a request towards its host.
+     *
+     * @param request
+     * @param wait    :: If false the bulkhead does not wait for a free slot
+     * @return Permit that must be released when the request has completed
+     * @throws CircuitBreakerOpenException
+     * @throws BulkheadFullException
+     * @throws InterruptedIOException
+     */
+    Permit acquire(HttpRequestBase request, boolean wait) throws IOException {
+        HttpHost host = URIUtils.extractHost(request.getURI());
+        CircuitBreakerPolicy breakerPolicy = circuitBreakerPolicy;
+        BulkheadPolicy currentBulkheadPolicy = bulkheadPolicy;
+        if (host == null) {
+            return new Permit(null, null, null);
+        }
+
+        Semaphore bulkhead = null;
+        if (currentBulkheadPolicy != null) {
+            bulkhead = bulkheads.computeIfAbsent(host,
+                    key -> new Semaphore(currentBulkheadPolicy.getMaxConcurrentCalls()));
+            if (!tryAcquire(bulkhead, wait ? currentBulkheadPolicy.getMaxWaitMillis() : 0)) {
+                throw new BulkheadFullException(String.format(
+                        "Too many concurrent requests towards %s, the limit is %d.", host,
+                        currentBulkheadPolicy.getMaxConcurrentCalls()));
+            }
+        }
+
+        CircuitBreaker circuitBreaker = null;
+        if (breakerPolicy != null) {
+            circuitBreaker = circuitBreakers.computeIfAbsent(host,
+                    key -> new CircuitBreaker(breakerPolicy));
+            if (!circuitBreaker.tryAcquirePermission()) {
+                if (bulkhead != null) {
+                    bulkhead.release();
+                }
+                throw new CircuitBreakerOpenException(
+                        "The circuit breaker towards " + host + " is open.");
+            }
+        }
+
+        return new Permit(breakerPolicy, circuitBreaker, bulkhead);
+    }
+
+    private boolean tryAcquire(Semaphore bulkhead, long waitMillis) throws InterruptedIOException {
+        if (waitMillis <= 0) {
+            return bulkhead.tryAcquire();
+        }
+
+        try {
+            return bulkhead.tryAcquire(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                  .interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a free bulkhead slot.");
+        }
+    }
+
+    /**
+     * Permission to send one request, records its outcome and frees its bulkhead slot when
+     * released. Only the first release has any effect.
+     */
+    static class Permit {
+
+        private final CircuitBreakerPolicy policy;
+        private final CircuitBreaker circuitBreaker;
+        private final Semaphore bulkhead;
+        private final long startTime = System.currentTimeMillis();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(CircuitBreakerPolicy policy, CircuitBreaker circuitBreaker,
+                Semaphore bulkhead) {
+            this.policy = policy;
+            this.circuitBreaker = circuitBreaker;
+            this.bulkhead = bulkhead;
+        }
+
+        /**
+         * Releases the permit.
+         *
+         * @param statusCode :: Status code of the response, ignored if the request failed
+         * @param failure    :: Exception the request failed with, or null
+         */
+        void release(int statusCode, Throwable failure) {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            if (bulkhead != null) {
+                bulkhead.release();
+            }
+            if (circuitBreaker != null) {
+                boolean failed = failure != null
+                        || policy.getFailureStatusCodes()
+                                 .contains(statusCode);
+                circuitBreaker.onResult(System.currentTimeMillis() - startTime, failed);
+            }
+        }
+    }
+}
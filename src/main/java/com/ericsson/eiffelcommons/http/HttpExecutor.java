@@ -16,34 +16,188 @@
 */
 package com.ericsson.eiffelcommons.http;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
-import org.apache.http.HttpResponse;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpHost;
 import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.config.Registry;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
 
-public class HttpExecutor {
+public class HttpExecutor implements Closeable {
 
-    private static HttpExecutor instance;
-    private CloseableHttpClient client = HttpClientBuilder.create()
-                                                          .build();
+    private static volatile HttpExecutor instance;
+    private CloseableHttpClient client;
+    private PoolingHttpClientConnectionManager connectionManager;
+    private RequestConfig defaultRequestConfig = RequestConfig.DEFAULT;
+    private RetryPolicy retryPolicy = RetryPolicy.noRetry();
+    private final HostGuards hostGuards = new HostGuards();
+    private volatile MetricsRecorder metricsRecorder = MetricsRecorder.NO_OP;
+    private volatile RequestTracer requestTracer = RequestTracer.NO_OP;
 
     public HttpExecutor() {
-
+        this(HttpClientBuilder.create()
+                              .setRequestExecutor(new TracingHooks.TracingRequestExecutor())
+                              .setSSLSocketFactory(TracingHooks.createSslSocketFactory(null, null))
+                              .setDnsResolver(TracingHooks.TracingDnsResolver.INSTANCE)
+                              .build());
     }
 
     public HttpExecutor(CloseableHttpClient client) {
         this.client = client;
     }
 
+    /**
+     * Creates a thread safe executor backed by an explicitly configured connection pool. The
+     * executor may be shared between any number of HttpRequest and JenkinsManager instances.
+     *
+     * @param config
+     *            :: Configuration of the connection pool
+     */
+    public HttpExecutor(HttpExecutorConfig config) {
+        this.connectionManager = createConnectionManager(config);
+        this.defaultRequestConfig = config.createRequestConfig();
+        this.client = createPooledClient(config, connectionManager);
+    }
+
+    /**
+     * Returns a shared executor with the default configuration, created on first use. Executors
+     * with a configuration of their own can be shared through HttpExecutorRegistry.
+     *
+     * @return HttpExecutor
+     */
     public static HttpExecutor getInstance() {
-        if (instance == null) {
-            instance = new HttpExecutor();
+        HttpExecutor sharedInstance = instance;
+        if (sharedInstance == null) {
+            synchronized (HttpExecutor.class) {
+                sharedInstance = instance;
+                if (sharedInstance == null) {
+                    sharedInstance = new HttpExecutor();
+                    instance = sharedInstance;
+                }
+            }
+        }
+
+        return sharedInstance;
+    }
+
+    /**
+     * Sets the retry policy used for requests that do not have a policy of their own. By default
+     * requests are not retried.
+     *
+     * @param retryPolicy
+     * @return HttpExecutor
+     */
+    public HttpExecutor setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy != null ? retryPolicy : RetryPolicy.noRetry();
+        return this;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Sets the policy of the circuit breakers kept per target host, resetting their state. By
+     * default there are no circuit breakers.
+     *
+     * @param circuitBreakerPolicy :: Policy, or null to disable the circuit breakers
+     * @return HttpExecutor
+     */
+    public HttpExecutor setCircuitBreakerPolicy(CircuitBreakerPolicy circuitBreakerPolicy) {
+        hostGuards.setCircuitBreakerPolicy(circuitBreakerPolicy);
+        return this;
+    }
+
+    public CircuitBreakerPolicy getCircuitBreakerPolicy() {
+        return hostGuards.getCircuitBreakerPolicy();
+    }
+
+    /**
+     * Sets the policy of the bulkheads limiting the concurrent requests per target host. By
+     * default the number of concurrent requests is only limited by the connection pool.
+     *
+     * @param bulkheadPolicy :: Policy, or null to disable the bulkheads
+     * @return HttpExecutor
+     */
+    public HttpExecutor setBulkheadPolicy(BulkheadPolicy bulkheadPolicy) {
+        hostGuards.setBulkheadPolicy(bulkheadPolicy);
+        return this;
+    }
+
+    public BulkheadPolicy getBulkheadPolicy() {
+        return hostGuards.getBulkheadPolicy();
+    }
+
+    /**
+     * Returns the circuit breaker towards a host, or null if no request has been sent to the host
+     * since the circuit breaker policy was set.
+     *
+     * @param host :: Target host including port, e.g. new HttpHost("localhost", 8080, "http")
+     * @return CircuitBreaker
+     */
+    public CircuitBreaker getCircuitBreaker(HttpHost host) {
+        return hostGuards.getCircuitBreaker(host);
+    }
+
+    /**
+     * Sets the recorder of request metrics. For a pooled executor the recorder also receives the
+     * connection lease times and is bound to the statistics of the pool.
+     *
+     * @param metricsRecorder :: Recorder, or null to record nothing
+     * @return HttpExecutor
+     */
+    public HttpExecutor setMetricsRecorder(MetricsRecorder metricsRecorder) {
+        this.metricsRecorder = metricsRecorder != null ? metricsRecorder : MetricsRecorder.NO_OP;
+        if (connectionManager != null) {
+            this.metricsRecorder.bindConnectionPool(connectionManager::getTotalStats);
         }
+        return this;
+    }
 
-        return instance;
+    public MetricsRecorder getMetricsRecorder() {
+        return metricsRecorder;
+    }
+
+    /**
+     * Sets the tracer called around every attempt of a request. Which phases of a request are
+     * timed depends on how the executor was created, see RequestTiming.
+     *
+     * @param requestTracer :: Tracer, or null to trace nothing
+     * @return HttpExecutor
+     */
+    public HttpExecutor setRequestTracer(RequestTracer requestTracer) {
+        this.requestTracer = requestTracer != null ? requestTracer : RequestTracer.NO_OP;
+        return this;
+    }
+
+    public RequestTracer getRequestTracer() {
+        return requestTracer;
+    }
+
+    /**
+     * Returns the request configuration the client of this executor was built with, or the
+     * HttpClient defaults if this executor wraps a client it did not configure itself. Used as the
+     * base when a single request overrides some of its settings.
+     *
+     * @return RequestConfig
+     */
+    RequestConfig getDefaultRequestConfig() {
+        return defaultRequestConfig;
     }
 
     /**
@@ -56,9 +210,319 @@ public class HttpExecutor {
      * @throws ClientProtocolException
      */
     public ResponseEntity executeRequest(HttpRequestBase request) throws ClientProtocolException, IOException {
-        HttpResponse httpResponse = null;
+        return executeRequest(request, null);
+    }
+
+    /**
+     * Handle the response from a HTTP request, retrying it according to the given policy. The
+     * calling thread waits between the attempts.
+     *
+     * @param request
+     *            :: A HTTP request method, e.g. httpGet, httpPost
+     * @param retryPolicy
+     *            :: Retry policy of the request, or null to use the policy of this executor
+     * @return ResponseEntity of the last attempt
+     * @throws IOException
+     * @throws ClientProtocolException
+     */
+    public ResponseEntity executeRequest(HttpRequestBase request, RetryPolicy retryPolicy)
+            throws ClientProtocolException, IOException {
+        return executeRequest(request, retryPolicy, null);
+    }
+
+    /**
+     * Handle the response from a HTTP request, the endpoint template is used as endpoint in the
+     * recorded metrics.
+     *
+     * @param request
+     * @param retryPolicy      :: Retry policy of the request, or null to use the policy of this
+     *                         executor
+     * @param endpointTemplate :: Endpoint template, or null to use the path of the request
+     * @return ResponseEntity of the last attempt
+     * @throws IOException
+     */
+    ResponseEntity executeRequest(HttpRequestBase request, RetryPolicy retryPolicy,
+            String endpointTemplate) throws IOException {
+        RetryPolicy policy = retryPolicy != null ? retryPolicy : this.retryPolicy;
+        if (policy.getMaxAttempts() <= 1) {
+            return executeOnce(request, endpointTemplate);
+        }
+
+        return RetryExecution.execute(request, policy,
+                () -> executeOnce(request, endpointTemplate));
+    }
 
-        httpResponse = client.execute(request);
-        return new ResponseEntity(httpResponse);
+    /**
+     * Executes a HTTP request without reading the response body. The body is streamed from the
+     * connection by the returned entity, which must be closed to release the connection. The
+     * bulkhead slot of the request is held until the body has been read or the entity is closed.
+     *
+     * @param request
+     *            :: A HTTP request method, e.g. httpGet, httpPost
+     * @param maxBodySize
+     *            :: Maximum number of body bytes that may be read, or
+     *            StreamingResponseEntity.UNLIMITED_BODY_SIZE
+     * @return StreamingResponseEntity
+     * @throws IOException
+     * @throws ClientProtocolException
+     */
+    public StreamingResponseEntity executeStreamingRequest(HttpRequestBase request, long maxBodySize)
+            throws ClientProtocolException, IOException {
+        return executeStreamingRequest(request, maxBodySize, null);
+    }
+
+    /**
+     * Executes a HTTP request without reading the response body, the endpoint template is used as
+     * endpoint in the recorded metrics. The request is recorded and traced when the response
+     * headers have been received, without the body size and body read time.
+     *
+     * @param request
+     * @param maxBodySize
+     * @param endpointTemplate :: Endpoint template, or null to use the path of the request
+     * @return StreamingResponseEntity
+     * @throws IOException
+     */
+    StreamingResponseEntity executeStreamingRequest(HttpRequestBase request, long maxBodySize,
+            String endpointTemplate) throws IOException {
+        MetricsRecorder recorder = metricsRecorder;
+        RequestMetrics metrics = recorder == MetricsRecorder.NO_OP ? null
+                : new RequestMetrics(recorder, request, endpointTemplate);
+        RequestTracer tracer = requestTracer;
+        RequestTiming timing = startTiming(tracer, request);
+        HostGuards.Permit permit = null;
+        CloseableHttpResponse httpResponse;
+        try {
+            permit = hostGuards.isEnabled() ? hostGuards.acquire(request, true) : null;
+            httpResponse = client.execute(request);
+        } catch (IOException | RuntimeException e) {
+            if (permit != null) {
+                permit.release(0, e);
+            }
+            if (metrics != null) {
+                metrics.recordFailure(e);
+            }
+            if (timing != null) {
+                timing.finish();
+                tracer.onFailure(request, e, timing);
+            }
+            throw e;
+        } finally {
+            if (timing != null) {
+                RequestTiming.clear();
+            }
+        }
+
+        int statusCode = httpResponse.getStatusLine()
+                                     .getStatusCode();
+        if (metrics != null) {
+            metrics.recordResponse(statusCode);
+        }
+        if (timing != null) {
+            timing.finish();
+            tracer.onResponse(request, statusCode, timing);
+        }
+        return new StreamingResponseEntity(httpResponse, maxBodySize, permit);
+    }
+
+    /**
+     * Returns the total statistics of the connection pool, or null if this executor was not
+     * created with a pool configuration.
+     *
+     * @return PoolStats
+     */
+    public PoolStats getPoolStats() {
+        if (connectionManager == null) {
+            return null;
+        }
+
+        return connectionManager.getTotalStats();
+    }
+
+    /**
+     * Returns the statistics of the connection pool towards a single host, or null if this
+     * executor was not created with a pool configuration.
+     *
+     * @param host :: Target host including port, e.g. new HttpHost("localhost", 8080, "http")
+     * @return PoolStats
+     */
+    public PoolStats getPoolStats(HttpHost host) {
+        if (connectionManager == null) {
+            return null;
+        }
+
+        return connectionManager.getStats(new HttpRoute(host));
+    }
+
+    /**
+     * Closes the underlying client together with all pooled connections.
+     */
+    @Override
+    public void close() throws IOException {
+        client.close();
+    }
+
+    private ResponseEntity executeOnce(HttpRequestBase request, String endpointTemplate)
+            throws IOException {
+        MetricsRecorder recorder = metricsRecorder;
+        RequestTracer tracer = requestTracer;
+        if (recorder == MetricsRecorder.NO_OP && tracer == RequestTracer.NO_OP) {
+            return executeGuarded(request, null, null);
+        }
+
+        RequestMetrics metrics = recorder == MetricsRecorder.NO_OP ? null
+                : new RequestMetrics(recorder, request, endpointTemplate);
+        RequestTiming timing = startTiming(tracer, request);
+        try {
+            ResponseEntity response = executeGuarded(request, metrics, timing);
+            if (metrics != null) {
+                metrics.recordResponse(response.getStatusCode());
+            }
+            if (timing != null) {
+                timing.finish();
+                tracer.onResponse(request, response.getStatusCode(), timing);
+            }
+            return response;
+        } catch (IOException | RuntimeException e) {
+            if (metrics != null) {
+                metrics.recordFailure(e);
+            }
+            if (timing != null && timing.getTotalNanos() < 0) {
+                timing.finish();
+                tracer.onFailure(request, e, timing);
+            }
+            throw e;
+        } finally {
+            if (timing != null) {
+                RequestTiming.clear();
+            }
+        }
+    }
+
+    /**
+     * Calls the tracer before an attempt and starts timing it on the calling thread.
+     *
+     * @param tracer
+     * @param request
+     * @return RequestTiming, or null if the tracer is NO_OP
+     */
+    private static RequestTiming startTiming(RequestTracer tracer, HttpRequestBase request) {
+        if (tracer == RequestTracer.NO_OP) {
+            return null;
+        }
+
+        tracer.onRequest(request);
+        return RequestTiming.start();
+    }
+
+    private ResponseEntity executeGuarded(HttpRequestBase request, RequestMetrics metrics,
+            RequestTiming timing) throws IOException {
+        if (!hostGuards.isEnabled()) {
+            return executeUnguarded(request, metrics, timing);
+        }
+
+        HostGuards.Permit permit = hostGuards.acquire(request, true);
+        try {
+            ResponseEntity response = executeUnguarded(request, metrics, timing);
+            permit.release(response.getStatusCode(), null);
+            return response;
+        } catch (IOException | RuntimeException e) {
+            permit.release(0, e);
+            throw e;
+        }
+    }
+
+    private ResponseEntity executeUnguarded(HttpRequestBase request, RequestMetrics metrics,
+            RequestTiming timing) throws IOException {
+        try (CloseableHttpResponse httpResponse = client.execute(request)) {
+            if (metrics != null) {
+                metrics.countResponseBody(httpResponse);
+            }
+            if (timing == null) {
+                return new ResponseEntity(httpResponse);
+            }
+
+            long bodyStartTime = System.nanoTime();
+            ResponseEntity response = new ResponseEntity(httpResponse);
+            timing.addBodyRead(System.nanoTime() - bodyStartTime);
+            return response;
+        }
+    }
+
+    private PoolingHttpClientConnectionManager createConnectionManager(HttpExecutorConfig config) {
+        PoolingHttpClientConnectionManager manager = new InstrumentedConnectionManager(
+                TracingHooks.createSocketFactoryRegistry(config.getSslContext(),
+                        config.getHostnameVerifier()),
+                TracingHooks.TracingDnsResolver.INSTANCE,
+                config.getConnectionTimeToLiveMillis(), TimeUnit.MILLISECONDS);
+        manager.setMaxTotal(config.getMaxTotalConnections());
+        manager.setDefaultMaxPerRoute(config.getMaxConnectionsPerRoute());
+        manager.setValidateAfterInactivity(config.getValidateAfterInactivityMillis());
+        return manager;
+    }
+
+    private CloseableHttpClient createPooledClient(HttpExecutorConfig config,
+            PoolingHttpClientConnectionManager manager) {
+        HttpClientBuilder builder = HttpClientBuilder.create()
+                                                     .setConnectionManager(manager)
+                                                     .setRequestExecutor(new TracingHooks.TracingRequestExecutor())
+                                                     .setDefaultRequestConfig(defaultRequestConfig)
+                                                     .setKeepAliveStrategy(config.createKeepAliveStrategy())
+                                                     .evictExpiredConnections();
+        if (config.getMaxIdleMillis() > 0) {
+            builder.evictIdleConnections(config.getMaxIdleMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Connection manager that reports the time spent waiting for a pooled connection to the
+     * metrics recorder and the request tracer. Lease requests are passed through untouched while
+     * neither is set.
+     */
+    private class InstrumentedConnectionManager extends PoolingHttpClientConnectionManager {
+
+        InstrumentedConnectionManager(Registry<ConnectionSocketFactory> socketFactoryRegistry,
+                DnsResolver dnsResolver, long timeToLive, TimeUnit timeUnit) {
+            super(socketFactoryRegistry, null, null, dnsResolver, timeToLive, timeUnit);
+        }
+
+        @Override
+        public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+            ConnectionRequest connectionRequest = super.requestConnection(route, state);
+            MetricsRecorder recorder = metricsRecorder;
+            if (recorder == MetricsRecorder.NO_OP && requestTracer == RequestTracer.NO_OP) {
+                return connectionRequest;
+            }
+
+            String host = route.getTargetHost()
+                               .toURI();
+            return new ConnectionRequest() {
+                @Override
+                public HttpClientConnection get(long timeout, TimeUnit timeUnit)
+                        throws InterruptedException, ExecutionException,
+                        ConnectionPoolTimeoutException {
+                    RequestTiming timing = RequestTiming.current();
+                    long startTime = System.nanoTime();
+                    boolean leased = false;
+                    try {
+                        HttpClientConnection connection = connectionRequest.get(timeout, timeUnit);
+                        leased = true;
+                        return connection;
+                    } finally {
+                        long waitNanos = System.nanoTime() - startTime;
+                        recorder.recordConnectionLease(host, waitNanos, leased);
+                        if (timing != null) {
+                            timing.addLease(waitNanos);
+                        }
+                    }
+                }
+
+                @Override
+                public boolean cancel() {
+                    return connectionRequest.cancel();
+                }
+            };
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,140 @@
+/*
+   Copyright 2019 Ericsson AB.
+   For a full list of individual contributors, please see the commit history.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.ericsson.eiffelcommons.http;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+/**
+ * Configuration of the connection pool used by a pooled HttpExecutor or an AsyncHttpExecutor. All
+ * durations are given in milliseconds, a negative value means that the timeout or limit is
+ * disabled.
+ *
+ * @author Ericsson 2019
+ *
+ */
+@Getter
+@Setter
+@Accessors(chain = true)
+public class HttpExecutorConfig {
+
+    /**
+     * Maximum number of connections kept in the pool, across all routes.
+     */
+    private int maxTotalConnections = 200;
+
+    /**
+     * Maximum number of connections kept in the pool towards a single host.
+     */
+    private int maxConnectionsPerRoute = 50;
+
+    /**
+     * How long a connection may be kept alive when the server does not send a Keep-Alive timeout.
+     */
+    private long keepAliveMillis = 30000;
+
+    /**
+     * Connections that have been idle for longer than this are closed by a background evictor.
+     */
+    private long maxIdleMillis = 60000;
+
+    /**
+     * Total time to live of a pooled connection, regardless of keep-alive.
+     */
+    private long connectionTimeToLiveMillis = -1;
+
+    /**
+     * Pooled connections that have been inactive for longer than this are re-validated before
+     * being leased.
+     */
+    private int validateAfterInactivityMillis = 2000;
+
+    /**
+     * Timeout until a connection towards the server is established.
+     */
+    private int connectTimeoutMillis = -1;
+
+    /**
+     * Maximum period of inactivity between two data packets.
+     */
+    private int socketTimeoutMillis = -1;
+
+    /**
+     * Timeout when waiting for a connection to be leased from the pool.
+     */
+    private int connectionRequestTimeoutMillis = -1;
+
+    /**
+     * Number of I/O reactor threads used by an AsyncHttpExecutor.
+     */
+    private int ioThreadCount = Runtime.getRuntime()
+                                       .availableProcessors();
+
+    /**
+     * Maximum number of requests an AsyncHttpExecutor has in flight at the same time, further
+     * requests are queued without blocking the caller.
+     */
+    private int maxInFlightRequests = -1;
+
+    /**
+     * SSL context of TLS connections, e.g. holding a client certificate or a private trust store.
+     * If null the default context of the JVM is used.
+     */
+    private SSLContext sslContext;
+
+    /**
+     * Verifier of the host name of TLS connections. If null the default verifier of HttpClient is
+     * used.
+     */
+    private HostnameVerifier hostnameVerifier;
+
+    /**
+     * Creates the default request configuration with the timeouts of this configuration.
+     *
+     * @return RequestConfig
+     */
+    RequestConfig createRequestConfig() {
+        return RequestConfig.custom()
+                            .setConnectTimeout(connectTimeoutMillis)
+                            .setSocketTimeout(socketTimeoutMillis)
+                            .setConnectionRequestTimeout(connectionRequestTimeoutMillis)
+                            .build();
+    }
+
+    /**
+     * Creates a keep-alive strategy that honours the Keep-Alive header of the server and falls back
+     * to keepAliveMillis when the server does not specify one.
+     *
+     * @return ConnectionKeepAliveStrategy
+     */
+    ConnectionKeepAliveStrategy createKeepAliveStrategy() {
+        final long fallbackKeepAlive = keepAliveMillis;
+        return (response, context) -> {
+            long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(
+                    response, context);
+            return serverKeepAlive > 0 ? serverKeepAlive : fallbackKeepAlive;
+        };
+    }
+}
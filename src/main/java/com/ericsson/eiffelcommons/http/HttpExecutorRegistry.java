@@ -0,0 +1,180 @@
+/*
+   Copyright 2019 Ericsson AB.
+   For a full list of individual contributors, please see the commit history.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.ericsson.eiffelcommons.http;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of named, shared HttpExecutors, each with a connection pool, timeouts and TLS
+ * configuration of its own, e.g. "jenkins-fast" for short Jenkins calls and "ei-bulk" for large
+ * Eiffel Intelligence uploads. Separating traffic classes this way keeps a slow class from
+ * exhausting the connections of another, while the connections within a class are reused.
+ *
+ * All registered executors are closed by a shutdown hook of the JVM, or explicitly with close and
+ * closeAll.
+ *
+ * @author Ericsson 2019
+ *
+ */
+public final class HttpExecutorRegistry {
+
+    private static final ConcurrentMap<String, HttpExecutor> EXECUTORS = new ConcurrentHashMap<>();
+
+    private HttpExecutorRegistry() {
+    }
+
+    /**
+     * Creates and registers an executor under the given name.
+     *
+     * @param name   :: Name of the executor, e.g. jenkins-fast
+     * @param config :: Configuration of the executor
+     * @return HttpExecutor
+     * @throws IllegalStateException if an executor is already registered under the name
+     */
+    public static HttpExecutor register(String name, HttpExecutorConfig config) {
+        if (EXECUTORS.containsKey(name)) {
+            throw createAlreadyRegisteredException(name);
+        }
+
+        ShutdownHook.install();
+        HttpExecutor executor = new HttpExecutor(config);
+        if (EXECUTORS.putIfAbsent(name, executor) != null) {
+            closeQuietly(executor);
+            throw createAlreadyRegisteredException(name);
+        }
+
+        return executor;
+    }
+
+    /**
+     * Returns the executor registered under the given name, creating and registering it with the
+     * given configuration if there is none. Concurrent callers get the same executor.
+     *
+     * @param name   :: Name of the executor, e.g. jenkins-fast
+     * @param config :: Configuration used if the executor has to be created
+     * @return HttpExecutor
+     */
+    public static HttpExecutor getOrCreate(String name, HttpExecutorConfig config) {
+        HttpExecutor executor = EXECUTORS.get(name);
+        if (executor != null) {
+            return executor;
+        }
+
+        ShutdownHook.install();
+        return EXECUTORS.computeIfAbsent(name, key -> new HttpExecutor(config));
+    }
+
+    /**
+     * Returns the executor registered under the given name.
+     *
+     * @param name :: Name of the executor
+     * @return HttpExecutor
+     * @throws IllegalArgumentException if no executor is registered under the name
+     */
+    public static HttpExecutor get(String name) {
+        HttpExecutor executor = EXECUTORS.get(name);
+        if (executor == null) {
+            throw new IllegalArgumentException("No HttpExecutor is registered with the name " + name);
+        }
+
+        return executor;
+    }
+
+    /**
+     * Returns the names of the registered executors, in alphabetical order.
+     *
+     * @return Set
+     */
+    public static Set<String> getNames() {
+        return Collections.unmodifiableSet(new TreeSet<>(EXECUTORS.keySet()));
+    }
+
+    /**
+     * Unregisters and closes the executor registered under the given name, if any.
+     *
+     * @param name :: Name of the executor
+     * @throws IOException
+     */
+    public static void close(String name) throws IOException {
+        HttpExecutor executor = EXECUTORS.remove(name);
+        if (executor != null) {
+            executor.close();
+        }
+    }
+
+    /**
+     * Unregisters and closes all registered executors. An executor that fails to close does not
+     * prevent the others from being closed.
+     *
+     * @throws IOException the failure of the first executor that failed to close, with the
+     *                     failures of the others as suppressed exceptions
+     */
+    public static void closeAll() throws IOException {
+        IOException failure = null;
+        for (String name : EXECUTORS.keySet()) {
+            try {
+                close(name);
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static IllegalStateException createAlreadyRegisteredException(String name) {
+        return new IllegalStateException("An HttpExecutor is already registered with the name " + name);
+    }
+
+    private static void closeQuietly(HttpExecutor executor) {
+        try {
+            executor.close();
+        } catch (IOException e) {
+            // Nothing more can be done with an executor that fails to close
+        }
+    }
+
+    /**
+     * Installs the shutdown hook the first time an executor is registered.
+     */
+    private static class ShutdownHook {
+
+        static {
+            Runtime.getRuntime()
+                   .addShutdownHook(new Thread(() -> {
+                       for (HttpExecutor executor : EXECUTORS.values()) {
+                           closeQuietly(executor);
+                       }
+                   }, "http-executor-registry-shutdown"));
+        }
+
+        static void install() {
+            // Installed by the static initializer
+        }
+    }
+}
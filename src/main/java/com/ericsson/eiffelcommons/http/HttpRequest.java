@@ -18,28 +18,35 @@ package com.ericsson.eiffelcommons.http;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.HashMap;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.commons.codec.binary.Base64;
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.Header;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpHeaders;
 import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.methods.HttpRequestBase;
-import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.entity.ContentProducer;
 import org.apache.http.entity.ContentType;
+import org.apache.http.entity.EntityTemplate;
+import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.message.BasicHeader;
+import org.apache.http.nio.entity.NFileEntity;
 
 import lombok.Getter;
 import lombok.Setter;
@@ -50,6 +57,8 @@ public class HttpRequest {
 
     private HttpRequestBase request;
     private HttpExecutor executor;
+    private AsyncHttpExecutor asyncExecutor;
+    private RetryPolicy retryPolicy;
 
     public enum HttpMethod {
         GET, POST, DELETE, PUT
@@ -61,11 +70,23 @@ public class HttpRequest {
     @Setter
     protected String endpoint;
 
+    /**
+     * Endpoint with placeholders instead of the variable parts, e.g. /job/{jobName}/build, used
+     * as endpoint in the recorded metrics so that all requests towards the same endpoint are
+     * grouped together. If not set the actual endpoint is recorded.
+     */
+    @Getter
+    @Setter
+    protected String endpointTemplate;
+
+    /**
+     * Query parameters of the request, sent in the order they were added.
+     */
     @Getter
     protected Map<String, String> params;
 
     public HttpRequest() {
-        params = new HashMap<>();
+        params = new LinkedHashMap<>();
         initExecutor(false);
     }
 
@@ -74,16 +95,49 @@ public class HttpRequest {
     }
 
     public HttpRequest(HttpMethod method, HttpExecutor executor) {
-        this(method, false);
-        this.executor = executor;
+        this(method, executor, null);
+    }
+
+    /**
+     * Creates a request performed asynchronously by the given executor. If the request is
+     * performed synchronously a client of its own is created on first use.
+     *
+     * @param method
+     * @param asyncExecutor
+     */
+    public HttpRequest(HttpMethod method, AsyncHttpExecutor asyncExecutor) {
+        this(method, null, asyncExecutor);
     }
 
     public HttpRequest(HttpMethod method, boolean persistentClient) {
-        params = new HashMap<>();
+        params = new LinkedHashMap<>();
         setHttpMethod(method);
         initExecutor(persistentClient);
     }
 
+    private HttpRequest(HttpMethod method, HttpExecutor executor, AsyncHttpExecutor asyncExecutor) {
+        params = new LinkedHashMap<>();
+        setHttpMethod(method);
+        this.executor = executor;
+        this.asyncExecutor = asyncExecutor;
+    }
+
+    /**
+     * Creates a request initialized from a template, sharing its encoded headers.
+     *
+     * @param template
+     * @param method
+     */
+    HttpRequest(HttpRequestTemplate template, HttpMethod method) {
+        this(method, template.getExecutor(), template.getAsyncExecutor());
+        this.baseUrl = template.getBaseUrl();
+        this.retryPolicy = template.getSharedRetryPolicy();
+        request.setHeaders(template.getSharedHeaders());
+        if (template.getRequestConfig() != null) {
+            request.setConfig(template.getRequestConfig());
+        }
+    }
+
     private void initExecutor(boolean persistentClient) {
         if (persistentClient) {
             executor = HttpExecutor.getInstance();
@@ -92,6 +146,13 @@ public class HttpRequest {
         }
     }
 
+    private HttpExecutor getExecutor() {
+        if (executor == null) {
+            executor = new HttpExecutor();
+        }
+        return executor;
+    }
+
     /**
      * Sets the http method for this request object
      *
@@ -186,6 +247,25 @@ public class HttpRequest {
         request.removeHeaders(headerKey);
     }
 
+    /**
+     * Function that sets the endpoint from an endpoint template such as
+     * /job/{jobName}/{buildNumber}/api/json, replacing the placeholders in order with the given
+     * values. Characters of the values that are not allowed in a URI path are percent-encoded,
+     * slashes are kept. The template is also set as endpoint template of the recorded metrics.
+     * Parsed templates are cached, so a constant template is only parsed once.
+     *
+     * @param endpointTemplate :: Endpoint template with placeholders in curly braces
+     * @param values           :: One value per placeholder
+     * @return HttpRequest
+     * @throws IllegalArgumentException if the number of values does not match the template
+     */
+    public HttpRequest setTemplatedEndpoint(String endpointTemplate, Object... values) {
+        this.endpoint = EndpointTemplate.of(endpointTemplate)
+                                        .expand(values);
+        this.endpointTemplate = endpointTemplate;
+        return this;
+    }
+
     /**
      * Function that adds multiple parameters to the http request.
      *
@@ -245,7 +325,10 @@ public class HttpRequest {
     }
 
     /**
-     * Function that sets the body of the http request with a chosen content type.
+     * Function that sets the body of the http request with a chosen content type. The file is
+     * streamed from disk when the request is performed, it is never read into memory, and its
+     * bytes are sent unchanged. On the asynchronous path the file is transferred to the socket
+     * with FileChannel.transferTo.
      *
      * @param file :: File input
      * @param type
@@ -253,16 +336,121 @@ public class HttpRequest {
      * @throws IOException
      */
     public HttpRequest setBody(File file, ContentType contentType) throws IOException {
-        String fileContent = "";
-        try {
-            fileContent = FileUtils.readFileToString(file, "UTF-8");
-        } catch (IOException e) {
+        if (!file.isFile() || !file.canRead()) {
             final String message = "Failed to read the Request body file:" + file.getPath()
-                    + ". Message: "
-                    + e.getMessage();
+                    + ". Message: File does not exist or is not readable.";
             throw new IOException(message);
         }
-        return setBody(fileContent, contentType);
+        ((HttpEntityEnclosingRequestBase) request).setEntity(new NFileEntity(file, contentType));
+        return this;
+    }
+
+    /**
+     * Function that sets the body of the http request to the content of a stream. The body is
+     * streamed to the server with chunked transfer encoding, it is never held in memory as a
+     * whole, and since the stream can only be read once the request can not be repeated.
+     *
+     * @param inputStream :: Stream input, closed when the body has been sent
+     * @param contentType
+     * @return HTTPRequest
+     */
+    public HttpRequest setBody(InputStream inputStream, ContentType contentType) {
+        ((HttpEntityEnclosingRequestBase) request).setEntity(
+                new InputStreamEntity(inputStream, -1, contentType));
+        return this;
+    }
+
+    /**
+     * Function that sets the body of the http request to the content of a file. The file is
+     * streamed to the server when the request is performed, see setBody(File, ContentType).
+     *
+     * @param path        :: Path of the file
+     * @param contentType
+     * @return HTTPRequest
+     * @throws IOException
+     */
+    public HttpRequest setBody(Path path, ContentType contentType) throws IOException {
+        return setBody(path.toFile(), contentType);
+    }
+
+    /**
+     * Function that sets the body of the http request to the output of a callback. The callback
+     * writes the body straight to the connection with chunked transfer encoding each time the
+     * request is sent, so the body is never held in memory as a whole.
+     *
+     * @param producer    :: Callback writing the body to the given stream
+     * @param contentType
+     * @return HTTPRequest
+     */
+    public HttpRequest setBody(ContentProducer producer, ContentType contentType) {
+        EntityTemplate entity = new EntityTemplate(producer);
+        entity.setContentType(contentType.toString());
+        entity.setChunked(true);
+        ((HttpEntityEnclosingRequestBase) request).setEntity(entity);
+        return this;
+    }
+
+    /**
+     * Function that returns true if the request can be performed again, that is if it has no body
+     * or if its body can be sent more than once.
+     *
+     * @return boolean
+     */
+    public boolean isRepeatable() {
+        if (request instanceof HttpEntityEnclosingRequestBase) {
+            HttpEntity entity = ((HttpEntityEnclosingRequestBase) request).getEntity();
+            return entity == null || entity.isRepeatable();
+        }
+
+        return true;
+    }
+
+    /**
+     * Function that sets the connect and socket timeouts of this request, overriding those of the
+     * executor while keeping its other settings. The timeouts are reset if the http method is
+     * changed.
+     *
+     * @param connectTimeoutMillis :: Timeout until a connection is established
+     * @param socketTimeoutMillis  :: Maximum period of inactivity between two data packets
+     * @return HttpRequest
+     */
+    public HttpRequest setTimeouts(int connectTimeoutMillis, int socketTimeoutMillis) {
+        request.setConfig(RequestConfig.copy(getBaseRequestConfig())
+                                       .setConnectTimeout(connectTimeoutMillis)
+                                       .setSocketTimeout(socketTimeoutMillis)
+                                       .build());
+        return this;
+    }
+
+    /**
+     * Returns the configuration a timeout override is applied to, so that the other settings of
+     * the executor, e.g. the connection request timeout, are kept.
+     *
+     * @return RequestConfig
+     */
+    private RequestConfig getBaseRequestConfig() {
+        if (request.getConfig() != null) {
+            return request.getConfig();
+        }
+        if (executor != null) {
+            return executor.getDefaultRequestConfig();
+        }
+        if (asyncExecutor != null) {
+            return asyncExecutor.getDefaultRequestConfig();
+        }
+
+        return RequestConfig.DEFAULT;
+    }
+
+    /**
+     * Function that sets the retry policy of this request, overriding the policy of the executor.
+     *
+     * @param retryPolicy :: Retry policy, or null to use the policy of the executor
+     * @return HttpRequest
+     */
+    public HttpRequest setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+        return this;
     }
 
     /**
@@ -291,53 +479,137 @@ public class HttpRequest {
      */
     public ResponseEntity performRequest()
             throws URISyntaxException, ClientProtocolException, IOException {
-        URIBuilder builder = createURIBuilder();
-        builder = addParametersToURIBuilder(builder);
-        request.setURI(builder.build());
-        return executor.executeRequest(request);
+        prepareURI();
+        return getExecutor().executeRequest(request, retryPolicy, endpointTemplate);
     }
 
     /**
-     * Function that returns the URI of the request.
+     * Function that executes the http request without reading the response body into memory. The
+     * returned entity must be closed, or its body stream read to the end and closed, to release
+     * the connection.
+     *
+     * @param maxBodySize :: Maximum number of body bytes that may be read, or
+     *                    StreamingResponseEntity.UNLIMITED_BODY_SIZE
+     * @return StreamingResponseEntity, the streamed response of the performed http request
+     * @throws URISyntaxException
+     * @throws IOException
+     * @throws ClientProtocolException
+     */
+    public StreamingResponseEntity performStreamingRequest(long maxBodySize)
+            throws URISyntaxException, ClientProtocolException, IOException {
+        prepareURI();
+        return getExecutor().executeStreamingRequest(request, maxBodySize, endpointTemplate);
+    }
+
+    /**
+     * Function that executes the http request without reading the response body into memory and
+     * without limiting the size of the body.
+     *
+     * @return StreamingResponseEntity, the streamed response of the performed http request
+     * @throws URISyntaxException
+     * @throws IOException
+     * @throws ClientProtocolException
+     */
+    public StreamingResponseEntity performStreamingRequest()
+            throws URISyntaxException, ClientProtocolException, IOException {
+        return performStreamingRequest(StreamingResponseEntity.UNLIMITED_BODY_SIZE);
+    }
+
+    /**
+     * Function that executes the http request without blocking the calling thread. The request is
+     * executed by the AsyncHttpExecutor of this request, or by the shared AsyncHttpExecutor if none
+     * was given. This object must not be modified until the returned future has completed.
+     *
+     * @return CompletableFuture with the ResponseEntity of the performed http request
+     */
+    public CompletableFuture<ResponseEntity> performRequestAsync() {
+        try {
+            prepareURI();
+        } catch (URISyntaxException e) {
+            CompletableFuture<ResponseEntity> failedFuture = new CompletableFuture<>();
+            failedFuture.completeExceptionally(e);
+            return failedFuture;
+        }
+
+        if (asyncExecutor == null) {
+            asyncExecutor = AsyncHttpExecutor.getInstance();
+        }
+        return asyncExecutor.executeRequestAsync(request, retryPolicy, endpointTemplate);
+    }
+
+    /**
+     * Function that returns the URI of the request, without parameters.
      *
      * @return URI
      * @throws URISyntaxException
      */
     public URI getURI() throws URISyntaxException {
-        URIBuilder builder = createURIBuilder();
-        return builder.build();
+        return createURI(false);
     }
 
     /**
-     * Function that adds parameters to the URIBuilder
+     * Function that sets the URI, including parameters, on the underlying request.
      *
-     * @param URIBuilder
-     * @return URIBuilder
+     * @throws URISyntaxException
+     */
+    private void prepareURI() throws URISyntaxException {
+        request.setURI(createURI(true));
+    }
+
+    /**
+     * Function that creates the URI from the baseUrl, endpoint and parameters. The URI is
+     * assembled as a String and parsed once, parameters are appended in order and encoded like
+     * URIBuilder.addParameter does.
+     *
+     * @param withParameters :: Whether to append the parameters
+     * @return URI
+     * @throws URISyntaxException
      */
-    private URIBuilder addParametersToURIBuilder(URIBuilder builder) {
-        if (!params.isEmpty()) {
-            for (Map.Entry<String, String> entry : params.entrySet()) {
-                builder.addParameter(entry.getKey(), entry.getValue());
+    private URI createURI(boolean withParameters) throws URISyntaxException {
+        boolean hasEndpoint = !StringUtils.isEmpty(endpoint);
+        boolean appendParameters = withParameters && !params.isEmpty();
+        if (!hasEndpoint && !appendParameters) {
+            return new URI(baseUrl);
+        }
+
+        StringBuilder uri = new StringBuilder(64 + (hasEndpoint ? endpoint.length() : 0));
+        uri.append(baseUrl);
+        if (hasEndpoint) {
+            if (!endpoint.startsWith("/")) {
+                uri.append('/');
             }
+            uri.append(endpoint);
+        }
+
+        if (appendParameters) {
+            appendParameters(uri);
         }
 
-        return builder;
+        return new URI(uri.toString());
     }
 
     /**
-     * Function that creates the URI from the baseUrl and endpoint
+     * Function that appends the parameters as query to the URI, after the query of the endpoint if
+     * it has one.
      *
-     * @param
-     * @return URIBuilder
-     * @throws URISyntaxException
+     * @param uri
      */
-    private URIBuilder createURIBuilder() throws URISyntaxException {
-        if (!StringUtils.isEmpty(endpoint) && endpoint.startsWith("/")) {
-            return new URIBuilder(baseUrl + endpoint);
-        } else if (!StringUtils.isEmpty(endpoint)) {
-            return new URIBuilder(baseUrl + "/" + endpoint);
-        } else {
-            return new URIBuilder(baseUrl);
+    private void appendParameters(StringBuilder uri) {
+        char lastChar = uri.charAt(uri.length() - 1);
+        boolean hasQuery = uri.indexOf("?") >= 0;
+        boolean needsSeparator = !hasQuery || (lastChar != '?' && lastChar != '&');
+        char separator = hasQuery ? '&' : '?';
+        for (Map.Entry<String, String> entry : params.entrySet()) {
+            if (needsSeparator) {
+                uri.append(separator);
+            }
+            UriEncoder.appendFormEncoded(uri, entry.getKey());
+            if (entry.getValue() != null) {
+                uri.append('=');
+                UriEncoder.appendFormEncoded(uri, entry.getValue());
+            }
+            separator = '&';
+            needsSeparator = true;
         }
     }
 
@@ -0,0 +1,302 @@
+/*
+   Copyright 2019 Ericsson AB.
+   For a full list of individual contributors, please see the commit history.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.ericsson.eiffelcommons.http;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.message.BasicHeader;
+
+import com.ericsson.eiffelcommons.http.HttpRequest.HttpMethod;
+
+/**
+ * Immutable configuration shared by all requests towards a service: base url, headers such as
+ * Authorization, executor, timeouts and retry policy. The base url is validated and the headers
+ * are encoded once when the template is built, every request created from the template reuses
+ * them, so a template can be shared between any number of threads. The retry policy is copied
+ * when the template is built, later changes to the policy passed to the builder have no effect.
+ *
+ * Without an executor of its own a template uses HttpExecutor.getInstance(), an unpooled client
+ * allowing only 2 concurrent connections per host, shared with every other user of that instance.
+ * Templates used for concurrent requests should be given a pooled executor, e.g. from
+ * HttpExecutorRegistry.
+ *
+ * Per-call state such as endpoint, parameters and body is set on the HttpRequest returned by
+ * newRequest, which is not thread safe and should be used for a single call.
+ *
+ * @author Ericsson 2019
+ *
+ */
+public final class HttpRequestTemplate {
+
+    private final String baseUrl;
+    private final URI baseUri;
+    private final Header[] headers;
+    private final HttpExecutor executor;
+    private final AsyncHttpExecutor asyncExecutor;
+    private final RequestConfig requestConfig;
+    private final RetryPolicy retryPolicy;
+
+    private HttpRequestTemplate(Builder builder) {
+        this.baseUrl = builder.baseUrl;
+        this.baseUri = URI.create(builder.baseUrl);
+        this.headers = builder.headers.toArray(new Header[0]);
+        this.executor = builder.executor != null ? builder.executor : HttpExecutor.getInstance();
+        this.asyncExecutor = builder.asyncExecutor;
+        this.requestConfig = builder.createRequestConfig(executor);
+        this.retryPolicy = builder.retryPolicy != null ? builder.retryPolicy.copy() : null;
+    }
+
+    /**
+     * Returns a builder of a template.
+     *
+     * @return Builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Creates a request initialized from this template. Only the list of headers of the request is
+     * allocated, the header objects themselves are shared with the template.
+     *
+     * @param method
+     * @return HttpRequest
+     */
+    public HttpRequest newRequest(HttpMethod method) {
+        return new HttpRequest(this, method);
+    }
+
+    /**
+     * Returns a builder initialized with the configuration of this template, to derive a template
+     * that differs from this one, e.g. by an additional header.
+     *
+     * @return Builder
+     */
+    public Builder toBuilder() {
+        Builder builder = new Builder();
+        builder.baseUrl = baseUrl;
+        builder.headers.addAll(Arrays.asList(headers));
+        builder.executor = executor;
+        builder.asyncExecutor = asyncExecutor;
+        if (requestConfig != null) {
+            builder.connectTimeoutMillis = requestConfig.getConnectTimeout();
+            builder.socketTimeoutMillis = requestConfig.getSocketTimeout();
+        }
+        builder.retryPolicy = retryPolicy;
+        return builder;
+    }
+
+    /**
+     * Gets the base url, without trailing slash, e.g. http://localhost:8080
+     *
+     * @return String
+     */
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public URI getBaseUri() {
+        return baseUri;
+    }
+
+    public List<Header> getHeaders() {
+        return Collections.unmodifiableList(Arrays.asList(headers));
+    }
+
+    public HttpExecutor getExecutor() {
+        return executor;
+    }
+
+    public AsyncHttpExecutor getAsyncExecutor() {
+        return asyncExecutor;
+    }
+
+    /**
+     * Returns a copy of the retry policy of the requests, or null if the policy of the executor
+     * is used.
+     *
+     * @return RetryPolicy
+     */
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy != null ? retryPolicy.copy() : null;
+    }
+
+    /**
+     * Returns the header array shared by the requests of this template, which must not be
+     * modified.
+     *
+     * @return Header[]
+     */
+    Header[] getSharedHeaders() {
+        return headers;
+    }
+
+    RequestConfig getRequestConfig() {
+        return requestConfig;
+    }
+
+    /**
+     * Returns the retry policy shared by the requests of this template, which must not be
+     * modified.
+     *
+     * @return RetryPolicy
+     */
+    RetryPolicy getSharedRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Builder of a HttpRequestTemplate. A builder is not thread safe, the templates it builds are.
+     */
+    public static final class Builder {
+
+        private String baseUrl;
+        private final List<Header> headers = new ArrayList<>();
+        private HttpExecutor executor;
+        private AsyncHttpExecutor asyncExecutor;
+        private Integer connectTimeoutMillis;
+        private Integer socketTimeoutMillis;
+        private RetryPolicy retryPolicy;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the base url(not including endpoint) for example: http://localhost:8080
+         *
+         * @param baseUrl
+         * @return Builder
+         */
+        public Builder setBaseUrl(String baseUrl) {
+            this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1)
+                    : baseUrl;
+            return this;
+        }
+
+        /**
+         * Adds a header sent with every request of the template.
+         *
+         * @param key   :: the key of the header
+         * @param value :: the value of the header
+         * @return Builder
+         */
+        public Builder addHeader(String key, String value) {
+            headers.add(new BasicHeader(key, value));
+            return this;
+        }
+
+        /**
+         * Sets the Authorization header sent with every request of the template, replacing any
+         * earlier Authorization header.
+         *
+         * @param username
+         * @param password
+         * @return Builder
+         */
+        public Builder setBasicAuth(String username, String password) {
+            String auth = username + ":" + password;
+            String encodedAuth = Base64.getEncoder()
+                                       .encodeToString(auth.getBytes(StandardCharsets.UTF_8));
+            headers.removeIf(header -> HttpHeaders.AUTHORIZATION.equalsIgnoreCase(header.getName()));
+            return addHeader(HttpHeaders.AUTHORIZATION, "Basic " + encodedAuth);
+        }
+
+        /**
+         * Sets the executor of synchronous requests, by default the shared HttpExecutor, which is
+         * unpooled and allows only 2 concurrent connections per host.
+         *
+         * @param executor
+         * @return Builder
+         */
+        public Builder setExecutor(HttpExecutor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Sets the executor of asynchronous requests, by default the shared AsyncHttpExecutor.
+         *
+         * @param asyncExecutor
+         * @return Builder
+         */
+        public Builder setAsyncExecutor(AsyncHttpExecutor asyncExecutor) {
+            this.asyncExecutor = asyncExecutor;
+            return this;
+        }
+
+        /**
+         * Sets the connect and socket timeouts of the requests, overriding those of the executor
+         * while keeping its other settings.
+         *
+         * @param connectTimeoutMillis :: Timeout until a connection is established
+         * @param socketTimeoutMillis  :: Maximum period of inactivity between two data packets
+         * @return Builder
+         */
+        public Builder setTimeouts(int connectTimeoutMillis, int socketTimeoutMillis) {
+            this.connectTimeoutMillis = connectTimeoutMillis;
+            this.socketTimeoutMillis = socketTimeoutMillis;
+            return this;
+        }
+
+        /**
+         * Sets the retry policy of the requests, overriding the policy of the executor. The policy
+         * is copied by build().
+         *
+         * @param retryPolicy :: Retry policy, or null to use the policy of the executor
+         * @return Builder
+         */
+        public Builder setRetryPolicy(RetryPolicy retryPolicy) {
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
+        /**
+         * Builds the template.
+         *
+         * @return HttpRequestTemplate
+         * @throws IllegalStateException    if no base url is set
+         * @throws IllegalArgumentException if the base url is not a valid URI
+         */
+        public HttpRequestTemplate build() {
+            if (baseUrl == null) {
+                throw new IllegalStateException("The base url of the template is not set.");
+            }
+
+            return new HttpRequestTemplate(this);
+        }
+
+        private RequestConfig createRequestConfig(HttpExecutor executor) {
+            if (connectTimeoutMillis == null) {
+                return null;
+            }
+
+            return RequestConfig.copy(executor.getDefaultRequestConfig())
+                                .setConnectTimeout(connectTimeoutMillis)
+                                .setSocketTimeout(socketTimeoutMillis)
+                                .build();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+   Copyright 2019 Ericsson AB.
+   For a full list of individual contributors, please see the commit history.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.ericsson.eiffelcommons.http;
+
+import java.util.function.Supplier;
+
+import org.apache.http.pool.PoolStats;
+
+/**
+ * Receives the measurements of the HTTP executors and of JenkinsManager, to be forwarded to a
+ * metrics library such as Micrometer. Every method has an empty default implementation, so an
+ * implementation only needs to override what it records.
+ *
+ * Methods are called on the threads performing the requests, including I/O reactor threads of an
+ * AsyncHttpExecutor, and must therefore be thread safe and must not block.
+ *
+ * With the default NO_OP recorder nothing is measured and no objects are allocated.
+ *
+ * @author Ericsson 2019
+ *
+ */
+public interface MetricsRecorder {
+
+    /**
+     * Recorder that records nothing, used when no recorder is set.
+     */
+    MetricsRecorder NO_OP = new MetricsRecorder() {
+    };
+
+    /**
+     * Records a request that was answered by the server.
+     *
+     * @param host           :: Target host, e.g. http://localhost:8080
+     * @param method         :: Request method, e.g. GET
+     * @param endpoint       :: Endpoint template of the request, e.g. /job/{jobName}/build, or the
+     *                       request path if the request has no template
+     * @param statusCode     :: Response status code
+     * @param durationNanos  :: Time from sending the request until the response was read
+     * @param bytesSent      :: Length of the request body, 0 if there is none, -1 if unknown
+     * @param bytesReceived  :: Length of the response body, -1 if it was not read
+     */
+    default void recordRequest(String host, String method, String endpoint, int statusCode,
+            long durationNanos, long bytesSent, long bytesReceived) {
+    }
+
+    /**
+     * Records a request that failed without a response, or was rejected before being sent.
+     *
+     * @param host          :: Target host, e.g. http://localhost:8080
+     * @param method        :: Request method, e.g. GET
+     * @param endpoint      :: Endpoint template of the request, or the request path
+     * @param failure       :: The exception the request failed with
+     * @param durationNanos :: Time from sending the request until it failed
+     */
+    default void recordRequestFailure(String host, String method, String endpoint,
+            Throwable failure, long durationNanos) {
+    }
+
+    /**
+     * Records the wait for a connection from the pool of a pooled HttpExecutor.
+     *
+     * @param host      :: Target host, e.g. http://localhost:8080
+     * @param waitNanos :: Time waited for the connection
+     * @param leased    :: False if no connection was leased, e.g. because of a timeout
+     */
+    default void recordConnectionLease(String host, long waitNanos, boolean leased) {
+    }
+
+    /**
+     * Records a JenkinsManager operation, e.g. createJob, which may consist of several requests.
+     *
+     * @param operation     :: Name of the operation
+     * @param durationNanos :: Duration of the whole operation
+     * @param success       :: False if the operation failed
+     */
+    default void recordOperation(String operation, long durationNanos, boolean success) {
+    }
+
+    /**
+     * Called when the recorder is set on a pooled HttpExecutor, so that gauges of the connection
+     * pool can be registered.
+     *
+     * @param poolStats :: Returns the current statistics of the pool
+     */
+    default void bindConnectionPool(Supplier<PoolStats> poolStats) {
+    }
+}
@@ -0,0 +1,106 @@
+/*
+   Copyright 2019 Ericsson AB.
+   For a full list of individual contributors, please see the commit history.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.ericsson.eiffelcommons.http;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.HttpEntityWrapper;
+
+/**
+ * Measurement of a single request attempt, only created when a MetricsRecorder other than NO_OP
+ * is set.
+ */
+class RequestMetrics {
+
+    private final MetricsRecorder recorder;
+    private final String host;
+    private final String method;
+    private final String endpoint;
+    private final long bytesSent;
+    private final long startTime = System.nanoTime();
+    private long bytesReceived = -1;
+
+    RequestMetrics(MetricsRecorder recorder, HttpRequestBase request, String endpointTemplate) {
+        this.recorder = recorder;
+        URI uri = request.getURI();
+        this.host = uri.getScheme() + "://" + uri.getRawAuthority();
+        this.method = request.getMethod();
+        this.endpoint = endpointTemplate != null ? endpointTemplate : uri.getRawPath();
+        this.bytesSent = getBytesSent(request);
+    }
+
+    /**
+     * Counts the body bytes of the response as they are read.
+     *
+     * @param httpResponse
+     */
+    void countResponseBody(HttpResponse httpResponse) {
+        HttpEntity entity = httpResponse.getEntity();
+        bytesReceived = 0;
+        if (entity != null) {
+            httpResponse.setEntity(new HttpEntityWrapper(entity) {
+                @Override
+                public InputStream getContent() throws IOException {
+                    return new FilterInputStream(super.getContent()) {
+                        @Override
+                        public int read() throws IOException {
+                            int value = super.read();
+                            if (value != -1) {
+                                bytesReceived++;
+                            }
+                            return value;
+                        }
+
+                        @Override
+                        public int read(byte[] buffer, int offset, int length) throws IOException {
+                            int count = super.read(buffer, offset, length);
+                            if (count > 0) {
+                                bytesReceived += count;
+                            }
+                            return count;
+                        }
+                    };
+                }
+            });
+        }
+    }
+
+    void recordResponse(int statusCode) {
+        recorder.recordRequest(host, method, endpoint, statusCode, System.nanoTime() - startTime,
+                bytesSent, bytesReceived);
+    }
+
+    void recordFailure(Throwable failure) {
+        recorder.recordRequestFailure(host, method, endpoint, failure,
+                System.nanoTime() - startTime);
+    }
+
+    private static long getBytesSent(HttpRequestBase request) {
+        if (request instanceof HttpEntityEnclosingRequest) {
+            HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+            return entity != null ? entity.getContentLength() : 0;
+        }
+        return 0;
+    }
+}
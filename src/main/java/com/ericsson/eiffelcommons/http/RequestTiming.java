@@ -0,0 +1,199 @@
+/*
+   Copyright 2019 Ericsson AB.
+   For a full list of individual contributors, please see the commit history.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.ericsson.eiffelcommons.http;
+
+/**
+ * Phase timings of a single attempt of a request, in nanoseconds. A phase that did not take place,
+ * such as connect for a request sent over a reused connection, or that cannot be measured by the
+ * executor, has the value -1.
+ *
+ * A pooled HttpExecutor measures all phases. The default HttpExecutor measures neither the
+ * connection lease nor the connect of plain HTTP connections, an executor created with a client of
+ * its own only the body read, and an AsyncHttpExecutor only the total time. When a request is
+ * redirected the phases of all exchanges are summed, except time to first byte which is that of
+ * the first exchange.
+ *
+ * @author Ericsson 2019
+ *
+ */
+public class RequestTiming {
+
+    private static final ThreadLocal<RequestTiming> CURRENT = new ThreadLocal<>();
+
+    private final long startTime = System.nanoTime();
+    private long leaseNanos = -1;
+    private long dnsNanos = -1;
+    private long connectNanos = -1;
+    private long tlsHandshakeNanos = -1;
+    private long requestSentTime = -1;
+    private long timeToFirstByteNanos = -1;
+    private long bodyReadNanos = -1;
+    private long totalNanos = -1;
+
+    RequestTiming() {
+    }
+
+    /**
+     * Time waited for a connection from the pool.
+     *
+     * @return long
+     */
+    public long getLeaseNanos() {
+        return leaseNanos;
+    }
+
+    /**
+     * Time spent resolving the host name of a new connection.
+     *
+     * @return long
+     */
+    public long getDnsNanos() {
+        return dnsNanos;
+    }
+
+    /**
+     * Time spent establishing the TCP connection of a new connection, excluding DNS and TLS.
+     *
+     * @return long
+     */
+    public long getConnectNanos() {
+        return connectNanos;
+    }
+
+    /**
+     * Time spent in the TLS handshake of a new connection.
+     *
+     * @return long
+     */
+    public long getTlsHandshakeNanos() {
+        return tlsHandshakeNanos;
+    }
+
+    /**
+     * Time from starting to send the request until the response headers were received.
+     *
+     * @return long
+     */
+    public long getTimeToFirstByteNanos() {
+        return timeToFirstByteNanos;
+    }
+
+    /**
+     * Time spent reading the response body after the headers were received.
+     *
+     * @return long
+     */
+    public long getBodyReadNanos() {
+        return bodyReadNanos;
+    }
+
+    /**
+     * Time of the whole attempt, including the phases above and time waiting for a bulkhead.
+     *
+     * @return long
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * Returns true if a new connection was opened for the attempt, false if a pooled connection
+     * was reused or if connects are not measured by the executor.
+     *
+     * @return boolean
+     */
+    public boolean isNewConnection() {
+        return connectNanos >= 0;
+    }
+
+    @Override
+    public String toString() {
+        return "RequestTiming [leaseNanos=" + leaseNanos + ", dnsNanos=" + dnsNanos
+                + ", connectNanos=" + connectNanos + ", tlsHandshakeNanos=" + tlsHandshakeNanos
+                + ", timeToFirstByteNanos=" + timeToFirstByteNanos + ", bodyReadNanos="
+                + bodyReadNanos + ", totalNanos=" + totalNanos + "]";
+    }
+
+    /**
+     * Starts the timing of an attempt executed on the calling thread, so that the connection
+     * hooks of the client can find it.
+     *
+     * @return RequestTiming
+     */
+    static RequestTiming start() {
+        RequestTiming timing = new RequestTiming();
+        CURRENT.set(timing);
+        return timing;
+    }
+
+    /**
+     * Returns the timing of the attempt executed on the calling thread, or null if it is not
+     * traced.
+     *
+     * @return RequestTiming
+     */
+    static RequestTiming current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Detaches the timing from the calling thread.
+     */
+    static void clear() {
+        CURRENT.remove();
+    }
+
+    void addLease(long nanos) {
+        leaseNanos = add(leaseNanos, nanos);
+    }
+
+    void addDns(long nanos) {
+        dnsNanos = add(dnsNanos, nanos);
+    }
+
+    void addConnect(long nanos) {
+        connectNanos = add(connectNanos, nanos);
+    }
+
+    void addTlsHandshake(long nanos) {
+        tlsHandshakeNanos = add(tlsHandshakeNanos, nanos);
+    }
+
+    void addBodyRead(long nanos) {
+        bodyReadNanos = add(bodyReadNanos, nanos);
+    }
+
+    void requestSent(long sendStartTime) {
+        if (requestSentTime < 0) {
+            requestSentTime = sendStartTime;
+        }
+    }
+
+    void responseReceived() {
+        if (requestSentTime >= 0 && timeToFirstByteNanos < 0) {
+            timeToFirstByteNanos = System.nanoTime() - requestSentTime;
+        }
+    }
+
+    void finish() {
+        totalNanos = System.nanoTime() - startTime;
+    }
+
+    private static long add(long total, long nanos) {
+        return total < 0 ? nanos : total + nanos;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+   Copyright 2019 Ericsson AB.
+   For a full list of individual contributors, please see the commit history.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.ericsson.eiffelcommons.http;
+
+import org.apache.http.client.methods.HttpRequestBase;
+
+/**
+ * Interceptor hooks of a HttpExecutor, called around every attempt of a request. A tracer may add
+ * trace context headers to the outgoing request, e.g. request.setHeader("traceparent", ...), and
+ * receives the phase timings of the attempt when it completes. Every method has an empty default
+ * implementation.
+ *
+ * Methods are called on the threads performing the requests, including I/O reactor threads of an
+ * AsyncHttpExecutor, and must therefore be thread safe and must not block.
+ *
+ * With the default NO_OP tracer no timings are taken and no objects are allocated.
+ *
+ * @author Ericsson 2019
+ *
+ */
+public interface RequestTracer {
+
+    /**
+     * Tracer that does nothing, used when no tracer is set.
+     */
+    RequestTracer NO_OP = new RequestTracer() {
+    };
+
+    /**
+     * Called before an attempt of the request is sent. Headers should be added with setHeader, so
+     * that a retried request does not carry the headers of earlier attempts.
+     *
+     * @param request :: The request about to be sent
+     */
+    default void onRequest(HttpRequestBase request) {
+    }
+
+    /**
+     * Called when an attempt was answered by the server and its response has been read.
+     *
+     * @param request    :: The request that was sent
+     * @param statusCode :: Response status code
+     * @param timing     :: Phase timings of the attempt
+     */
+    default void onResponse(HttpRequestBase request, int statusCode, RequestTiming timing) {
+    }
+
+    /**
+     * Called when an attempt failed without a response, or was rejected before being sent.
+     *
+     * @param request :: The request that failed
+     * @param failure :: The exception the attempt failed with
+     * @param timing  :: Phase timings of the attempt, up to the failure
+     */
+    default void onFailure(HttpRequestBase request, Throwable failure, RequestTiming timing) {
+    }
+}
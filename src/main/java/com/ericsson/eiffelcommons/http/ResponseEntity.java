@@ -29,6 +29,7 @@ import lombok.Getter;
 public class ResponseEntity {
 
     private int statusCode;
+    private String reasonPhrase = "";
     private String body = "";
     private Header[] headers;
 
@@ -42,6 +43,11 @@ public class ResponseEntity {
     public ResponseEntity(HttpResponse httpResponse) throws ParseException, IOException {
         this.statusCode = httpResponse.getStatusLine()
                                       .getStatusCode();
+        if (httpResponse.getStatusLine()
+                        .getReasonPhrase() != null) {
+            this.reasonPhrase = httpResponse.getStatusLine()
+                                            .getReasonPhrase();
+        }
         if(httpResponse.getEntity() != null) {
             this.body = EntityUtils.toString(httpResponse.getEntity(), "utf-8");
         }
@@ -0,0 +1,153 @@
+/*
+   Copyright 2019 Ericsson AB.
+   For a full list of individual contributors, please see the commit history.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.ericsson.eiffelcommons.http;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.apache.http.client.methods.HttpRequestBase;
+
+/**
+ * Runs the attempts of a request according to a RetryPolicy.
+ *
+ * Blocking requests wait for the next attempt on the calling thread, which is waiting for the
+ * response anyway. Asynchronous retries are scheduled on a scheduler shared by all executors, so
+ * no thread is blocked between attempts.
+ */
+final class RetryExecution {
+
+    /**
+     * Sends a single attempt of a blocking request.
+     */
+    interface Attempt {
+        ResponseEntity execute() throws IOException;
+    }
+
+    private RetryExecution() {
+    }
+
+    /**
+     * Executes a blocking request, retrying it as allowed by the policy. The response of the last
+     * attempt is returned even if its status code is retryable.
+     *
+     * @param request
+     * @param policy
+     * @param attempt
+     * @return ResponseEntity
+     * @throws IOException
+     *             of the last attempt, or InterruptedIOException if interrupted while waiting
+     */
+    static ResponseEntity execute(HttpRequestBase request, RetryPolicy policy, Attempt attempt)
+            throws IOException {
+        int attemptCount = 0;
+        while (true) {
+            attemptCount++;
+            ResponseEntity response;
+            try {
+                response = attempt.execute();
+            } catch (IOException e) {
+                if (!policy.shouldRetry(request, e, attemptCount)) {
+                    throw e;
+                }
+                sleep(policy.getDelayMillis(attemptCount, null));
+                continue;
+            }
+
+            if (!policy.shouldRetry(request, response, attemptCount)) {
+                return response;
+            }
+            sleep(policy.getDelayMillis(attemptCount, response));
+        }
+    }
+
+    /**
+     * Executes an asynchronous request, retrying it as allowed by the policy. Cancelling the
+     * returned future stops further attempts.
+     *
+     * @param request
+     * @param policy
+     * @param attempt :: Sends a single attempt
+     * @return CompletableFuture with the response of the last attempt
+     */
+    static CompletableFuture<ResponseEntity> executeAsync(HttpRequestBase request,
+            RetryPolicy policy, Supplier<CompletableFuture<ResponseEntity>> attempt) {
+        CompletableFuture<ResponseEntity> result = new CompletableFuture<>();
+        executeAttempt(request, policy, attempt, result, 1);
+        return result;
+    }
+
+    private static void executeAttempt(HttpRequestBase request, RetryPolicy policy,
+            Supplier<CompletableFuture<ResponseEntity>> attempt,
+            CompletableFuture<ResponseEntity> result, int attemptCount) {
+        if (result.isDone()) {
+            return;
+        }
+
+        CompletableFuture<ResponseEntity> attemptFuture = attempt.get();
+        result.whenComplete((response, throwable) -> {
+            if (result.isCancelled()) {
+                attemptFuture.cancel(false);
+            }
+        });
+        attemptFuture.whenComplete((response, throwable) -> {
+            long delay;
+            if (throwable != null) {
+                Throwable cause = throwable instanceof CompletionException
+                        && throwable.getCause() != null ? throwable.getCause() : throwable;
+                if (!policy.shouldRetry(request, cause, attemptCount)) {
+                    result.completeExceptionally(cause);
+                    return;
+                }
+                delay = policy.getDelayMillis(attemptCount, null);
+            } else if (policy.shouldRetry(request, response, attemptCount)) {
+                delay = policy.getDelayMillis(attemptCount, response);
+            } else {
+                result.complete(response);
+                return;
+            }
+
+            SchedulerHolder.SCHEDULER.schedule(
+                    () -> executeAttempt(request, policy, attempt, result, attemptCount + 1),
+                    delay, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    private static void sleep(long delayMillis) throws InterruptedIOException {
+        try {
+            Thread.sleep(delayMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                  .interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry the request.");
+        }
+    }
+
+    private static class SchedulerHolder {
+        private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+                runnable -> {
+                    Thread thread = new Thread(runnable, "http-retry-scheduler");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+}
@@ -0,0 +1,260 @@
+/*
+   Copyright 2019 Ericsson AB.
+   For a full list of individual contributors, please see the commit history.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.ericsson.eiffelcommons.http;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.HttpHostConnectException;
+
+import com.ericsson.eiffelcommons.http.HttpRequest.HttpMethod;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+/**
+ * Configuration of how a request is retried when it fails with a transient error, e.g. a 502 or
+ * 503 from a restarting jenkins or a connection reset. A policy can be set on an HttpExecutor or
+ * an AsyncHttpExecutor for all requests, or on a single HttpRequest. All durations are given in
+ * milliseconds.
+ *
+ * Requests with a method that is not idempotent are only retried when they failed to connect, so
+ * the request cannot have reached the server, unless retryNonIdempotent is set. Requests with a
+ * body that cannot be repeated, e.g. a stream, are never retried.
+ *
+ * @author Ericsson 2019
+ *
+ */
+@Getter
+@Setter
+@Accessors(chain = true)
+public class RetryPolicy {
+
+    /**
+     * Maximum number of attempts, including the first one.
+     */
+    private int maxAttempts = 3;
+
+    /**
+     * Delay before the first retry, and the base of the backoff between retries.
+     */
+    private long initialBackoffMillis = 200;
+
+    /**
+     * Upper limit of the delay between two attempts, not counting Retry-After.
+     */
+    private long maxBackoffMillis = 10000;
+
+    /**
+     * Factor the delay is multiplied with after each retry.
+     */
+    private double backoffMultiplier = 2.0;
+
+    /**
+     * Fraction of the delay that is randomly added or removed, so that many clients failing at
+     * the same time do not retry in lockstep.
+     */
+    private double jitter = 0.2;
+
+    /**
+     * Response status codes that are retried.
+     */
+    private Set<Integer> retryableStatusCodes = new HashSet<>(Arrays.asList(429, 502, 503, 504));
+
+    /**
+     * Exceptions that are retried, subclasses included.
+     */
+    private List<Class<? extends IOException>> retryableExceptions = new ArrayList<>(
+            Arrays.asList(NoHttpResponseException.class, SocketException.class,
+                    ConnectTimeoutException.class));
+
+    /**
+     * Methods that may be sent again after the server may already have received them.
+     */
+    private Set<HttpMethod> idempotentMethods = EnumSet.of(HttpMethod.GET, HttpMethod.PUT,
+            HttpMethod.DELETE);
+
+    /**
+     * If true, requests with any method are retried on retryable status codes and exceptions.
+     */
+    private boolean retryNonIdempotent = false;
+
+    /**
+     * If true, the Retry-After header of a retryable response is honoured when it asks for a
+     * longer delay than the backoff.
+     */
+    private boolean honorRetryAfter = true;
+
+    /**
+     * Longest Retry-After that is waited for, a response asking for more is not retried.
+     */
+    private long maxRetryAfterMillis = 60000;
+
+    /**
+     * Creates a policy that sends every request exactly once.
+     *
+     * @return RetryPolicy
+     */
+    public static RetryPolicy noRetry() {
+        return new RetryPolicy().setMaxAttempts(1);
+    }
+
+    /**
+     * Creates a copy of this policy that does not share any mutable state with it.
+     *
+     * @return RetryPolicy
+     */
+    RetryPolicy copy() {
+        RetryPolicy copy = new RetryPolicy();
+        copy.maxAttempts = maxAttempts;
+        copy.initialBackoffMillis = initialBackoffMillis;
+        copy.maxBackoffMillis = maxBackoffMillis;
+        copy.backoffMultiplier = backoffMultiplier;
+        copy.jitter = jitter;
+        copy.retryableStatusCodes = new HashSet<>(retryableStatusCodes);
+        copy.retryableExceptions = new ArrayList<>(retryableExceptions);
+        copy.idempotentMethods = idempotentMethods.isEmpty() ? EnumSet.noneOf(HttpMethod.class)
+                : EnumSet.copyOf(idempotentMethods);
+        copy.retryNonIdempotent = retryNonIdempotent;
+        copy.honorRetryAfter = honorRetryAfter;
+        copy.maxRetryAfterMillis = maxRetryAfterMillis;
+        return copy;
+    }
+
+    /**
+     * Checks if a request that was answered with the given response should be sent again.
+     *
+     * @param request
+     * @param response
+     * @param attempt  :: Number of attempts made so far
+     * @return boolean
+     */
+    boolean shouldRetry(HttpRequestBase request, ResponseEntity response, int attempt) {
+        return attempt < maxAttempts && retryableStatusCodes.contains(response.getStatusCode())
+                && isRepeatable(request) && (retryNonIdempotent || isIdempotent(request))
+                && getRetryAfterMillis(response) <= maxRetryAfterMillis;
+    }
+
+    /**
+     * Checks if a request that failed with the given exception should be sent again.
+     *
+     * @param request
+     * @param exception
+     * @param attempt   :: Number of attempts made so far
+     * @return boolean
+     */
+    boolean shouldRetry(HttpRequestBase request, Throwable exception, int attempt) {
+        if (attempt >= maxAttempts || !isRepeatable(request) || !isRetryable(exception)) {
+            return false;
+        }
+
+        return retryNonIdempotent || isIdempotent(request) || isConnectFailure(exception);
+    }
+
+    /**
+     * Returns the delay before the next attempt, the larger of the jittered backoff and the
+     * Retry-After of the response.
+     *
+     * @param attempt  :: Number of attempts made so far
+     * @param response :: Response of the last attempt, or null if it failed with an exception
+     * @return delay in milliseconds
+     */
+    long getDelayMillis(int attempt, ResponseEntity response) {
+        double delay = initialBackoffMillis * Math.pow(backoffMultiplier, attempt - 1);
+        delay = Math.min(delay, maxBackoffMillis);
+        if (jitter > 0) {
+            delay *= 1 + ThreadLocalRandom.current()
+                                          .nextDouble(-jitter, jitter);
+        }
+
+        long retryAfter = response != null ? getRetryAfterMillis(response) : 0;
+        return Math.max(Math.max(0, (long) delay), retryAfter);
+    }
+
+    private long getRetryAfterMillis(ResponseEntity response) {
+        if (!honorRetryAfter || response.getHeaders() == null) {
+            return 0;
+        }
+
+        String retryAfter = Arrays.stream(response.getHeaders())
+                                  .filter(header -> "Retry-After".equalsIgnoreCase(
+                                            header.getName()))
+                                  .map(header -> header.getValue()
+                                                       .trim())
+                                  .findFirst()
+                                  .orElse(null);
+        if (retryAfter == null || retryAfter.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            return Math.max(0, Long.parseLong(retryAfter) * 1000);
+        } catch (NumberFormatException e) {
+            Date retryDate = DateUtils.parseDate(retryAfter);
+            return retryDate != null ? Math.max(0, retryDate.getTime() - System.currentTimeMillis())
+                    : 0;
+        }
+    }
+
+    private boolean isRetryable(Throwable exception) {
+        for (Class<? extends IOException> retryableException : retryableExceptions) {
+            if (retryableException.isInstance(exception)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isConnectFailure(Throwable exception) {
+        return exception instanceof ConnectException || exception instanceof HttpHostConnectException
+                || exception instanceof ConnectTimeoutException;
+    }
+
+    private boolean isIdempotent(HttpRequestBase request) {
+        for (HttpMethod method : idempotentMethods) {
+            if (method.name()
+                      .equals(request.getMethod())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isRepeatable(HttpRequestBase request) {
+        if (request instanceof HttpEntityEnclosingRequest) {
+            HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+            return entity == null || entity.isRepeatable();
+        }
+        return true;
+    }
+}
@@ -0,0 +1,269 @@
+/*
+   Copyright 2019 Ericsson AB.
+   For a full list of individual contributors, please see the commit history.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.ericsson.eiffelcommons.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.entity.ContentType;
+
+/**
+ * A ResponseEntity that keeps the response body on the connection instead of reading it into a
+ * String. The body can be consumed as a stream or channel, or materialized lazily with getBody().
+ *
+ * The connection is held until the body stream is closed, or until close() is called on this
+ * entity, so it should always be used in a try-with-resources block. The bulkhead slot of the
+ * request is held just as long, and the outcome of the request is recorded by the circuit breaker
+ * when the body has been read or the entity is closed.
+ *
+ * @author Ericsson 2019
+ *
+ */
+public class StreamingResponseEntity extends ResponseEntity implements Closeable {
+
+    /**
+     * Max body size value meaning that the size of the body is not limited.
+     */
+    public static final long UNLIMITED_BODY_SIZE = -1;
+
+    private final CloseableHttpResponse httpResponse;
+    private final long maxBodySize;
+    private final HostGuards.Permit permit;
+    private InputStream bodyStream;
+    private String materializedBody;
+
+    /**
+     * Creates a StreamingResponseEntity from a HttpResponse whose body has not been consumed.
+     *
+     * @param httpResponse
+     * @param maxBodySize
+     *            :: Maximum number of body bytes that may be read, or UNLIMITED_BODY_SIZE
+     */
+    public StreamingResponseEntity(CloseableHttpResponse httpResponse, long maxBodySize) {
+        this(httpResponse, maxBodySize, null);
+    }
+
+    /**
+     * Creates a StreamingResponseEntity that releases the permit of its request when the body has
+     * been read, the body could not be read or the entity is closed.
+     *
+     * @param httpResponse
+     * @param maxBodySize
+     * @param permit       :: Permit of the request, or null
+     */
+    StreamingResponseEntity(CloseableHttpResponse httpResponse, long maxBodySize,
+            HostGuards.Permit permit) {
+        super(httpResponse.getStatusLine()
+                          .getStatusCode(),
+                null, httpResponse.getAllHeaders());
+        this.httpResponse = httpResponse;
+        this.maxBodySize = maxBodySize;
+        this.permit = permit;
+    }
+
+    /**
+     * Returns the response body as a stream. Closing the stream releases the connection, if the
+     * body was not read to the end the connection is closed instead of being reused.
+     *
+     * @return InputStream
+     * @throws IOException
+     *             if the body has already been consumed or is larger than the max body size
+     */
+    public InputStream getInputStream() throws IOException {
+        if (bodyStream != null || materializedBody != null) {
+            throw new IOException("The response body has already been consumed.");
+        }
+
+        HttpEntity entity = httpResponse.getEntity();
+        if (entity == null) {
+            bodyStream = new ByteArrayInputStream(new byte[0]);
+            close();
+            return bodyStream;
+        }
+
+        if (maxBodySize != UNLIMITED_BODY_SIZE && entity.getContentLength() > maxBodySize) {
+            close();
+            throw createBodyTooLargeException();
+        }
+
+        try {
+            bodyStream = new BoundedBodyInputStream(entity.getContent());
+        } catch (IOException | RuntimeException e) {
+            releasePermit(e);
+            httpResponse.close();
+            throw e;
+        }
+        return bodyStream;
+    }
+
+    /**
+     * Returns the response body as a channel. Closing the channel releases the connection.
+     *
+     * @return ReadableByteChannel
+     * @throws IOException
+     */
+    public ReadableByteChannel getChannel() throws IOException {
+        return Channels.newChannel(getInputStream());
+    }
+
+    /**
+     * Reads the whole response body into a String using the charset of the response, or UTF-8 if
+     * none is given. The body is only read once, later calls return the same String.
+     *
+     * @return String
+     * @throws IOException
+     */
+    public String readBody() throws IOException {
+        if (materializedBody == null) {
+            Charset charset = getCharset();
+            try (InputStream inputStream = getInputStream()) {
+                materializedBody = IOUtils.toString(inputStream, charset);
+            }
+        }
+
+        return materializedBody;
+    }
+
+    /**
+     * Returns the response body as a String, reading it from the connection on first access.
+     *
+     * @throws UncheckedIOException
+     *             if the body could not be read
+     */
+    @Override
+    public String getBody() {
+        try {
+            return readBody();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Releases the connection of this response. If the body was not read to the end the
+     * connection is closed instead of being reused.
+     */
+    @Override
+    public void close() throws IOException {
+        releasePermit(null);
+        httpResponse.close();
+    }
+
+    private void releasePermit(Throwable failure) {
+        if (permit != null) {
+            permit.release(getStatusCode(), failure);
+        }
+    }
+
+    private Charset getCharset() {
+        HttpEntity entity = httpResponse.getEntity();
+        ContentType contentType = entity != null ? ContentType.get(entity) : null;
+        if (contentType != null && contentType.getCharset() != null) {
+            return contentType.getCharset();
+        }
+
+        return StandardCharsets.UTF_8;
+    }
+
+    private IOException createBodyTooLargeException() {
+        return new IOException(
+                "The response body exceeds the maximum allowed size of " + maxBodySize + " bytes.");
+    }
+
+    /**
+     * Stream that enforces the max body size and releases the connection when closed.
+     */
+    private class BoundedBodyInputStream extends FilterInputStream {
+
+        private long bytesRead = 0;
+
+        BoundedBodyInputStream(InputStream inputStream) {
+            super(inputStream);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value;
+            try {
+                value = super.read();
+            } catch (IOException | RuntimeException e) {
+                releasePermit(e);
+                throw e;
+            }
+            if (value != -1) {
+                countBytes(1);
+            } else {
+                releasePermit(null);
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int count;
+            try {
+                count = super.read(buffer, offset, length);
+            } catch (IOException | RuntimeException e) {
+                releasePermit(e);
+                throw e;
+            }
+            if (count > 0) {
+                countBytes(count);
+            } else if (count == -1) {
+                releasePermit(null);
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long length) throws IOException {
+            long skipped;
+            try {
+                skipped = super.skip(length);
+            } catch (IOException | RuntimeException e) {
+                releasePermit(e);
+                throw e;
+            }
+            countBytes(skipped);
+            return skipped;
+        }
+
+        @Override
+        public void close() throws IOException {
+            StreamingResponseEntity.this.close();
+        }
+
+        private void countBytes(long count) throws IOException {
+            bytesRead += count;
+            if (maxBodySize != UNLIMITED_BODY_SIZE && bytesRead > maxBodySize) {
+                StreamingResponseEntity.this.close();
+                throw createBodyTooLargeException();
+            }
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/*
+   Copyright 2019 Ericsson AB.
+   For a full list of individual contributors, please see the commit history.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.ericsson.eiffelcommons.http;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.UnknownHostException;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestExecutor;
+import org.apache.http.ssl.SSLContexts;
+
+/**
+ * Client components that measure the phases of a request into the RequestTiming of the calling
+ * thread. While the calling thread has no timing they only cost a thread local lookup.
+ *
+ * @author Ericsson 2019
+ *
+ */
+final class TracingHooks {
+
+    private TracingHooks() {
+    }
+
+    /**
+     * Creates the socket factories of a pooled client.
+     *
+     * @param sslContext       :: SSL context, or null for the default of the JVM
+     * @param hostnameVerifier :: Hostname verifier, or null for the default of HttpClient
+     * @return Registry
+     */
+    static Registry<ConnectionSocketFactory> createSocketFactoryRegistry(SSLContext sslContext,
+            HostnameVerifier hostnameVerifier) {
+        return RegistryBuilder.<ConnectionSocketFactory>create()
+                              .register("http", new TracingPlainSocketFactory())
+                              .register("https", createSslSocketFactory(sslContext, hostnameVerifier))
+                              .build();
+    }
+
+    /**
+     * Creates a TLS socket factory, equivalent to the default of HttpClientBuilder when both
+     * arguments are null.
+     *
+     * @param sslContext       :: SSL context, or null for the default of the JVM
+     * @param hostnameVerifier :: Hostname verifier, or null for the default of HttpClient
+     * @return SSLConnectionSocketFactory
+     */
+    static SSLConnectionSocketFactory createSslSocketFactory(SSLContext sslContext,
+            HostnameVerifier hostnameVerifier) {
+        return new TracingSslSocketFactory(
+                sslContext != null ? sslContext : SSLContexts.createDefault(),
+                hostnameVerifier != null ? hostnameVerifier : getDefaultHostnameVerifier());
+    }
+
+    private static HostnameVerifier getDefaultHostnameVerifier() {
+        return SSLConnectionSocketFactory.getDefaultHostnameVerifier();
+    }
+
+    /**
+     * Measures the time to first byte of each exchange.
+     */
+    static class TracingRequestExecutor extends HttpRequestExecutor {
+
+        @Override
+        protected HttpResponse doSendRequest(HttpRequest request, HttpClientConnection connection,
+                HttpContext context) throws IOException, HttpException {
+            RequestTiming timing = RequestTiming.current();
+            if (timing != null) {
+                timing.requestSent(System.nanoTime());
+            }
+            return super.doSendRequest(request, connection, context);
+        }
+
+        @Override
+        protected HttpResponse doReceiveResponse(HttpRequest request,
+                HttpClientConnection connection, HttpContext context)
+                throws HttpException, IOException {
+            HttpResponse response = super.doReceiveResponse(request, connection, context);
+            RequestTiming timing = RequestTiming.current();
+            if (timing != null) {
+                timing.responseReceived();
+            }
+            return response;
+        }
+    }
+
+    /**
+     * Measures the host name resolution of new connections.
+     */
+    static class TracingDnsResolver implements DnsResolver {
+
+        static final TracingDnsResolver INSTANCE = new TracingDnsResolver();
+
+        @Override
+        public InetAddress[] resolve(String host) throws UnknownHostException {
+            RequestTiming timing = RequestTiming.current();
+            if (timing == null) {
+                return SystemDefaultDnsResolver.INSTANCE.resolve(host);
+            }
+
+            long startTime = System.nanoTime();
+            try {
+                return SystemDefaultDnsResolver.INSTANCE.resolve(host);
+            } finally {
+                timing.addDns(System.nanoTime() - startTime);
+            }
+        }
+    }
+
+    /**
+     * Measures the TCP connect of new plain connections.
+     */
+    private static class TracingPlainSocketFactory extends PlainConnectionSocketFactory {
+
+        @Override
+        public Socket connectSocket(int connectTimeout, Socket socket, HttpHost host,
+                InetSocketAddress remoteAddress, InetSocketAddress localAddress,
+                HttpContext context) throws IOException {
+            RequestTiming timing = RequestTiming.current();
+            if (timing == null) {
+                return super.connectSocket(connectTimeout, socket, host, remoteAddress,
+                        localAddress, context);
+            }
+
+            long startTime = System.nanoTime();
+            try {
+                return super.connectSocket(connectTimeout, socket, host, remoteAddress,
+                        localAddress, context);
+            } finally {
+                timing.addConnect(System.nanoTime() - startTime);
+            }
+        }
+    }
+
+    /**
+     * Measures the TCP connect and the TLS handshake of new TLS connections. The handshake takes
+     * place in createLayeredSocket, which is called from connectSocket, so it is subtracted from
+     * the connect time.
+     */
+    private static class TracingSslSocketFactory extends SSLConnectionSocketFactory {
+
+        TracingSslSocketFactory(SSLContext sslContext, HostnameVerifier hostnameVerifier) {
+            super(sslContext, hostnameVerifier);
+        }
+
+        @Override
+        public Socket connectSocket(int connectTimeout, Socket socket, HttpHost host,
+                InetSocketAddress remoteAddress, InetSocketAddress localAddress,
+                HttpContext context) throws IOException {
+            RequestTiming timing = RequestTiming.current();
+            if (timing == null) {
+                return super.connectSocket(connectTimeout, socket, host, remoteAddress,
+                        localAddress, context);
+            }
+
+            long startTime = System.nanoTime();
+            long tlsBefore = Math.max(timing.getTlsHandshakeNanos(), 0);
+            try {
+                return super.connectSocket(connectTimeout, socket, host, remoteAddress,
+                        localAddress, context);
+            } finally {
+                long tlsNanos = Math.max(timing.getTlsHandshakeNanos(), 0) - tlsBefore;
+                timing.addConnect(System.nanoTime() - startTime - tlsNanos);
+            }
+        }
+
+        @Override
+        public Socket createLayeredSocket(Socket socket, String target, int port,
+                HttpContext context) throws IOException {
+            RequestTiming timing = RequestTiming.current();
+            if (timing == null) {
+                return super.createLayeredSocket(socket, target, port, context);
+            }
+
+            long startTime = System.nanoTime();
+            try {
+                return super.createLayeredSocket(socket, target, port, context);
+            } finally {
+                timing.addTlsHandshake(System.nanoTime() - startTime);
+            }
+        }
+    }
+}
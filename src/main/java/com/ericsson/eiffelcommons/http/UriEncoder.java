@@ -0,0 +1,137 @@
+/*
+   Copyright 2019 Ericsson AB.
+   For a full list of individual contributors, please see the commit history.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.ericsson.eiffelcommons.http;
+
+/**
+ * Percent-encoding of URI components straight into a StringBuilder, without the intermediate
+ * Strings of URLEncoder or the parse and format cycle of URIBuilder.
+ *
+ * @author Ericsson 2019
+ *
+ */
+final class UriEncoder {
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+    private static final boolean[] FORM_SAFE = new boolean[128];
+    private static final boolean[] PATH_SAFE = new boolean[128];
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            FORM_SAFE[c] = true;
+            FORM_SAFE[Character.toUpperCase(c)] = true;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            FORM_SAFE[c] = true;
+        }
+        for (char c : "-_.*".toCharArray()) {
+            FORM_SAFE[c] = true;
+        }
+
+        System.arraycopy(FORM_SAFE, 0, PATH_SAFE, 0, FORM_SAFE.length);
+        for (char c : "~!$&'()+,;=:@/".toCharArray()) {
+            PATH_SAFE[c] = true;
+        }
+    }
+
+    private UriEncoder() {
+    }
+
+    /**
+     * Appends a query parameter name or value encoded as application/x-www-form-urlencoded with
+     * UTF-8, the same encoding as URIBuilder.addParameter.
+     *
+     * @param target
+     * @param value
+     */
+    static void appendFormEncoded(StringBuilder target, String value) {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 128 && FORM_SAFE[c]) {
+                target.append(c);
+            } else if (c == ' ') {
+                target.append('+');
+            } else {
+                i += appendEncodedCodePoint(target, value, i) - 1;
+            }
+        }
+    }
+
+    /**
+     * Appends a value to a URI path, encoding the characters that are not allowed in a path.
+     * Slashes and valid percent-escapes are kept, so a value that already is a valid path is
+     * appended unchanged.
+     *
+     * @param target
+     * @param value
+     */
+    static void appendPathEncoded(StringBuilder target, String value) {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 128 && PATH_SAFE[c]) {
+                target.append(c);
+            } else if (c == '%' && i + 2 < length && isHexDigit(value.charAt(i + 1))
+                    && isHexDigit(value.charAt(i + 2))) {
+                target.append(c);
+            } else {
+                i += appendEncodedCodePoint(target, value, i) - 1;
+            }
+        }
+    }
+
+    /**
+     * Appends the UTF-8 bytes of the code point at the given index as percent-escapes. An unpaired
+     * surrogate is encoded as '?', like URLEncoder does.
+     *
+     * @return the number of chars of the code point
+     */
+    private static int appendEncodedCodePoint(StringBuilder target, String value, int index) {
+        int codePoint = value.codePointAt(index);
+        if (Character.isSurrogate(value.charAt(index)) && codePoint == value.charAt(index)) {
+            appendEncodedByte(target, '?');
+            return 1;
+        }
+
+        if (codePoint < 0x80) {
+            appendEncodedByte(target, codePoint);
+        } else if (codePoint < 0x800) {
+            appendEncodedByte(target, 0xC0 | (codePoint >> 6));
+            appendEncodedByte(target, 0x80 | (codePoint & 0x3F));
+        } else if (codePoint < 0x10000) {
+            appendEncodedByte(target, 0xE0 | (codePoint >> 12));
+            appendEncodedByte(target, 0x80 | ((codePoint >> 6) & 0x3F));
+            appendEncodedByte(target, 0x80 | (codePoint & 0x3F));
+        } else {
+            appendEncodedByte(target, 0xF0 | (codePoint >> 18));
+            appendEncodedByte(target, 0x80 | ((codePoint >> 12) & 0x3F));
+            appendEncodedByte(target, 0x80 | ((codePoint >> 6) & 0x3F));
+            appendEncodedByte(target, 0x80 | (codePoint & 0x3F));
+        }
+        return Character.charCount(codePoint);
+    }
+
+    private static void appendEncodedByte(StringBuilder target, int value) {
+        target.append('%')
+              .append(HEX_DIGITS[(value >> 4) & 0xF])
+              .append(HEX_DIGITS[value & 0xF]);
+    }
+
+    private static boolean isHexDigit(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'A' && c <= 'F') || (c >= 'a' && c <= 'f');
+    }
+}
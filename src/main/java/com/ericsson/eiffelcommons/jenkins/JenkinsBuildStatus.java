@@ -0,0 +1,77 @@
+/*
+   Copyright 2019 Ericsson AB.
+   For a full list of individual contributors, please see the commit history.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.ericsson.eiffelcommons.jenkins;
+
+import org.json.JSONObject;
+
+import lombok.Getter;
+
+/**
+ * Status of a single jenkins build, read from a build status query limited to the fields in
+ * TREE, see JenkinsManager.getJenkinsBuildStatus.
+ *
+ * @author Ericsson 2019
+ *
+ */
+@Getter
+public class JenkinsBuildStatus {
+
+    /**
+     * Jenkins tree filter selecting the fields of a build that make up a JenkinsBuildStatus.
+     */
+    public static final String TREE = "number,result,building,duration";
+
+    private final int number;
+    private final String result;
+    private final boolean building;
+    private final long duration;
+
+    /**
+     * Creates a build status.
+     *
+     * @param number   :: Build number
+     * @param result   :: Result of the build, e.g. SUCCESS, or null while the build is running
+     * @param building :: True while the build is running
+     * @param duration :: Duration of the build in milliseconds, 0 while the build is running
+     */
+    public JenkinsBuildStatus(int number, String result, boolean building, long duration) {
+        this.number = number;
+        this.result = result;
+        this.building = building;
+        this.duration = duration;
+    }
+
+    /**
+     * Creates a build status from the JSON returned by jenkins for a build.
+     *
+     * @param json :: Build data containing at least the fields in TREE
+     * @return JenkinsBuildStatus
+     */
+    public static JenkinsBuildStatus fromJson(JSONObject json) {
+        return new JenkinsBuildStatus(json.optInt("number"), json.optString("result", null),
+                json.optBoolean("building"), json.optLong("duration"));
+    }
+
+    /**
+     * Returns true if the build has finished, regardless of its result.
+     *
+     * @return boolean
+     */
+    public boolean isFinished() {
+        return !building && result != null;
+    }
+}
@@ -0,0 +1,353 @@
+/*
+   Copyright 2019 Ericsson AB.
+   For a full list of individual contributors, please see the commit history.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.ericsson.eiffelcommons.jenkins;
+
+import java.io.Closeable;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import com.ericsson.eiffelcommons.exceptions.JenkinsManagerException;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+/**
+ * Watches any number of jenkins builds from a single scheduler thread. All watched builds of a job
+ * are checked with one request per poll, and the poll interval of a job backs off while none of
+ * its builds change. The returned futures complete with the build data when the build has
+ * finished.
+ *
+ * @author Ericsson 2019
+ *
+ */
+@Accessors(chain = true)
+public class JenkinsBuildWatcher implements Closeable {
+
+    private static final String BUILDS_TREE = "builds[number,result,building,duration,timestamp]{0,%d}";
+    private static final String BUILD_TREE = "number,result,building,duration,timestamp";
+
+    private final JenkinsManager jenkinsManager;
+    private final ScheduledExecutorService scheduler;
+    private final boolean ownsScheduler;
+    private final Map<String, JobWatch> jobWatches = new ConcurrentHashMap<>();
+    private volatile boolean closed = false;
+
+    /**
+     * Poll interval used for a job right after it is watched and after one of its builds changed.
+     */
+    @Getter
+    @Setter
+    private long initialPollIntervalMillis = 1000;
+
+    /**
+     * Upper bound of the poll interval of a job.
+     */
+    @Getter
+    @Setter
+    private long maxPollIntervalMillis = 30000;
+
+    /**
+     * Factor the poll interval of a job grows by for each poll without any finished build.
+     */
+    @Getter
+    @Setter
+    private double backoffMultiplier = 1.5;
+
+    /**
+     * Number of most recent builds of a job fetched per poll. Watched builds missing from them are
+     * fetched individually.
+     */
+    @Getter
+    @Setter
+    private int buildHistoryDepth = 50;
+
+    /**
+     * Number of consecutive failed polls of a job after which its watched builds are failed.
+     */
+    @Getter
+    @Setter
+    private int maxConsecutiveFailures = 5;
+
+    /**
+     * Creates a watcher with its own single scheduler thread, which is stopped by close().
+     *
+     * @param jenkinsManager :: JenkinsManager used to query the builds
+     */
+    public JenkinsBuildWatcher(JenkinsManager jenkinsManager) {
+        this(jenkinsManager, Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jenkins-build-watcher");
+            thread.setDaemon(true);
+            return thread;
+        }), true);
+    }
+
+    /**
+     * Creates a watcher that polls on the given scheduler. The scheduler is not stopped by
+     * close().
+     *
+     * @param jenkinsManager :: JenkinsManager used to query the builds
+     * @param scheduler      :: Scheduler the polls are run on
+     */
+    public JenkinsBuildWatcher(JenkinsManager jenkinsManager, ScheduledExecutorService scheduler) {
+        this(jenkinsManager, scheduler, false);
+    }
+
+    private JenkinsBuildWatcher(JenkinsManager jenkinsManager, ScheduledExecutorService scheduler,
+            boolean ownsScheduler) {
+        this.jenkinsManager = jenkinsManager;
+        this.scheduler = scheduler;
+        this.ownsScheduler = ownsScheduler;
+    }
+
+    /**
+     * Watches a build until it has finished. The returned future completes with the build data,
+     * containing number, result, building, duration and timestamp. Cancelling the future stops
+     * watching the build. Once the watcher is closed, the returned future is failed with an
+     * IllegalStateException.
+     *
+     * @param jobName     :: Name of job as String
+     * @param buildNumber :: Build number as int
+     * @return CompletableFuture with the build data as JSONObject
+     */
+    public CompletableFuture<JSONObject> watchBuild(String jobName, int buildNumber) {
+        CompletableFuture<JSONObject> buildFuture = new CompletableFuture<>();
+        while (true) {
+            if (closed) {
+                buildFuture.completeExceptionally(
+                        new IllegalStateException("The build watcher has been closed."));
+                return buildFuture;
+            }
+            JobWatch jobWatch = jobWatches.computeIfAbsent(jobName, JobWatch::new);
+            synchronized (jobWatch) {
+                if (jobWatch.active && !closed) {
+                    CompletableFuture<JSONObject> existingFuture = jobWatch.builds.putIfAbsent(
+                            buildNumber, buildFuture);
+                    if (existingFuture != null) {
+                        return existingFuture;
+                    }
+                    if (!jobWatch.scheduled) {
+                        try {
+                            schedulePoll(jobWatch, 0);
+                        } catch (RejectedExecutionException e) {
+                            jobWatch.builds.remove(buildNumber);
+                            buildFuture.completeExceptionally(e);
+                            return buildFuture;
+                        }
+                        jobWatch.scheduled = true;
+                    }
+                    return buildFuture;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of builds currently being watched.
+     *
+     * @return int
+     */
+    public int getWatchedBuildCount() {
+        int count = 0;
+        for (JobWatch jobWatch : jobWatches.values()) {
+            count += jobWatch.builds.size();
+        }
+        return count;
+    }
+
+    /**
+     * Stops watching all builds, the pending futures are cancelled.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (JobWatch jobWatch : jobWatches.values()) {
+            synchronized (jobWatch) {
+                jobWatch.active = false;
+                for (CompletableFuture<JSONObject> buildFuture : jobWatch.builds.values()) {
+                    buildFuture.cancel(false);
+                }
+                jobWatch.builds.clear();
+            }
+        }
+        jobWatches.clear();
+
+        if (ownsScheduler) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void schedulePoll(JobWatch jobWatch, long delayMillis) {
+        scheduler.schedule(() -> poll(jobWatch), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Polls all watched builds of a job, completes the finished ones and schedules the next poll.
+     *
+     * @param jobWatch
+     */
+    private void poll(JobWatch jobWatch) {
+        jobWatch.builds.values()
+                       .removeIf(CompletableFuture::isDone);
+        synchronized (jobWatch) {
+            if (!jobWatch.active) {
+                return;
+            }
+            if (jobWatch.builds.isEmpty()) {
+                jobWatch.active = false;
+                jobWatches.remove(jobWatch.jobName, jobWatch);
+                return;
+            }
+        }
+
+        boolean buildFinished;
+        try {
+            buildFinished = pollBuilds(jobWatch);
+            jobWatch.consecutiveFailures = 0;
+        } catch (Exception e) {
+            buildFinished = false;
+            jobWatch.consecutiveFailures++;
+            if (jobWatch.consecutiveFailures >= maxConsecutiveFailures) {
+                failBuilds(jobWatch, e);
+            }
+        }
+
+        if (buildFinished) {
+            jobWatch.pollIntervalMillis = initialPollIntervalMillis;
+        } else if (jobWatch.pollIntervalMillis == 0) {
+            jobWatch.pollIntervalMillis = initialPollIntervalMillis;
+        } else {
+            jobWatch.pollIntervalMillis = Math.min(maxPollIntervalMillis,
+                    (long) (jobWatch.pollIntervalMillis * backoffMultiplier));
+        }
+        schedulePoll(jobWatch, jobWatch.pollIntervalMillis);
+    }
+
+    /**
+     * Fetches the recent builds of a job in one request and completes the watched builds that have
+     * finished. Watched builds missing from the fetched history, but not newer than its newest
+     * build, are fetched one by one, so that builds which are too old for the history, have been
+     * deleted or never existed are completed or failed. Watched builds newer than the newest
+     * build are still queued and keep waiting.
+     *
+     * @param jobWatch
+     * @return true if any watched build finished
+     * @throws Exception
+     */
+    private boolean pollBuilds(JobWatch jobWatch) throws Exception {
+        JSONObject jobData = jenkinsManager.getJenkinsJobData(jobWatch.jobName,
+                String.format(BUILDS_TREE, buildHistoryDepth));
+        JSONArray builds = jobData.optJSONArray("builds");
+        boolean buildFinished = false;
+        Set<Integer> fetchedBuilds = new HashSet<>();
+        int newestFetchedBuild = Integer.MIN_VALUE;
+
+        if (builds != null) {
+            for (int i = 0; i < builds.length(); i++) {
+                JSONObject build = builds.getJSONObject(i);
+                int buildNumber = build.getInt("number");
+                fetchedBuilds.add(buildNumber);
+                newestFetchedBuild = Math.max(newestFetchedBuild, buildNumber);
+                buildFinished |= completeIfFinished(jobWatch, buildNumber, build);
+            }
+        }
+
+        for (Integer buildNumber : jobWatch.builds.keySet()) {
+            if (buildNumber <= newestFetchedBuild && !fetchedBuilds.contains(buildNumber)) {
+                buildFinished |= pollMissingBuild(jobWatch, buildNumber);
+            }
+        }
+
+        return buildFinished;
+    }
+
+    /**
+     * Fetches a single watched build that is missing from the fetched history. A build that can
+     * not be fetched, e.g. because it has been deleted, only fails its own future.
+     *
+     * @param jobWatch
+     * @param buildNumber
+     * @return true if the build finished or failed
+     */
+    private boolean pollMissingBuild(JobWatch jobWatch, int buildNumber) {
+        JSONObject build;
+        try {
+            build = jenkinsManager.getJenkinsBuildStatusData(jobWatch.jobName, buildNumber,
+                    BUILD_TREE);
+        } catch (Exception e) {
+            CompletableFuture<JSONObject> buildFuture = jobWatch.builds.remove(buildNumber);
+            if (buildFuture != null) {
+                buildFuture.completeExceptionally(new JenkinsManagerException(
+                        "Failed to poll build " + buildNumber + " of jenkins job "
+                                + jobWatch.jobName + ".", e));
+            }
+            return buildFuture != null;
+        }
+
+        return completeIfFinished(jobWatch, buildNumber, build);
+    }
+
+    private boolean completeIfFinished(JobWatch jobWatch, int buildNumber, JSONObject build) {
+        CompletableFuture<JSONObject> buildFuture = jobWatch.builds.get(buildNumber);
+        if (buildFuture == null || build.optBoolean("building", true)) {
+            return false;
+        }
+
+        jobWatch.builds.remove(buildNumber);
+        buildFuture.complete(build);
+        return true;
+    }
+
+    private void failBuilds(JobWatch jobWatch, Exception cause) {
+        Iterator<CompletableFuture<JSONObject>> iterator = jobWatch.builds.values()
+                                                                          .iterator();
+        while (iterator.hasNext()) {
+            iterator.next()
+                    .completeExceptionally(new JenkinsManagerException(
+                            "Failed to poll builds of jenkins job " + jobWatch.jobName + ".", cause));
+            iterator.remove();
+        }
+        jobWatch.consecutiveFailures = 0;
+    }
+
+    /**
+     * The watched builds of a single job. The poll state is only accessed from the scheduler.
+     */
+    private static class JobWatch {
+        private final String jobName;
+        private final Map<Integer, CompletableFuture<JSONObject>> builds = new ConcurrentHashMap<>();
+        private boolean active = true;
+        private boolean scheduled = false;
+        private long pollIntervalMillis = 0;
+        private int consecutiveFailures = 0;
+
+        JobWatch(String jobName) {
+            this.jobName = jobName;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+   Copyright 2019 Ericsson AB.
+   For a full list of individual contributors, please see the commit history.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.ericsson.eiffelcommons.jenkins;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+
+/**
+ * Caches the jenkins crumb for a limited time. Renewal is single-flight: when several threads find
+ * the same crumb expired or rejected at once, only one of them fetches a new crumb and the others
+ * reuse it.
+ *
+ * @author Ericsson 2019
+ *
+ */
+class JenkinsCrumbCache {
+
+    /**
+     * Fetches a new crumb from jenkins.
+     */
+    interface CrumbFetcher {
+        String fetchCrumb() throws URISyntaxException, IOException;
+    }
+
+    /**
+     * An immutable crumb value together with its expiry time. Instances are compared by identity
+     * to detect if another thread has already renewed the crumb.
+     */
+    static class Crumb {
+        private final String value;
+        private final long expiresAt;
+
+        Crumb(String value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        String getValue() {
+            return value;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+    }
+
+    private final CrumbFetcher fetcher;
+    private final Object renewalLock = new Object();
+    private volatile Crumb crumb;
+    private volatile long ttlMillis;
+
+    JenkinsCrumbCache(CrumbFetcher fetcher, long ttlMillis) {
+        this.fetcher = fetcher;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Returns the cached crumb, fetching a new one if there is none or if it has expired.
+     *
+     * @return Crumb
+     * @throws URISyntaxException
+     * @throws IOException
+     */
+    Crumb get() throws URISyntaxException, IOException {
+        Crumb current = crumb;
+        if (current == null || current.isExpired()) {
+            return renew(current);
+        }
+        return current;
+    }
+
+    /**
+     * Replaces the given crumb with a newly fetched one. If the crumb has already been replaced by
+     * another thread, the replacement is returned without fetching again.
+     *
+     * @param staleCrumb :: The crumb that expired or was rejected by jenkins, or null
+     * @return Crumb
+     * @throws URISyntaxException
+     * @throws IOException
+     */
+    Crumb renew(Crumb staleCrumb) throws URISyntaxException, IOException {
+        synchronized (renewalLock) {
+            Crumb current = crumb;
+            if (current != null && current != staleCrumb && !current.isExpired()) {
+                return current;
+            }
+
+            String value = fetcher.fetchCrumb();
+            current = new Crumb(value, System.currentTimeMillis() + ttlMillis);
+            crumb = current;
+            return current;
+        }
+    }
+
+    /**
+     * Returns the value of the cached crumb without renewing it, or an empty String if no crumb
+     * has been fetched.
+     *
+     * @return String
+     */
+    String peekValue() {
+        Crumb current = crumb;
+        return current != null ? current.getValue() : "";
+    }
+
+    void setTtlMillis(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    long getTtlMillis() {
+        return ttlMillis;
+    }
+}
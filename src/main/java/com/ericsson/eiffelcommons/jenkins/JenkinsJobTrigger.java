@@ -0,0 +1,68 @@
+/*
+   Copyright 2019 Ericsson AB.
+   For a full list of individual contributors, please see the commit history.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.ericsson.eiffelcommons.jenkins;
+
+import java.util.Collections;
+import java.util.Map;
+
+import lombok.Getter;
+
+/**
+ * Describes a single job to trigger in a batch, see JenkinsManager.buildJobs.
+ *
+ * @author Ericsson 2019
+ *
+ */
+@Getter
+public class JenkinsJobTrigger {
+
+    private final String jobName;
+    private final String jobToken;
+    private final Map<String, String> parameters;
+
+    /**
+     * Creates a trigger for a job without parameters.
+     *
+     * @param jobName  :: Name of job as String
+     * @param jobToken :: Token used to trigger the job as String
+     */
+    public JenkinsJobTrigger(String jobName, String jobToken) {
+        this(jobName, jobToken, Collections.emptyMap());
+    }
+
+    /**
+     * Creates a trigger for a job with parameters.
+     *
+     * @param jobName    :: Name of job as String
+     * @param jobToken   :: Token used to trigger the job as String
+     * @param parameters :: Parameters as Map
+     */
+    public JenkinsJobTrigger(String jobName, String jobToken, Map<String, String> parameters) {
+        this.jobName = jobName;
+        this.jobToken = jobToken;
+        this.parameters = parameters;
+    }
+
+    /**
+     * Returns true if the job should be triggered with parameters.
+     *
+     * @return boolean
+     */
+    public boolean hasParameters() {
+        return parameters != null && !parameters.isEmpty();
+    }
+}
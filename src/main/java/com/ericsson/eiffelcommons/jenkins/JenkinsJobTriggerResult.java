@@ -0,0 +1,72 @@
+/*
+   Copyright 2019 Ericsson AB.
+   For a full list of individual contributors, please see the commit history.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.ericsson.eiffelcommons.jenkins;
+
+import org.apache.http.HttpStatus;
+
+import lombok.Getter;
+
+/**
+ * The outcome of triggering a single job in a batch, see JenkinsManager.buildJobs.
+ *
+ * @author Ericsson 2019
+ *
+ */
+@Getter
+public class JenkinsJobTriggerResult {
+
+    private final String jobName;
+    private final boolean success;
+    private final int statusCode;
+    private final String queueLocation;
+    private final long latencyMillis;
+    private final Exception exception;
+
+    /**
+     * Creates a result for a trigger request that received a response from jenkins.
+     *
+     * @param jobName       :: Name of job as String
+     * @param statusCode    :: Status code of the trigger request
+     * @param queueLocation :: Location of the queued item, or null if jenkins did not return one
+     * @param latencyMillis :: Time taken by the trigger request
+     */
+    public JenkinsJobTriggerResult(String jobName, int statusCode, String queueLocation,
+            long latencyMillis) {
+        this(jobName, statusCode == HttpStatus.SC_CREATED, statusCode, queueLocation, latencyMillis, null);
+    }
+
+    /**
+     * Creates a result for a trigger request that failed before a response was received.
+     *
+     * @param jobName       :: Name of job as String
+     * @param exception     :: The cause of the failure
+     * @param latencyMillis :: Time taken until the failure
+     */
+    public JenkinsJobTriggerResult(String jobName, Exception exception, long latencyMillis) {
+        this(jobName, false, 0, null, latencyMillis, exception);
+    }
+
+    private JenkinsJobTriggerResult(String jobName, boolean success, int statusCode,
+            String queueLocation, long latencyMillis, Exception exception) {
+        this.jobName = jobName;
+        this.success = success;
+        this.statusCode = statusCode;
+        this.queueLocation = queueLocation;
+        this.latencyMillis = latencyMillis;
+        this.exception = exception;
+    }
+}
@@ -17,30 +17,67 @@
 package com.ericsson.eiffelcommons.jenkins;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.xml.bind.DatatypeConverter;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.ClientProtocolException;
+import org.apache.http.entity.ContentProducer;
+import org.apache.http.entity.ContentType;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import com.ericsson.eiffelcommons.constants.MediaType;
 import com.ericsson.eiffelcommons.exceptions.JenkinsManagerException;
+import com.ericsson.eiffelcommons.http.AsyncHttpExecutor;
+import com.ericsson.eiffelcommons.http.HttpExecutor;
 import com.ericsson.eiffelcommons.http.HttpRequest;
+import com.ericsson.eiffelcommons.http.HttpRequestTemplate;
+import com.ericsson.eiffelcommons.http.MetricsRecorder;
 import com.ericsson.eiffelcommons.http.ResponseEntity;
+import com.ericsson.eiffelcommons.http.RetryPolicy;
 import com.ericsson.eiffelcommons.http.HttpRequest.HttpMethod;
 
 public class JenkinsManager {
 
+    private static final String CRUMB_HEADER = "Jenkins-Crumb";
+    private static final String CRUMB_REJECTED_MESSAGE = "No valid crumb";
+    private static final long DEFAULT_CRUMB_TTL_MILLIS = 10 * 60 * 1000;
+    private static final ContentType XML_CONTENT_TYPE = ContentType.create(MediaType.APPLICATION_XML,
+            StandardCharsets.UTF_8);
+    private static final String PLUGINS_TREE = "plugins[shortName,version]";
+    private static final long DEFAULT_PLUGIN_INVENTORY_TTL_MILLIS = 60 * 1000;
+    private static final String UPDATE_CENTER_TREE = "jobs[id,name,status[success,type]],restartRequiredForCompletion";
+
     private String jenkinsBaseUrl;
     private String encoding;
-    private String crumb;
+    private JenkinsCrumbCache crumbCache;
+    private HttpExecutor executor;
+    private HttpRequestTemplate requestTemplate;
+    private volatile JenkinsPluginInventory pluginInventory;
+    private volatile long pluginInventoryTtlMillis = DEFAULT_PLUGIN_INVENTORY_TTL_MILLIS;
+    private JenkinsRestartPolicy restartPolicy = new JenkinsRestartPolicy();
+    private JenkinsPluginInstallPolicy pluginInstallPolicy = new JenkinsPluginInstallPolicy();
 
     /**
      * Constructor, takes jenkins baseUrl, username and password.
@@ -55,9 +92,36 @@ public class JenkinsManager {
      */
     public JenkinsManager(String jenkinsBaseUrl, String username, String password)
             throws ClientProtocolException, URISyntaxException, IOException {
+        this(jenkinsBaseUrl, username, password, new HttpExecutor());
+    }
+
+    /**
+     * Constructor, takes jenkins baseUrl, username, password and the executor used for all requests
+     * towards jenkins. A pooled executor may be shared between several JenkinsManager instances.
+     *
+     * @param jenkinsBaseUrl :: Jenkins base url http://somehost:123
+     * @param username       :: Jenkins username as String
+     * @param password       :: Jenkins password or API-token
+     * @param executor       :: HttpExecutor used to perform the requests, or null for the shared
+     *                       HttpExecutor.getInstance()
+     * @throws URISyntaxException
+     * @throws JSONException
+     * @throws IOException
+     * @throws ClientProtocolException
+     */
+    public JenkinsManager(String jenkinsBaseUrl, String username, String password,
+            HttpExecutor executor)
+            throws ClientProtocolException, URISyntaxException, IOException {
         this.jenkinsBaseUrl = jenkinsBaseUrl;
+        this.executor = executor != null ? executor : HttpExecutor.getInstance();
         this.encoding = createEncodingFromUsernameAndPassword(username, password);
-        this.crumb = fetchCrumbFromJenkins();
+        this.requestTemplate = HttpRequestTemplate.builder()
+                                                  .setBaseUrl(jenkinsBaseUrl)
+                                                  .addHeader("Authorization", "Basic " + encoding)
+                                                  .setExecutor(this.executor)
+                                                  .build();
+        this.crumbCache = new JenkinsCrumbCache(this::fetchCrumbFromJenkins, DEFAULT_CRUMB_TTL_MILLIS);
+        this.crumbCache.renew(null);
     }
 
     /**
@@ -78,6 +142,27 @@ public class JenkinsManager {
         this(String.format("%s://%s:%d", protocol, host, port), username, password);
     }
 
+    /**
+     * Constructor, takes jenkins protocol, host, port, username, password and the executor used for
+     * all requests towards jenkins.
+     *
+     * @param protocol :: http/https protocol to jenkins as String
+     * @param host     :: Host name to jenkins as String
+     * @param port     :: Port number to jenkins as int
+     * @param username :: Jenkins username as String
+     * @param password :: Jenkins password or API-token
+     * @param executor :: HttpExecutor used to perform the requests
+     * @throws URISyntaxException
+     * @throws JSONException
+     * @throws IOException
+     * @throws ClientProtocolException
+     */
+    public JenkinsManager(String protocol, String host, int port, String username, String password,
+            HttpExecutor executor)
+            throws ClientProtocolException, URISyntaxException, IOException {
+        this(String.format("%s://%s:%d", protocol, host, port), username, password, executor);
+    }
+
     /**
      * Creates a jenkins job with a given name using the XML data as input for job configuration
      *
@@ -87,32 +172,63 @@ public class JenkinsManager {
      * @throws Exception
      */
     public boolean createJob(String jobName, String jobXmlData) throws Exception {
-        HttpRequest httpRequest = new HttpRequest(HttpMethod.POST);
-        boolean success = false;
-
-        if (StringUtils.isEmpty(jobName)) {
-            throw new JenkinsManagerException("A job is no one! Jenkins do not like no one!");
-        }
+        return createJob(jobName, httpRequest -> httpRequest.setBody(jobXmlData), jobXmlData);
+    }
 
-        httpRequest.setBaseUrl(jenkinsBaseUrl)
-                   .addHeader("Authorization", "Basic " + encoding)
-                   .addHeader("Content-type", MediaType.APPLICATION_XML)
-                   .addHeader("Jenkins-Crumb", crumb)
-                   .addParameter("name", jobName)
-                   .setBody(jobXmlData)
-                   .setEndpoint("/createItem");
+    /**
+     * Creates a jenkins job with a given name using the XML data as input for job configuration.
+     * The XML is rendered straight into the request body.
+     *
+     * @param jobName    :: Name of job as String
+     * @param jobXmlData :: XML data as JenkinsXmlData
+     * @return
+     * @throws Exception
+     */
+    public boolean createJob(String jobName, JenkinsXmlData jobXmlData) throws Exception {
+        return createJob(jobName, (ContentProducer) jobXmlData::writeTo);
+    }
 
-        ResponseEntity response = httpRequest.performRequest();
-        success = response.getStatusCode() == HttpStatus.SC_OK;
+    /**
+     * Creates a jenkins job with a given name using the XML data read from a stream as input for
+     * job configuration. The stream is sent as it is read and closed afterwards.
+     *
+     * @param jobName    :: Name of job as String
+     * @param jobXmlData :: XML data as InputStream
+     * @return
+     * @throws Exception
+     */
+    public boolean createJob(String jobName, InputStream jobXmlData) throws Exception {
+        return createJob(jobName, httpRequest -> httpRequest.setBody(jobXmlData, XML_CONTENT_TYPE),
+                "<stream>");
+    }
 
-        if (!success) {
-            String message = String.format(
-                    "Failed to create a jenkins job with name %s using jenkins crumb %s.\nAnd job data:\n%s\nStatus code was: %s.",
-                    jobName, crumb, jobXmlData, response.getStatusCodeValue());
-            throw new JenkinsManagerException(message);
-        }
+    /**
+     * Creates a jenkins job with a given name using the XML data in a file as input for job
+     * configuration. The file is streamed into the request body.
+     *
+     * @param jobName    :: Name of job as String
+     * @param jobXmlFile :: Path of a file containing the XML data
+     * @return
+     * @throws Exception
+     */
+    public boolean createJob(String jobName, Path jobXmlFile) throws Exception {
+        return createJob(jobName, httpRequest -> httpRequest.setBody(jobXmlFile, XML_CONTENT_TYPE),
+                "<file " + jobXmlFile + ">");
+    }
 
-        return success;
+    /**
+     * Creates a jenkins job with a given name using XML data written by a callback as input for
+     * job configuration. The callback writes straight into the request body, and is called again
+     * if the request has to be repeated.
+     *
+     * @param jobName        :: Name of job as String
+     * @param jobXmlProducer :: Callback writing the UTF-8 encoded XML data
+     * @return
+     * @throws Exception
+     */
+    public boolean createJob(String jobName, ContentProducer jobXmlProducer) throws Exception {
+        return createJob(jobName,
+                httpRequest -> httpRequest.setBody(jobXmlProducer, XML_CONTENT_TYPE), "<streamed>");
     }
 
     /**
@@ -144,9 +260,15 @@ public class JenkinsManager {
      */
     public boolean buildJob(String jobName, String jobToken) throws Exception {
         String buildType = "build";
-        boolean success = executeJobTriggering(jobName, jobToken, buildType,
-                MediaType.APPLICATION_FORM_URLENCODED,
-                null, null);
+        long startTime = System.nanoTime();
+        boolean success = false;
+        try {
+            success = executeJobTriggering(jobName, jobToken, buildType,
+                    MediaType.APPLICATION_FORM_URLENCODED,
+                    null, null);
+        } finally {
+            recordOperation("buildJob", startTime, success);
+        }
 
         return success;
     }
@@ -163,10 +285,16 @@ public class JenkinsManager {
     public boolean buildJobWithFormPostParams(String jobName, String jobToken, String body)
             throws Exception {
         String buildType = "build";
-        HttpRequest httpRequest = new HttpRequest(HttpMethod.POST);
-        boolean success = executeJobTriggering(jobName, jobToken, buildType,
-                MediaType.APPLICATION_FORM_URLENCODED,
-                null, body, httpRequest);
+        HttpRequest httpRequest = requestTemplate.newRequest(HttpMethod.POST);
+        long startTime = System.nanoTime();
+        boolean success = false;
+        try {
+            success = executeJobTriggering(jobName, jobToken, buildType,
+                    MediaType.APPLICATION_FORM_URLENCODED,
+                    null, body, httpRequest);
+        } finally {
+            recordOperation("buildJobWithFormPostParams", startTime, success);
+        }
 
         return success;
     }
@@ -184,13 +312,72 @@ public class JenkinsManager {
             Map<String, String> parameters)
             throws Exception {
         String buildType = "buildWithParameters";
-        boolean success = executeJobTriggering(jobName, jobToken, buildType,
-                MediaType.APPLICATION_JSON, parameters,
-                null);
+        long startTime = System.nanoTime();
+        boolean success = false;
+        try {
+            success = executeJobTriggering(jobName, jobToken, buildType,
+                    MediaType.APPLICATION_JSON, parameters,
+                    null);
+        } finally {
+            recordOperation("buildJobWithParameters", startTime, success);
+        }
 
         return success;
     }
 
+    /**
+     * This function triggers a batch of jenkins jobs concurrently, with at most the given number of
+     * trigger requests in flight at the same time. Jobs with parameters are triggered with
+     * buildWithParameters, others with build. A failing job does not fail the batch, the outcome of
+     * each job is returned in the same order as the given triggers.
+     *
+     * The triggers are sent with the AsyncHttpExecutor of this JenkinsManager, so no thread is
+     * created or held per trigger. The parallelism may not exceed the connections per host of that
+     * executor, see setAsyncExecutor.
+     *
+     * @param triggers    :: The jobs to trigger
+     * @param parallelism :: Maximum number of concurrent trigger requests
+     * @return List of JenkinsJobTriggerResult
+     * @throws JenkinsManagerException
+     */
+    public List<JenkinsJobTriggerResult> buildJobs(Collection<JenkinsJobTrigger> triggers,
+            int parallelism) throws JenkinsManagerException {
+        if (parallelism < 1) {
+            throw new JenkinsManagerException("Parallelism must be at least 1, was " + parallelism + ".");
+        }
+        int maxConnectionsPerRoute = getAsyncExecutor().getMaxConnectionsPerRoute();
+        if (parallelism > maxConnectionsPerRoute) {
+            throw new JenkinsManagerException("Parallelism " + parallelism
+                    + " exceeds the " + maxConnectionsPerRoute
+                    + " connections per host of the asynchronous executor.");
+        }
+
+        List<JenkinsJobTrigger> pendingTriggers = new ArrayList<>(triggers);
+        List<CompletableFuture<JenkinsJobTriggerResult>> resultFutures = new ArrayList<>();
+        for (int i = 0; i < pendingTriggers.size(); i++) {
+            resultFutures.add(new CompletableFuture<>());
+        }
+        AtomicInteger nextTrigger = new AtomicInteger();
+        for (int i = 0; i < Math.min(parallelism, pendingTriggers.size()); i++) {
+            triggerNextJob(pendingTriggers, resultFutures, nextTrigger);
+        }
+
+        List<JenkinsJobTriggerResult> results = new ArrayList<>();
+        try {
+            for (CompletableFuture<JenkinsJobTriggerResult> resultFuture : resultFutures) {
+                results.add(resultFuture.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                  .interrupt();
+            throw new JenkinsManagerException("Interrupted while triggering jenkins jobs.", e);
+        } catch (ExecutionException e) {
+            throw new JenkinsManagerException("Failed to trigger jenkins jobs.", e.getCause());
+        }
+
+        return results;
+    }
+
     /**
      * This function recieves a jenkins job name and and a build number, then returns the build
      * status as JSONObject.
@@ -202,35 +389,74 @@ public class JenkinsManager {
      */
     public JSONObject getJenkinsBuildStatusData(String jobName, Integer buildNumber)
             throws Exception {
-        boolean dataRecieved = false;
-        String buildNumberString = "lastBuild";
-        HttpRequest httpRequest = new HttpRequest(HttpMethod.GET);
+        return getJenkinsBuildStatusData(jobName, buildNumber, null);
+    }
 
-        if (StringUtils.isEmpty(jobName)) {
-            throw new JenkinsManagerException("Cannot get job data without a job name.");
-        }
-        if (buildNumber != null) {
-            buildNumberString = buildNumber.toString();
-        }
-        String endpoint = "/job/" + jobName + "/" + buildNumberString + "/api/json";
+    /**
+     * This function recieves a jenkins job name, a build number and a tree filter, then returns
+     * the build status limited to the fields selected by the tree filter, e.g.
+     * "result,building,duration,number".
+     *
+     * @param jobName     :: Name of job as String
+     * @param buildNumber :: build number as Integer, defaults to lastBuild
+     * @param tree        :: Jenkins tree filter as String, or null to get all fields
+     * @return JSONObject
+     * @throws Exception
+     */
+    public JSONObject getJenkinsBuildStatusData(String jobName, Integer buildNumber, String tree)
+            throws Exception {
+        long startTime = System.nanoTime();
+        boolean operationSucceeded = false;
+        try {
+            boolean dataRecieved = false;
+            String buildNumberString = "lastBuild";
+            HttpRequest httpRequest = requestTemplate.newRequest(HttpMethod.GET);
 
-        httpRequest.setBaseUrl(jenkinsBaseUrl)
-                   .addHeader("Authorization", "Basic " + encoding)
-                   .addHeader("Content-type", MediaType.APPLICATION_JSON)
-                   .setEndpoint(endpoint);
+            if (StringUtils.isEmpty(jobName)) {
+                throw new JenkinsManagerException("Cannot get job data without a job name.");
+            }
+            if (buildNumber != null) {
+                buildNumberString = buildNumber.toString();
+            }
+            httpRequest.addHeader("Content-type", MediaType.APPLICATION_JSON)
+                       .setTemplatedEndpoint("/job/{jobName}/{buildNumber}/api/json", jobName,
+                               buildNumberString);
+            if (tree != null) {
+                httpRequest.addParameter("tree", tree);
+            }
 
-        ResponseEntity response = httpRequest.performRequest();
-        dataRecieved = response.getStatusCode() == HttpStatus.SC_OK;
+            ResponseEntity response = httpRequest.performRequest();
+            dataRecieved = response.getStatusCode() == HttpStatus.SC_OK;
 
-        if (!dataRecieved) {
-            String message = String.format(
-                    "Failed to get status data from job %s and build %s. Status code: %s. Possibly not built yet.",
-                    jobName, buildNumberString, response.getStatusCodeValue());
-            throw new JenkinsManagerException(message);
+            if (!dataRecieved) {
+                String message = String.format(
+                        "Failed to get status data from job %s and build %s. Status code: %s. Possibly not built yet.",
+                        jobName, buildNumberString, response.getStatusCodeValue());
+                throw new JenkinsManagerException(message);
+            }
+
+            JSONObject jsonObj = new JSONObject(response.getBody());
+            operationSucceeded = true;
+            return jsonObj;
+        } finally {
+            recordOperation("getJenkinsBuildStatusData", startTime, operationSucceeded);
         }
+    }
 
-        JSONObject jsonObj = new JSONObject(response.getBody());
-        return jsonObj;
+    /**
+     * This function recieves a jenkins job name and a build number, then returns the typed build
+     * status. Only the fields needed for the status are fetched from jenkins.
+     *
+     * @param jobName     :: Name of job as String
+     * @param buildNumber :: build number as Integer, defaults to lastBuild
+     * @return JenkinsBuildStatus
+     * @throws Exception
+     */
+    public JenkinsBuildStatus getJenkinsBuildStatus(String jobName, Integer buildNumber)
+            throws Exception {
+        JSONObject statusData = getJenkinsBuildStatusData(jobName, buildNumber,
+                JenkinsBuildStatus.TREE);
+        return JenkinsBuildStatus.fromJson(statusData);
     }
 
     /**
@@ -244,6 +470,39 @@ public class JenkinsManager {
         return getJenkinsBuildStatusData(jobName, null);
     }
 
+    /**
+     * This function recieves a jenkins job name and a tree filter, then returns the job data
+     * limited to the fields selected by the tree filter, e.g.
+     * "builds[number,result,building]{0,10}".
+     *
+     * @param jobName :: Name of job as String
+     * @param tree    :: Jenkins tree filter as String
+     * @return JSONObject
+     * @throws Exception
+     */
+    public JSONObject getJenkinsJobData(String jobName, String tree) throws Exception {
+        HttpRequest httpRequest = requestTemplate.newRequest(HttpMethod.GET);
+
+        if (StringUtils.isEmpty(jobName)) {
+            throw new JenkinsManagerException("Cannot get job data without a job name.");
+        }
+        httpRequest.addHeader("Content-type", MediaType.APPLICATION_JSON)
+                   .addParameter("tree", tree)
+                   .setTemplatedEndpoint("/job/{jobName}/api/json", jobName);
+
+        ResponseEntity response = httpRequest.performRequest();
+        boolean dataRecieved = response.getStatusCode() == HttpStatus.SC_OK;
+
+        if (!dataRecieved) {
+            String message = String.format(
+                    "Failed to get data from job %s. Status code: %s.",
+                    jobName, response.getStatusCodeValue());
+            throw new JenkinsManagerException(message);
+        }
+
+        return new JSONObject(response.getBody());
+    }
+
     /**
      *
      * This function recieves a jenkins job name and deletes that job from the jenkins system
@@ -254,20 +513,15 @@ public class JenkinsManager {
      */
     public boolean deleteJob(String jobName) throws Exception {
         boolean isDeleted = false;
-        HttpRequest httpRequest = new HttpRequest(HttpMethod.POST);
+        HttpRequest httpRequest = requestTemplate.newRequest(HttpMethod.POST);
         if (StringUtils.isEmpty(jobName)) {
             throw new JenkinsManagerException("Undefined job cannot be deleted from jenkins.");
         }
 
-        String endpoint = "/job/" + jobName + "/doDelete";
-
-        httpRequest.setBaseUrl(jenkinsBaseUrl)
-                   .addHeader("Authorization", "Basic " + encoding)
-                   .addHeader("Content-type", MediaType.APPLICATION_JSON)
-                   .addHeader("Jenkins-Crumb", crumb)
-                   .setEndpoint(endpoint);
+        httpRequest.addHeader("Content-type", MediaType.APPLICATION_JSON)
+                   .setTemplatedEndpoint("/job/{jobName}/doDelete", jobName);
 
-        ResponseEntity response = httpRequest.performRequest();
+        ResponseEntity response = performRequestWithCrumb(httpRequest);
         isDeleted = response.getStatusCode() == HttpStatus.SC_MOVED_TEMPORARILY;
 
         if (!isDeleted) {
@@ -287,13 +541,62 @@ public class JenkinsManager {
      * @throws Exception
      */
     public boolean pluginExists(String plugin) throws Exception {
-        boolean pluginExists = false;
+        return getPluginInventory().contains(plugin);
+    }
+
+    /**
+     * Detect which of the given plugins jenkins has. All plugins are checked against the same
+     * plugin inventory, so at most one request is sent to jenkins.
+     *
+     * @param plugins :: Plugin names
+     * @return Map of plugin name to true if the plugin exists, in the order of the given plugins
+     * @throws Exception
+     */
+    public Map<String, Boolean> pluginsExist(Collection<String> plugins) throws Exception {
+        JenkinsPluginInventory inventory = getPluginInventory();
+        Map<String, Boolean> existingPlugins = new LinkedHashMap<>();
+        for (String plugin : plugins) {
+            existingPlugins.put(plugin, inventory.contains(plugin));
+        }
+
+        return existingPlugins;
+    }
+
+    /**
+     * Returns the plugin inventory of jenkins. The inventory is cached and only fetched again when
+     * it is older than the plugin inventory TTL, or after it has been invalidated by
+     * installPlugin, restartJenkins or invalidatePluginInventory.
+     *
+     * @return JenkinsPluginInventory
+     * @throws Exception
+     */
+    public JenkinsPluginInventory getPluginInventory() throws Exception {
+        JenkinsPluginInventory inventory = pluginInventory;
+        if (inventory == null || inventory.isExpired(pluginInventoryTtlMillis)) {
+            inventory = new JenkinsPluginInventory(getInstalledPlugins());
+            pluginInventory = inventory;
+        }
 
-        HttpRequest httpRequest = new HttpRequest(HttpMethod.GET);
-        httpRequest.setBaseUrl(jenkinsBaseUrl)
-                   .addHeader("Authorization", "Basic " + encoding)
-                   .addParameter("depth", "1")
-                   .addParameter("wrapper", "plugins")
+        return inventory;
+    }
+
+    /**
+     * Discards the cached plugin inventory, the next plugin check fetches it from jenkins.
+     */
+    public void invalidatePluginInventory() {
+        pluginInventory = null;
+    }
+
+    /**
+     * Fetches the short names and versions of all plugins installed in jenkins. Only these two
+     * fields are fetched, instead of the full plugin data.
+     *
+     * @return Map of plugin short name to version, in the order returned by jenkins
+     * @throws Exception
+     */
+    public Map<String, String> getInstalledPlugins() throws Exception {
+        HttpRequest httpRequest = requestTemplate.newRequest(HttpMethod.GET);
+        httpRequest.addParameter("tree", PLUGINS_TREE)
                    .setEndpoint("/pluginManager/api/json");
 
         ResponseEntity response = httpRequest.performRequest();
@@ -308,16 +611,14 @@ public class JenkinsManager {
         JSONObject responseData = new JSONObject(response.getBody());
         JSONArray pluginList = responseData.getJSONArray("plugins");
 
+        Map<String, String> installedPlugins = new LinkedHashMap<>();
         for (int i = 0; i < pluginList.length(); i++) {
-            String foundPlugin = pluginList.getJSONObject(i)
-                                           .getString("shortName");
-            if (plugin.equalsIgnoreCase(foundPlugin)) {
-                pluginExists = true;
-                break;
-            }
+            JSONObject foundPlugin = pluginList.getJSONObject(i);
+            installedPlugins.put(foundPlugin.getString("shortName"),
+                    foundPlugin.optString("version", null));
         }
 
-        return pluginExists;
+        return installedPlugins;
     }
 
     /**
@@ -329,36 +630,113 @@ public class JenkinsManager {
      * @throws Exception
      */
     public boolean installPlugin(String plugin, String version) throws Exception {
-        HttpRequest httpRequest = new HttpRequest(HttpMethod.POST);
-        boolean success = false;
+        long startTime = System.nanoTime();
+        boolean operationSucceeded = false;
+        try {
+            HttpRequest httpRequest = requestTemplate.newRequest(HttpMethod.POST);
+            boolean success = false;
 
-        if (StringUtils.isEmpty(plugin)) {
-            throw new JenkinsManagerException("Undefined plugin cannot be added to jenkins.");
-        }
-        if (StringUtils.isEmpty(version)) {
-            throw new JenkinsManagerException("A version must be speciified for the Jenkins Plugin.");
-        }
+            if (StringUtils.isEmpty(plugin)) {
+                throw new JenkinsManagerException("Undefined plugin cannot be added to jenkins.");
+            }
+            if (StringUtils.isEmpty(version)) {
+                throw new JenkinsManagerException("A version must be speciified for the Jenkins Plugin.");
+            }
 
-        String scriptData = createInstallPluginScript(plugin, version);
+            String scriptData = createInstallPluginScript(plugin, version);
 
-        httpRequest.setBaseUrl(jenkinsBaseUrl)
-                   .addHeader("Authorization", "Basic " + encoding)
-                   .addHeader("Content-type", MediaType.TEXT_XML)
-                   .addHeader("Jenkins-Crumb", crumb)
-                   .setBody(scriptData)
-                   .setEndpoint("/pluginManager/installNecessaryPlugins");
+            httpRequest.addHeader("Content-type", MediaType.TEXT_XML)
+                       .setBody(scriptData)
+                       .setEndpoint("/pluginManager/installNecessaryPlugins");
 
-        ResponseEntity response = httpRequest.performRequest();
-        success = response.getStatusCode() == HttpStatus.SC_MOVED_TEMPORARILY;
+            ResponseEntity response = performRequestWithCrumb(httpRequest);
+            invalidatePluginInventory();
+            success = response.getStatusCode() == HttpStatus.SC_MOVED_TEMPORARILY;
 
-        if (!success) {
-            String message = String.format(
-                    "Failed to add a plugin with name %s and version %s to Jenkins. Response code: %s and body: %s",
-                    plugin, version, response.getStatusCodeValue(), response.getBody());
-            throw new JenkinsManagerException(message);
+            if (!success) {
+                String message = String.format(
+                        "Failed to add a plugin with name %s and version %s to Jenkins. Response code: %s and body: %s",
+                        plugin, version, response.getStatusCodeValue(), response.getBody());
+                throw new JenkinsManagerException(message);
+            }
+
+            operationSucceeded = true;
+            return success;
+        } finally {
+            recordOperation("installPlugin", startTime, operationSucceeded);
         }
+    }
 
-        return success;
+    /**
+     * Installs several plugins with a single request to jenkins, then waits until jenkins has
+     * finished installing all of them. Jenkins is not restarted, see installPlugins(Map, boolean).
+     *
+     * @param plugins :: Map of plugin name to version
+     * @return true if all plugins were installed
+     * @throws Exception
+     */
+    public boolean installPlugins(Map<String, String> plugins) throws Exception {
+        return installPlugins(plugins, false);
+    }
+
+    /**
+     * Installs several plugins with a single request to jenkins, then waits until jenkins has
+     * finished installing all of them. If restartIfRequired is true and any of the plugins
+     * requires a restart to be activated, jenkins is restarted once after all installations have
+     * completed.
+     *
+     * @param plugins           :: Map of plugin name to version
+     * @param restartIfRequired :: Whether jenkins should be restarted if the plugins require it
+     * @return true if all plugins were installed, and jenkins was restarted if required
+     * @throws Exception
+     */
+    public boolean installPlugins(Map<String, String> plugins, boolean restartIfRequired)
+            throws Exception {
+        long startTime = System.nanoTime();
+        boolean operationSucceeded = false;
+        try {
+            if (plugins == null || plugins.isEmpty()) {
+                throw new JenkinsManagerException("No plugins given to add to jenkins.");
+            }
+            for (Map.Entry<String, String> plugin : plugins.entrySet()) {
+                if (StringUtils.isEmpty(plugin.getKey())) {
+                    throw new JenkinsManagerException("Undefined plugin cannot be added to jenkins.");
+                }
+                if (StringUtils.isEmpty(plugin.getValue())) {
+                    throw new JenkinsManagerException(
+                            "A version must be speciified for the Jenkins Plugin " + plugin.getKey() + ".");
+                }
+            }
+
+            int lastJobId = getLastUpdateCenterJobId(getUpdateCenterData());
+
+            HttpRequest httpRequest = requestTemplate.newRequest(HttpMethod.POST);
+            httpRequest.addHeader("Content-type", MediaType.TEXT_XML)
+                       .setBody(createInstallPluginsScript(plugins))
+                       .setEndpoint("/pluginManager/installNecessaryPlugins");
+
+            ResponseEntity response = performRequestWithCrumb(httpRequest);
+            invalidatePluginInventory();
+            boolean success = response.getStatusCode() == HttpStatus.SC_MOVED_TEMPORARILY;
+
+            if (!success) {
+                String message = String.format(
+                        "Failed to add plugins %s to Jenkins. Response code: %s and body: %s",
+                        plugins.keySet(), response.getStatusCodeValue(), response.getBody());
+                throw new JenkinsManagerException(message);
+            }
+
+            boolean restartRequired = waitForPluginInstallation(lastJobId);
+            if (restartRequired && restartIfRequired) {
+                operationSucceeded = restartJenkins();
+                return operationSucceeded;
+            }
+
+            operationSucceeded = true;
+            return true;
+        } finally {
+            recordOperation("installPlugins", startTime, operationSucceeded);
+        }
     }
 
     /**
@@ -368,18 +746,37 @@ public class JenkinsManager {
      * @throws Exception
      */
     public boolean restartJenkins() throws Exception {
+        requestRestart();
+        return verifyJenkinsRestart();
+    }
+
+    /**
+     * Triggers a restart of jenkins and returns a future that completes when jenkins is ready
+     * again, see waitForRestart. Only the restart request itself is sent on the calling thread.
+     *
+     * @return CompletableFuture with the JenkinsRestartResult
+     * @throws Exception if jenkins did not accept the restart request
+     */
+    public CompletableFuture<JenkinsRestartResult> restartJenkinsAsync() throws Exception {
+        requestRestart();
+        return waitForRestart();
+    }
+
+    /**
+     * Sends the safe restart request to jenkins.
+     *
+     * @throws Exception if jenkins did not accept the request
+     */
+    private void requestRestart() throws Exception {
         boolean success = false;
-        boolean restartVerified = false;
 
         ResponseEntity response = null;
-        HttpRequest httpRequest = new HttpRequest(HttpMethod.POST);
-        httpRequest.setBaseUrl(jenkinsBaseUrl)
-                   .addHeader("Authorization", "Basic " + encoding)
-                   .addHeader("Content-type", MediaType.APPLICATION_JSON)
-                   .addHeader("Jenkins-Crumb", crumb)
+        HttpRequest httpRequest = requestTemplate.newRequest(HttpMethod.POST);
+        httpRequest.addHeader("Content-type", MediaType.APPLICATION_JSON)
                    .setEndpoint("/safeRestart");
 
-        response = httpRequest.performRequest();
+        response = performRequestWithCrumb(httpRequest);
+        invalidatePluginInventory();
         success = response.getStatusCode() == HttpStatus.SC_MOVED_TEMPORARILY;
 
         if (!success) {
@@ -388,10 +785,35 @@ public class JenkinsManager {
                     response.getStatusCodeValue(), response.getBody());
             throw new JenkinsManagerException(message);
         }
+    }
 
-        restartVerified = verifyJenkinsRestart();
-
-        return success && restartVerified;
+    /**
+     * Waits for jenkins to be ready after a restart has been requested, without blocking the
+     * calling thread. Jenkins is polled with backoff according to the restart policy of this
+     * manager, and the returned future completes with the observed downtime and time to ready.
+     * If jenkins is not ready within the timeout of the policy the future completes exceptionally
+     * with a JenkinsManagerException.
+     *
+     * The polls are sent with the AsyncHttpExecutor of this manager. The downtime and time to
+     * ready are recorded as the operations restartDowntime and restartTimeToReady.
+     *
+     * @return CompletableFuture with the JenkinsRestartResult
+     */
+    public CompletableFuture<JenkinsRestartResult> waitForRestart() {
+        long startTime = System.nanoTime();
+        JenkinsRestartPolicy policy = restartPolicy;
+        JenkinsRestartWaiter waiter = new JenkinsRestartWaiter(() -> {
+            HttpRequest httpRequest = requestTemplate.newRequest(HttpMethod.GET);
+            // The waiter retries with its own backoff, a retry inside a poll would only delay it
+            httpRequest.addParameter("tree", "quietingDown")
+                       .setTimeouts(policy.getConnectTimeoutMillis(), policy.getSocketTimeoutMillis())
+                       .setRetryPolicy(RetryPolicy.noRetry())
+                       .setEndpoint("/api/json");
+            return httpRequest.performRequestAsync();
+        }, policy);
+        CompletableFuture<JenkinsRestartResult> result = waiter.start();
+        result.whenComplete((restartResult, throwable) -> recordRestart(restartResult, startTime));
+        return result;
     }
 
     public String getJenkinsBaseUrl() {
@@ -403,7 +825,160 @@ public class JenkinsManager {
     }
 
     public String getCrumb() {
-        return this.crumb;
+        return crumbCache.peekValue();
+    }
+
+    /**
+     * Sets how long a fetched crumb is reused before a new one is fetched from jenkins.
+     *
+     * @param crumbTtlMillis :: Time to live of the crumb in milliseconds
+     */
+    public void setCrumbTtl(long crumbTtlMillis) {
+        crumbCache.setTtlMillis(crumbTtlMillis);
+    }
+
+    public long getCrumbTtl() {
+        return crumbCache.getTtlMillis();
+    }
+
+    /**
+     * Sets how long a fetched plugin inventory is reused before it is fetched again from jenkins.
+     *
+     * @param pluginInventoryTtlMillis :: Time to live of the plugin inventory in milliseconds
+     */
+    public void setPluginInventoryTtl(long pluginInventoryTtlMillis) {
+        this.pluginInventoryTtlMillis = pluginInventoryTtlMillis;
+    }
+
+    public long getPluginInventoryTtl() {
+        return this.pluginInventoryTtlMillis;
+    }
+
+    /**
+     * Sets how restartJenkins and waitForRestart poll jenkins while it restarts.
+     *
+     * @param restartPolicy :: Timeout, backoff and connection timeouts of the restart wait
+     */
+    public void setRestartPolicy(JenkinsRestartPolicy restartPolicy) {
+        this.restartPolicy = restartPolicy;
+    }
+
+    public JenkinsRestartPolicy getRestartPolicy() {
+        return this.restartPolicy;
+    }
+
+    /**
+     * Sets how installPlugin and installPlugins poll jenkins while it installs the plugins.
+     *
+     * @param pluginInstallPolicy :: Timeout and backoff of the installation wait
+     */
+    public void setPluginInstallPolicy(JenkinsPluginInstallPolicy pluginInstallPolicy) {
+        this.pluginInstallPolicy = pluginInstallPolicy;
+    }
+
+    public JenkinsPluginInstallPolicy getPluginInstallPolicy() {
+        return this.pluginInstallPolicy;
+    }
+
+    public HttpExecutor getExecutor() {
+        return this.executor;
+    }
+
+    /**
+     * Sets the executor of the asynchronous requests towards jenkins, e.g. the job triggers of
+     * buildJobs. By default the shared AsyncHttpExecutor is used.
+     *
+     * @param asyncExecutor :: AsyncHttpExecutor, or null for the shared one
+     */
+    public void setAsyncExecutor(AsyncHttpExecutor asyncExecutor) {
+        this.requestTemplate = requestTemplate.toBuilder()
+                                              .setAsyncExecutor(asyncExecutor)
+                                              .build();
+    }
+
+    public AsyncHttpExecutor getAsyncExecutor() {
+        return requestTemplate.getAsyncExecutor() != null ? requestTemplate.getAsyncExecutor()
+                : AsyncHttpExecutor.getInstance();
+    }
+
+    /**
+     * Creates a jenkins job, the body of the request is set by the given setter.
+     *
+     * @param jobName     :: Name of job as String
+     * @param bodySetter  :: Sets the XML data as body of the request
+     * @param jobDataText :: The XML data, or a description of it, used in error messages
+     * @return
+     * @throws Exception
+     */
+    private boolean createJob(String jobName, BodySetter bodySetter, String jobDataText)
+            throws Exception {
+        long startTime = System.nanoTime();
+        boolean operationSucceeded = false;
+        try {
+            HttpRequest httpRequest = requestTemplate.newRequest(HttpMethod.POST);
+            boolean success = false;
+
+            if (StringUtils.isEmpty(jobName)) {
+                throw new JenkinsManagerException("A job is no one! Jenkins do not like no one!");
+            }
+
+            httpRequest.addHeader("Content-type", MediaType.APPLICATION_XML)
+                       .addParameter("name", jobName)
+                       .setEndpoint("/createItem");
+            bodySetter.setBody(httpRequest);
+
+            ResponseEntity response = performRequestWithCrumb(httpRequest);
+            success = response.getStatusCode() == HttpStatus.SC_OK;
+
+            if (!success) {
+                String message = String.format(
+                        "Failed to create a jenkins job with name %s using jenkins crumb %s.\nAnd job data:\n%s\nStatus code was: %s.",
+                        jobName, getCrumb(), jobDataText, response.getStatusCodeValue());
+                throw new JenkinsManagerException(message);
+            }
+
+            operationSucceeded = true;
+            return success;
+        } finally {
+            recordOperation("createJob", startTime, operationSucceeded);
+        }
+    }
+
+    /**
+     * Performs a request that requires a crumb. If jenkins rejects the crumb of the request the
+     * crumb is renewed once and the request retried, provided that its body can be sent again.
+     *
+     * @param httpRequest
+     * @return ResponseEntity
+     * @throws URISyntaxException
+     * @throws IOException
+     */
+    private ResponseEntity performRequestWithCrumb(HttpRequest httpRequest)
+            throws URISyntaxException, IOException {
+        JenkinsCrumbCache.Crumb usedCrumb = crumbCache.get();
+        httpRequest.setHeader(CRUMB_HEADER, usedCrumb.getValue());
+        ResponseEntity response = httpRequest.performRequest();
+
+        if (isCrumbRejected(response) && httpRequest.isRepeatable()) {
+            JenkinsCrumbCache.Crumb renewedCrumb = crumbCache.renew(usedCrumb);
+            httpRequest.setHeader(CRUMB_HEADER, renewedCrumb.getValue());
+            response = httpRequest.performRequest();
+        }
+
+        return response;
+    }
+
+    /**
+     * Checks if jenkins rejected a request because of its crumb. Other 403 responses, e.g. for a
+     * user lacking a permission, would be rejected again with a renewed crumb.
+     *
+     * @param response
+     * @return boolean
+     */
+    private boolean isCrumbRejected(ResponseEntity response) {
+        return response.getStatusCode() == HttpStatus.SC_FORBIDDEN
+                && (StringUtils.contains(response.getReasonPhrase(), CRUMB_REJECTED_MESSAGE)
+                        || StringUtils.contains(response.getBody(), CRUMB_REJECTED_MESSAGE));
     }
 
     /**
@@ -422,7 +997,7 @@ public class JenkinsManager {
             String mediatype,
             Map<String, String> parameters, String body)
             throws Exception {
-        HttpRequest httpRequest = new HttpRequest(HttpMethod.GET);
+        HttpRequest httpRequest = requestTemplate.newRequest(HttpMethod.GET);
         boolean success = executeJobTriggering(jobName, jobToken, buildType, mediatype, parameters, body, httpRequest);
         return success;
     }
@@ -444,8 +1019,58 @@ public class JenkinsManager {
             String mediatype,
             Map<String, String> parameters, String body, HttpRequest httpRequest)
             throws Exception {
+        ResponseEntity response = performJobTriggering(jobName, jobToken, buildType, mediatype,
+                parameters, body, httpRequest);
+        Boolean success = response.getStatusCode() == HttpStatus.SC_CREATED;
+
+        if (!success) {
+            String message = String.format(
+                    "Failed to trigger a jenkins job %s using token %s Status code: %s.", jobName,
+                    jobToken, response.getStatusCodeValue());
+            throw new JenkinsManagerException(message);
+        }
+        return success;
+    }
+
+    /**
+     * Performs the job triggering request with given parameters or body if any, without checking
+     * the status of the response.
+     *
+     * @param jobName
+     * @param jobToken
+     * @param buildType
+     * @param mediatype
+     * @param parameters
+     * @param body
+     * @param httpRequest
+     * @return ResponseEntity
+     * @throws Exception
+     */
+    private ResponseEntity performJobTriggering(String jobName, String jobToken, String buildType,
+            String mediatype,
+            Map<String, String> parameters, String body, HttpRequest httpRequest)
+            throws Exception {
+        prepareJobTriggering(jobName, jobToken, buildType, mediatype, parameters, body,
+                httpRequest);
+        return httpRequest.performRequest();
+    }
+
+    /**
+     * Sets the endpoint, parameters and body of a job triggering request.
+     *
+     * @param jobName
+     * @param jobToken
+     * @param buildType
+     * @param mediatype
+     * @param parameters
+     * @param body
+     * @param httpRequest
+     * @throws Exception
+     */
+    private void prepareJobTriggering(String jobName, String jobToken, String buildType,
+            String mediatype, Map<String, String> parameters, String body,
+            HttpRequest httpRequest) throws Exception {
         jobNameTokenValidation(jobName, jobToken);
-        String endpoint = "/job/" + jobName + "/" + buildType;
 
         if (parameters != null) {
             httpRequest.addParameters(parameters);
@@ -454,22 +1079,93 @@ public class JenkinsManager {
             httpRequest.setBody(body);
         }
 
-        httpRequest.setBaseUrl(jenkinsBaseUrl)
-                   .addHeader("Authorization", "Basic " + encoding)
-                   .addHeader("Content-type", mediatype)
+        httpRequest.addHeader("Content-type", mediatype)
                    .addParameter("token", jobToken)
-                   .setEndpoint(endpoint);
+                   .setTemplatedEndpoint("/job/{jobName}/" + buildType, jobName);
+    }
 
-        ResponseEntity response = httpRequest.performRequest();
-        Boolean success = response.getStatusCode() == HttpStatus.SC_CREATED;
+    /**
+     * Triggers the next job of a batch, and the one after it when its trigger has completed. The
+     * continuation runs on the common pool rather than on an I/O reactor thread.
+     *
+     * @param triggers      :: All triggers of the batch
+     * @param resultFutures :: Results of the batch, in the order of the triggers
+     * @param nextTrigger   :: Index of the next trigger to send
+     */
+    private void triggerNextJob(List<JenkinsJobTrigger> triggers,
+            List<CompletableFuture<JenkinsJobTriggerResult>> resultFutures,
+            AtomicInteger nextTrigger) {
+        int index = nextTrigger.getAndIncrement();
+        if (index >= triggers.size()) {
+            return;
+        }
 
-        if (!success) {
-            String message = String.format(
-                    "Failed to trigger a jenkins job %s using token %s Status code: %s.", jobName,
-                    jobToken, response.getStatusCodeValue());
-            throw new JenkinsManagerException(message);
+        triggerJobAsync(triggers.get(index)).whenCompleteAsync((result, throwable) -> {
+            resultFutures.get(index)
+                         .complete(result);
+            triggerNextJob(triggers, resultFutures, nextTrigger);
+        });
+    }
+
+    /**
+     * Triggers a single job of a batch and records the outcome instead of failing.
+     *
+     * @param trigger
+     * @return CompletableFuture with the JenkinsJobTriggerResult, never completed exceptionally
+     */
+    private CompletableFuture<JenkinsJobTriggerResult> triggerJobAsync(JenkinsJobTrigger trigger) {
+        long startTime = System.nanoTime();
+        CompletableFuture<ResponseEntity> responseFuture;
+        try {
+            String buildType = trigger.hasParameters() ? "buildWithParameters" : "build";
+            String mediatype = trigger.hasParameters() ? MediaType.APPLICATION_JSON
+                    : MediaType.APPLICATION_FORM_URLENCODED;
+            HttpRequest httpRequest = requestTemplate.newRequest(HttpMethod.GET);
+            prepareJobTriggering(trigger.getJobName(), trigger.getJobToken(), buildType, mediatype,
+                    trigger.getParameters(), null, httpRequest);
+            responseFuture = httpRequest.performRequestAsync();
+        } catch (Exception e) {
+            responseFuture = new CompletableFuture<>();
+            responseFuture.completeExceptionally(e);
         }
-        return success;
+
+        return responseFuture.handle((response, throwable) -> {
+            long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+            if (throwable != null) {
+                recordOperation("buildJob", startTime, false);
+                Throwable cause = throwable instanceof CompletionException
+                        && throwable.getCause() != null ? throwable.getCause() : throwable;
+                Exception exception = cause instanceof Exception ? (Exception) cause
+                        : new JenkinsManagerException("Failed to trigger jenkins job.", cause);
+                return new JenkinsJobTriggerResult(trigger.getJobName(), exception, latency);
+            }
+
+            recordOperation("buildJob", startTime,
+                    response.getStatusCode() == HttpStatus.SC_CREATED);
+            return new JenkinsJobTriggerResult(trigger.getJobName(), response.getStatusCode(),
+                    getHeaderValue(response, HttpHeaders.LOCATION), latency);
+        });
+    }
+
+    /**
+     * Returns the value of the first header with the given name, or null if there is none.
+     *
+     * @param response
+     * @param headerName
+     * @return String
+     */
+    private String getHeaderValue(ResponseEntity response, String headerName) {
+        if (response.getHeaders() == null) {
+            return null;
+        }
+
+        for (Header header : response.getHeaders()) {
+            if (header.getName()
+                      .equalsIgnoreCase(headerName)) {
+                return header.getValue();
+            }
+        }
+        return null;
     }
 
     /**
@@ -489,39 +1185,140 @@ public class JenkinsManager {
     }
 
     /**
-     * Function that makes a get request towards jenkins for 60 seconds or until jenkins is
-     * responding. Returns true if jenkins was down when it started and became available. Returns
-     * false if jenkins never responded or never went down.
+     * Function that waits, according to the restart policy, until jenkins is responding. Returns
+     * true if jenkins was seen down and became available. Returns false if jenkins never went
+     * down, throws if jenkins did not become available within the timeout.
      *
      * @return
      * @throws Exception
      */
     private boolean verifyJenkinsRestart() throws Exception {
-        boolean success = false;
-        boolean serverDownRecieved = false;
-        ResponseEntity response = null;
+        JenkinsRestartResult result;
+        try {
+            result = waitForRestart().get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
 
-        HttpRequest httpRequest = new HttpRequest(HttpMethod.GET);
-        httpRequest.setBaseUrl(jenkinsBaseUrl)
-                   .addHeader("Authorization", "Basic " + encoding)
-                   .setEndpoint("/api/json");
+        return result.isServerDownObserved();
+    }
 
-        long stopTime = System.currentTimeMillis() + 60000;
-        do {
-            Thread.sleep(3000);
-            response = httpRequest.performRequest();
-            serverDownRecieved = response.getStatusCode() == HttpStatus.SC_SERVICE_UNAVAILABLE
-                    || serverDownRecieved;
-            success = response.getStatusCode() == HttpStatus.SC_OK || success;
-        } while (!success && stopTime > System.currentTimeMillis());
+    /**
+     * Polls the update center until all installation jobs with an id greater than lastJobId have
+     * finished, with the backoff and timeout of the plugin install policy.
+     *
+     * @param lastJobId :: Id of the last update center job before the installation was requested
+     * @return true if jenkins must be restarted to complete the installation
+     * @throws Exception
+     */
+    private boolean waitForPluginInstallation(int lastJobId) throws Exception {
+        JenkinsPluginInstallPolicy policy = pluginInstallPolicy;
+        long stopTime = System.currentTimeMillis() + policy.getTimeoutMillis();
+        long pollIntervalMillis = policy.getInitialPollIntervalMillis();
+        while (true) {
+            JSONObject updateCenterData = getUpdateCenterData();
+            JSONArray jobs = updateCenterData.optJSONArray("jobs");
+            List<String> failedPlugins = new ArrayList<>();
+            boolean installing = false;
+
+            for (int i = 0; jobs != null && i < jobs.length(); i++) {
+                JSONObject job = jobs.getJSONObject(i);
+                JSONObject status = job.optJSONObject("status");
+                if (job.optInt("id") <= lastJobId || status == null) {
+                    continue;
+                }
+
+                String statusType = status.optString("type");
+                if ("Pending".equals(statusType) || "Installing".equals(statusType)) {
+                    installing = true;
+                } else if (!status.optBoolean("success")) {
+                    failedPlugins.add(job.optString("name"));
+                }
+            }
 
-        if (!success) {
-            String message = "Could not verify that Jenkins started up correctly. Response code: "
-                    + response.getStatusCodeValue() + " and body: " + response.getBody();
+            if (!installing) {
+                if (!failedPlugins.isEmpty()) {
+                    throw new JenkinsManagerException(
+                            "Failed to install plugins " + failedPlugins + " in Jenkins.");
+                }
+                return updateCenterData.optBoolean("restartRequiredForCompletion");
+            }
+
+            long remainingMillis = stopTime - System.currentTimeMillis();
+            if (remainingMillis <= 0) {
+                throw new JenkinsManagerException(
+                        "Timed out waiting for Jenkins to finish installing plugins.");
+            }
+            Thread.sleep(Math.min(pollIntervalMillis, remainingMillis));
+            pollIntervalMillis = Math.min(policy.getMaxPollIntervalMillis(),
+                    (long) (pollIntervalMillis * policy.getBackoffMultiplier()));
+        }
+    }
+
+    private JSONObject getUpdateCenterData() throws Exception {
+        HttpRequest httpRequest = requestTemplate.newRequest(HttpMethod.GET);
+        httpRequest.addParameter("tree", UPDATE_CENTER_TREE)
+                   .setEndpoint("/updateCenter/api/json");
+
+        ResponseEntity response = httpRequest.performRequest();
+        if (response.getStatusCode() != HttpStatus.SC_OK) {
+            String message = "Failed to fetch update center status from jenkins. Response code: "
+                    + response.getStatusCodeValue();
             throw new JenkinsManagerException(message);
         }
 
-        return success && serverDownRecieved;
+        return new JSONObject(response.getBody());
+    }
+
+    private int getLastUpdateCenterJobId(JSONObject updateCenterData) {
+        int lastJobId = 0;
+        JSONArray jobs = updateCenterData.optJSONArray("jobs");
+        for (int i = 0; jobs != null && i < jobs.length(); i++) {
+            lastJobId = Math.max(lastJobId, jobs.getJSONObject(i)
+                                                .optInt("id"));
+        }
+
+        return lastJobId;
+    }
+
+    /**
+     * Records the duration of an operation to the metrics recorder of the executor.
+     *
+     * @param operation :: Name of the operation, e.g. createJob
+     * @param startTime :: System.nanoTime() when the operation started
+     * @param success
+     */
+    private void recordOperation(String operation, long startTime, boolean success) {
+        MetricsRecorder recorder = executor.getMetricsRecorder();
+        if (recorder != MetricsRecorder.NO_OP) {
+            recorder.recordOperation(operation, System.nanoTime() - startTime, success);
+        }
+    }
+
+    /**
+     * Records the downtime and time to ready of a restart wait, or a failed wait if it timed out.
+     *
+     * @param restartResult :: Result of the wait, or null if it failed
+     * @param startTime     :: System.nanoTime() when the wait started
+     */
+    private void recordRestart(JenkinsRestartResult restartResult, long startTime) {
+        if (restartResult == null) {
+            recordOperation("restartTimeToReady", startTime, false);
+            return;
+        }
+
+        MetricsRecorder recorder = executor.getMetricsRecorder();
+        if (recorder != MetricsRecorder.NO_OP) {
+            if (restartResult.isServerDownObserved()) {
+                recorder.recordOperation("restartDowntime",
+                        TimeUnit.MILLISECONDS.toNanos(restartResult.getDowntimeMillis()), true);
+            }
+            recorder.recordOperation("restartTimeToReady",
+                    TimeUnit.MILLISECONDS.toNanos(restartResult.getTimeToReadyMillis()), true);
+        }
     }
 
     /**
@@ -552,11 +1349,9 @@ public class JenkinsManager {
     private String fetchCrumbFromJenkins()
             throws ClientProtocolException, URISyntaxException, IOException {
         String crumb = "";
-        HttpRequest httpRequest = new HttpRequest(HttpMethod.GET);
+        HttpRequest httpRequest = requestTemplate.newRequest(HttpMethod.GET);
 
-        httpRequest.setBaseUrl(jenkinsBaseUrl)
-                   .addHeader("Authorization", "Basic " + encoding)
-                   .addHeader("Content-type", MediaType.APPLICATION_JSON)
+        httpRequest.addHeader("Content-type", MediaType.APPLICATION_JSON)
                    .setEndpoint("/crumbIssuer/api/json");
 
         ResponseEntity response = httpRequest.performRequest();
@@ -571,8 +1366,23 @@ public class JenkinsManager {
     }
 
     private String createInstallPluginScript(String plugin, String version) {
-        String scriptData = String.format("<jenkins><install plugin='%s@%s'/></jenkins>", plugin,
-                version);
-        return scriptData;
+        return createInstallPluginsScript(Collections.singletonMap(plugin, version));
+    }
+
+    private String createInstallPluginsScript(Map<String, String> plugins) {
+        StringBuilder scriptData = new StringBuilder("<jenkins>");
+        for (Map.Entry<String, String> plugin : plugins.entrySet()) {
+            scriptData.append(String.format("<install plugin='%s@%s'/>", plugin.getKey(),
+                    plugin.getValue()));
+        }
+        return scriptData.append("</jenkins>")
+                         .toString();
+    }
+
+    /**
+     * Sets the body of a create job request, failing if e.g. the file to send can not be read.
+     */
+    private interface BodySetter {
+        void setBody(HttpRequest httpRequest) throws IOException;
     }
 }
@@ -0,0 +1,54 @@
+/*
+   Copyright 2019 Ericsson AB.
+   For a full list of individual contributors, please see the commit history.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.ericsson.eiffelcommons.jenkins;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+/**
+ * Configuration of how JenkinsManager waits for jenkins to finish installing plugins. All
+ * durations are given in milliseconds.
+ *
+ * @author Ericsson 2019
+ *
+ */
+@Getter
+@Setter
+@Accessors(chain = true)
+public class JenkinsPluginInstallPolicy {
+
+    /**
+     * Maximum time to wait for the installations to finish.
+     */
+    private long timeoutMillis = 10 * 60 * 1000;
+
+    /**
+     * Delay before polling the update center again, and the base of the backoff between polls.
+     */
+    private long initialPollIntervalMillis = 1000;
+
+    /**
+     * Upper limit of the delay between two polls.
+     */
+    private long maxPollIntervalMillis = 10000;
+
+    /**
+     * Factor the delay between polls is multiplied with after each poll.
+     */
+    private double backoffMultiplier = 1.5;
+}
@@ -0,0 +1,104 @@
+/*
+   Copyright 2019 Ericsson AB.
+   For a full list of individual contributors, please see the commit history.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.ericsson.eiffelcommons.jenkins;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of the plugins installed in jenkins, indexed by short name without regard to
+ * case, see JenkinsManager.getPluginInventory.
+ *
+ * @author Ericsson 2019
+ *
+ */
+public class JenkinsPluginInventory {
+
+    private final Map<String, String> plugins;
+    private final Map<String, String> versionsByLowerCaseName;
+    private final long createdAt;
+
+    /**
+     * Creates a snapshot of the given plugins.
+     *
+     * @param plugins :: Map of plugin short name to version
+     */
+    public JenkinsPluginInventory(Map<String, String> plugins) {
+        this.plugins = Collections.unmodifiableMap(new LinkedHashMap<>(plugins));
+        this.versionsByLowerCaseName = new HashMap<>(plugins.size() * 2);
+        for (Map.Entry<String, String> plugin : plugins.entrySet()) {
+            versionsByLowerCaseName.put(toKey(plugin.getKey()), plugin.getValue());
+        }
+        this.createdAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Returns true if a plugin with the given short name is installed, the case of the name is
+     * ignored.
+     *
+     * @param plugin :: Plugin short name
+     * @return boolean
+     */
+    public boolean contains(String plugin) {
+        return plugin != null && versionsByLowerCaseName.containsKey(toKey(plugin));
+    }
+
+    /**
+     * Returns the installed version of a plugin, or null if the plugin is not installed.
+     *
+     * @param plugin :: Plugin short name, the case is ignored
+     * @return String
+     */
+    public String getVersion(String plugin) {
+        return plugin == null ? null : versionsByLowerCaseName.get(toKey(plugin));
+    }
+
+    /**
+     * Returns all installed plugins as a map of short name to version, in the order returned by
+     * jenkins.
+     *
+     * @return Map
+     */
+    public Map<String, String> getPlugins() {
+        return plugins;
+    }
+
+    public int size() {
+        return plugins.size();
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * Returns true if the snapshot is older than the given time to live.
+     *
+     * @param ttlMillis :: Time to live in milliseconds
+     * @return boolean
+     */
+    public boolean isExpired(long ttlMillis) {
+        return System.currentTimeMillis() - createdAt >= ttlMillis;
+    }
+
+    private static String toKey(String plugin) {
+        return plugin.toLowerCase(Locale.ROOT);
+    }
+}
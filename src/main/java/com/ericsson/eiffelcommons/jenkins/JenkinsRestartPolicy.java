@@ -0,0 +1,71 @@
+/*
+   Copyright 2019 Ericsson AB.
+   For a full list of individual contributors, please see the commit history.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.ericsson.eiffelcommons.jenkins;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+/**
+ * Configuration of how JenkinsManager waits for jenkins to come back after a restart. All
+ * durations are given in milliseconds.
+ *
+ * @author Ericsson 2019
+ *
+ */
+@Getter
+@Setter
+@Accessors(chain = true)
+public class JenkinsRestartPolicy {
+
+    /**
+     * Maximum time to wait for jenkins to be ready again.
+     */
+    private long timeoutMillis = 60000;
+
+    /**
+     * Delay before the first poll, and the base of the backoff between polls.
+     */
+    private long initialPollIntervalMillis = 250;
+
+    /**
+     * Upper limit of the delay between two polls.
+     */
+    private long maxPollIntervalMillis = 5000;
+
+    /**
+     * Factor the delay between polls is multiplied with after each poll.
+     */
+    private double backoffMultiplier = 2.0;
+
+    /**
+     * Fraction of the delay that is randomly added or removed, so that many clients waiting for
+     * the same jenkins do not poll it in lockstep.
+     */
+    private double jitter = 0.2;
+
+    /**
+     * Connect timeout of each poll, kept short since a restarting jenkins often does not accept
+     * connections at all.
+     */
+    private int connectTimeoutMillis = 2000;
+
+    /**
+     * Socket timeout of each poll.
+     */
+    private int socketTimeoutMillis = 5000;
+}
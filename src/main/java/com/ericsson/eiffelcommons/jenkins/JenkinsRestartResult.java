@@ -0,0 +1,51 @@
+/*
+   Copyright 2019 Ericsson AB.
+   For a full list of individual contributors, please see the commit history.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.ericsson.eiffelcommons.jenkins;
+
+import lombok.Getter;
+
+/**
+ * What was observed while waiting for jenkins to restart, see JenkinsManager.waitForRestart.
+ *
+ * @author Ericsson 2019
+ *
+ */
+@Getter
+public class JenkinsRestartResult {
+
+    private final boolean serverDownObserved;
+    private final long downtimeMillis;
+    private final long timeToReadyMillis;
+    private final int pollCount;
+
+    /**
+     * Creates a restart result.
+     *
+     * @param serverDownObserved :: True if jenkins was seen unavailable during the wait
+     * @param downtimeMillis     :: Time from the first poll that saw jenkins unavailable until
+     *                           jenkins was ready, 0 if it was never seen unavailable
+     * @param timeToReadyMillis  :: Time from the start of the wait until jenkins was ready
+     * @param pollCount          :: Number of polls sent to jenkins
+     */
+    public JenkinsRestartResult(boolean serverDownObserved, long downtimeMillis,
+            long timeToReadyMillis, int pollCount) {
+        this.serverDownObserved = serverDownObserved;
+        this.downtimeMillis = downtimeMillis;
+        this.timeToReadyMillis = timeToReadyMillis;
+        this.pollCount = pollCount;
+    }
+}
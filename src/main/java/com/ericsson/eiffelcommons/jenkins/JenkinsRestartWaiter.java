@@ -0,0 +1,209 @@
+/*
+   Copyright 2019 Ericsson AB.
+   For a full list of individual contributors, please see the commit history.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.ericsson.eiffelcommons.jenkins;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpStatus;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.ericsson.eiffelcommons.exceptions.JenkinsManagerException;
+import com.ericsson.eiffelcommons.http.ResponseEntity;
+
+/**
+ * Polls jenkins after a restart has been requested until it is ready again. Polls are scheduled
+ * with exponential, jittered backoff on a scheduler shared by all JenkinsManager instances and
+ * sent as asynchronous requests, so no thread is blocked while waiting and a slow jenkins never
+ * delays the polls of another waiter. The timeout is enforced by the scheduler, even while a poll
+ * is still in progress.
+ *
+ * Jenkins is considered down while polls fail to connect or are answered with 503. It is
+ * considered ready once a poll is answered with 200 after it has been down, or with 200 and
+ * quietingDown false, which means that the restart has already completed between two polls.
+ */
+class JenkinsRestartWaiter {
+
+    /**
+     * Sends a single poll to jenkins without blocking, the response must contain the quietingDown
+     * field.
+     */
+    interface StatusPoller {
+        CompletableFuture<ResponseEntity> poll();
+    }
+
+    private final StatusPoller poller;
+    private final JenkinsRestartPolicy policy;
+    private final CompletableFuture<JenkinsRestartResult> result = new CompletableFuture<>();
+    private long startTime;
+    private long downSince = -1;
+    private int pollCount = 0;
+    private volatile ResponseEntity lastResponse;
+    private volatile Exception lastException;
+
+    JenkinsRestartWaiter(StatusPoller poller, JenkinsRestartPolicy policy) {
+        this.poller = poller;
+        this.policy = policy;
+    }
+
+    /**
+     * Starts waiting for jenkins, the returned future completes when jenkins is ready, or
+     * exceptionally with a JenkinsManagerException when the timeout of the policy is reached.
+     *
+     * @return CompletableFuture with the observed restart
+     */
+    CompletableFuture<JenkinsRestartResult> start() {
+        startTime = System.currentTimeMillis();
+        ScheduledFuture<?> deadline = SchedulerHolder.SCHEDULER.schedule(
+                () -> result.completeExceptionally(createTimeoutException()),
+                policy.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+        result.whenComplete((restartResult, throwable) -> deadline.cancel(false));
+        schedulePoll(policy.getInitialPollIntervalMillis());
+        return result;
+    }
+
+    private void schedulePoll(long delayMillis) {
+        SchedulerHolder.SCHEDULER.schedule(this::poll, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void poll() {
+        if (result.isDone()) {
+            return;
+        }
+
+        pollCount++;
+        long pollTime = System.currentTimeMillis();
+        CompletableFuture<ResponseEntity> pollFuture;
+        try {
+            pollFuture = poller.poll();
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+            return;
+        }
+        pollFuture.whenComplete((response, throwable) -> pollCompleted(pollTime, response,
+                throwable));
+    }
+
+    /**
+     * Handles the outcome of a poll, called on the thread that completed the poll. The polls of a
+     * waiter never overlap, so the poll state needs no further synchronization.
+     *
+     * @param pollTime  :: Time the poll was sent
+     * @param response  :: Response of the poll, or null if it failed
+     * @param throwable :: Failure of the poll, or null if it was answered
+     */
+    private void pollCompleted(long pollTime, ResponseEntity response, Throwable throwable) {
+        if (result.isDone()) {
+            return;
+        }
+
+        boolean ready = false;
+        Throwable failure = throwable instanceof CompletionException && throwable.getCause() != null
+                ? throwable.getCause()
+                : throwable;
+        if (failure instanceof IOException) {
+            lastException = (IOException) failure;
+            markDown(pollTime);
+        } else if (failure != null) {
+            result.completeExceptionally(failure);
+            return;
+        } else {
+            lastResponse = response;
+            lastException = null;
+            int statusCode = response.getStatusCode();
+            if (statusCode == HttpStatus.SC_SERVICE_UNAVAILABLE) {
+                markDown(pollTime);
+            } else if (statusCode == HttpStatus.SC_OK) {
+                ready = downSince >= 0 || !isQuietingDown(response);
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        if (ready) {
+            boolean serverDownObserved = downSince >= 0;
+            long downtime = serverDownObserved ? now - downSince : 0;
+            result.complete(new JenkinsRestartResult(serverDownObserved, downtime,
+                    now - startTime, pollCount));
+        } else if (now - startTime >= policy.getTimeoutMillis()) {
+            result.completeExceptionally(createTimeoutException());
+        } else {
+            long remaining = startTime + policy.getTimeoutMillis() - now;
+            schedulePoll(Math.min(nextDelay(), remaining));
+        }
+    }
+
+    private void markDown(long pollTime) {
+        if (downSince < 0) {
+            downSince = pollTime;
+        }
+    }
+
+    private long nextDelay() {
+        double delay = policy.getInitialPollIntervalMillis()
+                * Math.pow(policy.getBackoffMultiplier(), pollCount);
+        delay = Math.min(delay, policy.getMaxPollIntervalMillis());
+        if (policy.getJitter() > 0) {
+            delay *= 1 + ThreadLocalRandom.current()
+                                          .nextDouble(-policy.getJitter(), policy.getJitter());
+        }
+
+        return Math.max(1, (long) delay);
+    }
+
+    private boolean isQuietingDown(ResponseEntity response) {
+        String body = response.getBody();
+        if (StringUtils.isBlank(body)) {
+            return false;
+        }
+
+        try {
+            return new JSONObject(body).optBoolean("quietingDown");
+        } catch (JSONException e) {
+            return false;
+        }
+    }
+
+    private JenkinsManagerException createTimeoutException() {
+        if (lastResponse != null && lastException == null) {
+            return new JenkinsManagerException(
+                    "Could not verify that Jenkins started up correctly. Response code: "
+                            + lastResponse.getStatusCodeValue() + " and body: "
+                            + lastResponse.getBody());
+        }
+
+        return new JenkinsManagerException(
+                "Could not verify that Jenkins started up correctly. Last error: "
+                        + (lastException != null ? lastException.getMessage() : "none"));
+    }
+
+    private static class SchedulerHolder {
+        private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+                runnable -> {
+                    Thread thread = new Thread(runnable, "jenkins-restart-waiter");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+}
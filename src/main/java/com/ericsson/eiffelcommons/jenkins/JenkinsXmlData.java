@@ -18,40 +18,51 @@ package com.ericsson.eiffelcommons.jenkins;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.Arrays;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
-import org.json.XML;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 
-import com.ericsson.eiffelcommons.utils.FileUtils;
+import com.ericsson.eiffelcommons.jenkins.JenkinsXmlTemplate.ElementWriter;
 
 /**
- * This class is a builder for jenkins xml data string.
+ * This class is a builder for jenkins xml data string. The job template is parsed once and shared
+ * by all instances, the job data is streamed straight to the output when rendered.
  *
  * @author Ericsson 2019
  *
  */
 public class JenkinsXmlData {
 
-    private static final String JENKINS_TEMPLATE_FILE_NAME = "jenkinsJobTemplate.xml";
     private static final String XML_VERSION = "<?xml version='1.1' encoding='UTF-8'?>";
     private static final String HUDSON_PARAMETERS_DEFINITION_KEY = "hudson.model.ParametersDefinitionProperty";
     private static final String PARAMETER_DEFINITION_KEY = "parameterDefinitions";
-    private static final String GROOVY_SCRIPT_PLUGIN_VERSION = "2.1";
-    private static final String GROOVY_SCRIPT_SECURITY_PLUGIN_VERSION = "1.51";
-
-    private String hudsonPluginsGroovyGroovyKey = "hudson.plugins.groovy.Groovy plugin='groovy@%s'";
-    private String hudsonPluginGroovySystemGroovyKey = "hudson.plugins.groovy.SystemGroovy plugin='groovy@%s'";
-    private String scriptPluginForScriptSecurityKey = "script plugin='script-security@%s'";
-
-    private String sourceForGroovyKey = "source class='hudson.plugins.groovy.StringSystemScriptSource'";
-    private String scriptSourceforGroovyKey = "scriptSource class='hudson.plugins.groovy.StringScriptSource'";
-
-    private JSONObject xmlJsonData;
-    private JSONObject builders;
-    private JSONObject properties;
+    private static final String STRING_PARAMETER_DEFINITION_KEY = "hudson.model.StringParameterDefinition";
+    private static final String HUDSON_SHELL_KEY = "hudson.tasks.Shell";
+    private static final String HUDSON_GROOVY_KEY = "hudson.plugins.groovy.Groovy";
+    private static final String HUDSON_SYSTEM_GROOVY_KEY = "hudson.plugins.groovy.SystemGroovy";
+    private static final String GROOVY_PLUGIN = "groovy@2.1";
+    private static final String SCRIPT_SECURITY_PLUGIN = "script-security@1.51";
+    private static final String GROOVY_SCRIPT_SOURCE_CLASS = "hudson.plugins.groovy.StringScriptSource";
+    private static final String SYSTEM_GROOVY_SCRIPT_SOURCE_CLASS = "hudson.plugins.groovy.StringSystemScriptSource";
+
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newFactory();
+
+    private final JenkinsXmlTemplate template;
+    private final List<ElementWriter> builders = new ArrayList<>();
+    private final List<ElementWriter> parameters = new ArrayList<>();
+    private String authToken;
+    private boolean hasSystemGroovyScript = false;
 
     /**
      * Constructor: creates the base XML data from template.
@@ -59,27 +70,54 @@ public class JenkinsXmlData {
      * @throws IOException
      */
     public JenkinsXmlData() throws FileNotFoundException {
-        String xmlJsonDataString = FileUtils.getResourceFileAsString(JENKINS_TEMPLATE_FILE_NAME);
-        xmlJsonData = XML.toJSONObject(xmlJsonDataString);
-        builders = new JSONObject();
-        properties = new JSONObject();
+        template = JenkinsXmlTemplate.getDefault();
     }
 
     /**
-     * This function converts xmlJsonData to XML format and adds the xml version tag.
+     * This function renders the job data to XML format including the xml version tag.
      *
      * @return
      */
     public String getXmlAsString() {
-        xmlJsonData.getJSONObject("project")
-                   .put("builders", builders);
-        xmlJsonData.getJSONObject("project")
-                   .put("properties", properties);
+        StringWriter writer = new StringWriter();
+        try {
+            writeTo(writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return writer.toString();
+    }
 
-        String xmlDataString = XML.toString(xmlJsonData);
-        xmlDataString = removeExtraGroovyParams(xmlDataString);
+    /**
+     * This function renders the job data to XML format including the xml version tag, straight to
+     * the given writer. The writer is flushed but not closed.
+     *
+     * @param writer
+     * @throws IOException
+     */
+    public void writeTo(Writer writer) throws IOException {
+        writer.write(XML_VERSION);
+        try {
+            XMLStreamWriter xmlWriter = OUTPUT_FACTORY.createXMLStreamWriter(writer);
+            template.write(xmlWriter, createReplacements());
+            xmlWriter.flush();
+            xmlWriter.close();
+        } catch (XMLStreamException e) {
+            throw new IOException("Failed to write jenkins xml data: " + e.getMessage(), e);
+        }
+        writer.flush();
+    }
 
-        return (XML_VERSION + xmlDataString);
+    /**
+     * This function renders the job data to UTF-8 encoded XML including the xml version tag,
+     * straight to the given stream. The stream is flushed but not closed.
+     *
+     * @param outputStream
+     * @throws IOException
+     */
+    public void writeTo(OutputStream outputStream) throws IOException {
+        writeTo(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
     }
 
     /**
@@ -89,8 +127,7 @@ public class JenkinsXmlData {
      * @return this JenkinsXmlData
      */
     public JenkinsXmlData addJobToken(String token) {
-        xmlJsonData.getJSONObject("project")
-                   .put("authToken", token);
+        authToken = token;
         return this;
     }
 
@@ -101,19 +138,11 @@ public class JenkinsXmlData {
      * @return this JenkinsXmlData
      */
     public JenkinsXmlData addBashScript(String script) {
-        String husdonShellKey = "hudson.tasks.Shell";
-        boolean hasKeyShell = builders.has(husdonShellKey);
-
-        if (!hasKeyShell) {
-            JSONArray hudsonTasksShell = new JSONArray();
-            builders.put(husdonShellKey, hudsonTasksShell);
-        }
-
-        JSONObject newCommand = new JSONObject();
-        newCommand.put("command", script);
-
-        builders.getJSONArray(husdonShellKey)
-                .put(newCommand);
+        builders.add(writer -> {
+            writer.writeStartElement(HUDSON_SHELL_KEY);
+            writeTextElement(writer, "command", script);
+            writer.writeEndElement();
+        });
         return this;
     }
 
@@ -124,18 +153,21 @@ public class JenkinsXmlData {
      * @return this JenkinsXmlData
      */
     public JenkinsXmlData addGrovyScript(String script) {
-        hudsonPluginsGroovyGroovyKey = String.format(hudsonPluginsGroovyGroovyKey, GROOVY_SCRIPT_PLUGIN_VERSION);
-
-        boolean hasKeyGroovy = builders.has(hudsonPluginsGroovyGroovyKey);
-        if (!hasKeyGroovy) {
-            JSONArray hudsonTasksGroovy = new JSONArray();
-            builders.put(hudsonPluginsGroovyGroovyKey, hudsonTasksGroovy);
-        }
-
-        JSONObject newGroovyCommand = BuildGroovyObject(script);
-
-        builders.getJSONArray(hudsonPluginsGroovyGroovyKey)
-                .put(newGroovyCommand);
+        builders.add(writer -> {
+            writer.writeStartElement(HUDSON_GROOVY_KEY);
+            writer.writeAttribute("plugin", GROOVY_PLUGIN);
+            writeTextElement(writer, "scriptParameters", "");
+            writeTextElement(writer, "javaOpts", "");
+            writer.writeStartElement("scriptSource");
+            writer.writeAttribute("class", GROOVY_SCRIPT_SOURCE_CLASS);
+            writeTextElement(writer, "command", script);
+            writer.writeEndElement();
+            writeTextElement(writer, "classPath", "");
+            writeTextElement(writer, "groovyName", "(Default)");
+            writeTextElement(writer, "parameters", "");
+            writeTextElement(writer, "properties", "");
+            writer.writeEndElement();
+        });
         return this;
     }
 
@@ -149,23 +181,24 @@ public class JenkinsXmlData {
      * @throws Exception
      */
     public JenkinsXmlData addSystemGrovyScript(String script, boolean sandbox) throws Exception {
-        hudsonPluginGroovySystemGroovyKey = String.format(hudsonPluginGroovySystemGroovyKey,
-                GROOVY_SCRIPT_PLUGIN_VERSION);
-
-        boolean hasKeyGroovy = builders.has(hudsonPluginGroovySystemGroovyKey);
-        if (!hasKeyGroovy) {
-            JSONArray hudsonSystemGroovy = new JSONArray();
-            builders.put(hudsonPluginGroovySystemGroovyKey, hudsonSystemGroovy);
-        } else {
+        if (hasSystemGroovyScript) {
             throw new Exception("Currently only one system Groovy script supported.");
         }
-        JSONObject systemGroovyScript = buildSystemGroovyObject(script, sandbox);
-
-        JSONArray systemGroovyContainer = new JSONArray();
-        systemGroovyContainer.put(systemGroovyScript);
-
-        builders.getJSONArray(hudsonPluginGroovySystemGroovyKey)
-                .put(systemGroovyScript);
+        hasSystemGroovyScript = true;
+
+        builders.add(writer -> {
+            writer.writeStartElement(HUDSON_SYSTEM_GROOVY_KEY);
+            writer.writeAttribute("plugin", GROOVY_PLUGIN);
+            writer.writeStartElement("source");
+            writer.writeAttribute("class", SYSTEM_GROOVY_SCRIPT_SOURCE_CLASS);
+            writer.writeStartElement("script");
+            writer.writeAttribute("plugin", SCRIPT_SECURITY_PLUGIN);
+            writeTextElement(writer, "script", script);
+            writeTextElement(writer, "sandbox", String.valueOf(sandbox));
+            writer.writeEndElement();
+            writer.writeEndElement();
+            writer.writeEndElement();
+        });
 
         return this;
     }
@@ -187,20 +220,14 @@ public class JenkinsXmlData {
      */
     public JenkinsXmlData addBuildParameter(String key, String defaultValue, String description, boolean trim)
             throws Exception {
-        String parametertypeKey = "hudson.model.StringParameterDefinition";
-
-        validatePropertiesObject(parametertypeKey);
-
-        JSONObject param = new JSONObject();
-        param.put("name", key);
-        param.put("description", description);
-        param.put("defaultValue", defaultValue);
-        param.put("trim", false);
-
-        properties.getJSONObject(HUDSON_PARAMETERS_DEFINITION_KEY)
-                  .getJSONObject(PARAMETER_DEFINITION_KEY)
-                  .getJSONArray(parametertypeKey)
-                  .put(param);
+        parameters.add(writer -> {
+            writer.writeStartElement(STRING_PARAMETER_DEFINITION_KEY);
+            writeTextElement(writer, "name", key);
+            writeTextElement(writer, "description", description);
+            writeTextElement(writer, "defaultValue", defaultValue);
+            writeTextElement(writer, "trim", "false");
+            writer.writeEndElement();
+        });
         return this;
     }
 
@@ -219,144 +246,60 @@ public class JenkinsXmlData {
     }
 
     /**
-     * Ensures the XML properties is added correctly, should be <hudson.model.ParametersDefinitionProperty>
-     * <parameterDefinitions> <our-input-parameter-typ> </our-input-parameter-typ> </parameterDefinitions>
+     * Creates the writers of the template elements that are filled with the job data, the
+     * properties are written as <hudson.model.ParametersDefinitionProperty> <parameterDefinitions>
+     * <our-input-parameter-typ> </our-input-parameter-typ> </parameterDefinitions>
      * </hudson.model.ParametersDefinitionProperty>
      *
-     * @param parametertypeKey
-     */
-    private void validatePropertiesObject(String parametertypeKey) {
-        boolean hasHudsonParametersDefinitionKey = properties.has(HUDSON_PARAMETERS_DEFINITION_KEY);
-        if (!hasHudsonParametersDefinitionKey) {
-            JSONObject parametersDefinitionProperty = new JSONObject();
-            properties.put(HUDSON_PARAMETERS_DEFINITION_KEY, parametersDefinitionProperty);
-        }
-
-        boolean hasParameterDefinitions = properties.getJSONObject(HUDSON_PARAMETERS_DEFINITION_KEY)
-                                                    .has(PARAMETER_DEFINITION_KEY);
-        if (!hasParameterDefinitions) {
-            JSONObject parameterDefinitions = new JSONObject();
-            properties.getJSONObject(HUDSON_PARAMETERS_DEFINITION_KEY)
-                      .put(PARAMETER_DEFINITION_KEY, parameterDefinitions);
-        }
-
-        boolean hasParametertypeKey = properties.getJSONObject(HUDSON_PARAMETERS_DEFINITION_KEY)
-                                                .getJSONObject(PARAMETER_DEFINITION_KEY)
-                                                .has(parametertypeKey);
-        if (!hasParametertypeKey) {
-            JSONArray parametertype = new JSONArray();
-            properties.getJSONObject(HUDSON_PARAMETERS_DEFINITION_KEY)
-                      .getJSONObject(PARAMETER_DEFINITION_KEY)
-                      .put(parametertypeKey, parametertype);
-        }
-    }
-
-    /**
-     * This function creates the Groovy script structure needed by jenkins.
-     *
-     * @param script
-     * @return
-     */
-    private JSONObject BuildGroovyObject(String script) {
-        JSONObject groovyScriptSource = new JSONObject();
-        groovyScriptSource.put("command", script);
-        JSONObject groovyScript = new JSONObject();
-        groovyScript.put("scriptParameters", "");
-        groovyScript.put("javaOpts", "");
-        groovyScript.put(scriptSourceforGroovyKey, groovyScriptSource);
-        groovyScript.put("classPath", "");
-        groovyScript.put("groovyName", "(Default)");
-        groovyScript.put("parameters", "");
-        groovyScript.put("properties", "");
-
-        return groovyScript;
-    }
-
-    /**
-     * This function creates the System Groovy script structure needed by jenkins.
-     *
-     * @param script
-     * @param sandbox
-     * @return
-     */
-    private JSONObject buildSystemGroovyObject(String script, boolean sandbox) {
-        scriptPluginForScriptSecurityKey = String.format(scriptPluginForScriptSecurityKey,
-                GROOVY_SCRIPT_SECURITY_PLUGIN_VERSION);
-
-        JSONObject systemGroovyScriptValues = new JSONObject();
-        systemGroovyScriptValues.put("script", script);
-        systemGroovyScriptValues.put("sandbox", sandbox);
-
-        JSONArray systemGroovyScriptArray = new JSONArray();
-        systemGroovyScriptArray.put(systemGroovyScriptValues);
-
-        JSONObject systemGroovyScriptObject = new JSONObject();
-        systemGroovyScriptObject.put(scriptPluginForScriptSecurityKey, systemGroovyScriptArray);
-
-        JSONObject systemGroovySource = new JSONObject();
-        systemGroovySource.put(sourceForGroovyKey, systemGroovyScriptObject);
-
-        return systemGroovySource;
-    }
-
-    /**
-     * This function removes the params given in the groove start node from tne end node
-     * <abc param='abc'></abc param='def'> becomes <abc param='def'></abc>
-     *
-     * @param xmlDataString
      * @return
      */
-    private String removeExtraGroovyParams(String xmlDataString) {
-        // Groovy script keys
-        String hudsonPluginsGroovyGroovyKeyEnd = convertToEndNode(hudsonPluginsGroovyGroovyKey);
-        String scriptSourceforGroovyKeyEnd = convertToEndNode(scriptSourceforGroovyKey);
-
-        hudsonPluginsGroovyGroovyKeyEnd = regexify(hudsonPluginsGroovyGroovyKeyEnd);
-        scriptSourceforGroovyKeyEnd = regexify(scriptSourceforGroovyKeyEnd);
-
-        // System groovy script keys
-        String hudsonSystemGroovyKeyEnd = convertToEndNode(hudsonPluginGroovySystemGroovyKey);
-        String systemGroovyScriptKeyEnd = convertToEndNode(scriptPluginForScriptSecurityKey);
-        String sourceForGroovyKeyEnd = convertToEndNode(sourceForGroovyKey);
-
-        hudsonSystemGroovyKeyEnd = regexify(hudsonSystemGroovyKeyEnd);
-        systemGroovyScriptKeyEnd = regexify(systemGroovyScriptKeyEnd);
-        sourceForGroovyKeyEnd = regexify(sourceForGroovyKeyEnd);
-
-        // String replace section
-        xmlDataString = xmlDataString.replaceAll(hudsonPluginsGroovyGroovyKeyEnd, "</hudson.plugins.groovy.Groovy>");
-        xmlDataString = xmlDataString.replaceAll(scriptSourceforGroovyKeyEnd, "</scriptSource>");
-
-        xmlDataString = xmlDataString.replaceAll(hudsonSystemGroovyKeyEnd, "</hudson.plugins.groovy.SystemGroovy>");
-        xmlDataString = xmlDataString.replaceAll(sourceForGroovyKeyEnd, "</source>");
-        xmlDataString = xmlDataString.replaceAll(systemGroovyScriptKeyEnd, "</script>");
-
-        return xmlDataString;
-    }
+    private Map<String, ElementWriter> createReplacements() {
+        Map<String, ElementWriter> replacements = new HashMap<>();
+        replacements.put("builders", writer -> {
+            for (ElementWriter builder : builders) {
+                builder.write(writer);
+            }
+        });
+        replacements.put("properties", writer -> {
+            if (parameters.isEmpty()) {
+                return;
+            }
+            writer.writeStartElement(HUDSON_PARAMETERS_DEFINITION_KEY);
+            writer.writeStartElement(PARAMETER_DEFINITION_KEY);
+            for (ElementWriter parameter : parameters) {
+                parameter.write(writer);
+            }
+            writer.writeEndElement();
+            writer.writeEndElement();
+        });
+        if (authToken != null) {
+            replacements.put("authToken", writer -> writer.writeCharacters(authToken));
+        }
 
-    /**
-     * Function that adds </ and > to a string
-     *
-     * @param string
-     * @return
-     */
-    private String convertToEndNode(String string) {
-        return "</" + string + ">";
+        return replacements;
     }
 
     /**
-     * Function that makes a string usable as regex.
+     * Writes an element containing only text, an empty value gives an empty element and a null
+     * value no element at all.
      *
-     * @param string
-     * @return
+     * @param writer
+     * @param name
+     * @param value
+     * @throws XMLStreamException
      */
-    private String regexify(String string) {
-        String backSlash = "\\\\";
-        List<String> charsToRegexify = Arrays.asList("'", "\\.", " ", "=", "/", "<", ">");
-        for (String charcters : charsToRegexify) {
-            string = string.replaceAll(charcters, backSlash + charcters);
+    private static void writeTextElement(XMLStreamWriter writer, String name, String value)
+            throws XMLStreamException {
+        if (value == null) {
+            return;
+        }
+        if (value.isEmpty()) {
+            writer.writeEmptyElement(name);
+            return;
         }
-        return string;
-    }
 
+        writer.writeStartElement(name);
+        writer.writeCharacters(value);
+        writer.writeEndElement();
+    }
 }
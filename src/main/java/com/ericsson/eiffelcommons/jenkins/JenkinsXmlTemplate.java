@@ -0,0 +1,187 @@
+/*
+   Copyright 2019 Ericsson AB.
+   For a full list of individual contributors, please see the commit history.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.ericsson.eiffelcommons.jenkins;
+
+import java.io.FileNotFoundException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import com.ericsson.eiffelcommons.utils.FileUtils;
+
+/**
+ * Immutable, pre-parsed form of a jenkins job XML template. The template is parsed once and can
+ * then be rendered any number of times, from any thread, with some of its top level elements
+ * replaced by job specific content.
+ *
+ * @author Ericsson 2019
+ *
+ */
+class JenkinsXmlTemplate {
+
+    /**
+     * Writes the content of a replaced template element.
+     */
+    interface ElementWriter {
+        void write(XMLStreamWriter writer) throws XMLStreamException;
+    }
+
+    private static final String DEFAULT_TEMPLATE_FILE_NAME = "jenkinsJobTemplate.xml";
+    private static volatile JenkinsXmlTemplate defaultTemplate;
+
+    private final Element root;
+
+    private JenkinsXmlTemplate(Element root) {
+        this.root = root;
+    }
+
+    /**
+     * Returns the template parsed from jenkinsJobTemplate.xml, the file is only read and parsed
+     * the first time.
+     *
+     * @return JenkinsXmlTemplate
+     * @throws FileNotFoundException
+     */
+    static JenkinsXmlTemplate getDefault() throws FileNotFoundException {
+        JenkinsXmlTemplate template = defaultTemplate;
+        if (template == null) {
+            template = parse(FileUtils.getResourceFileAsString(DEFAULT_TEMPLATE_FILE_NAME));
+            defaultTemplate = template;
+        }
+
+        return template;
+    }
+
+    /**
+     * Parses a template. Whitespace between elements, comments and the XML declaration are
+     * dropped.
+     *
+     * @param xml
+     * @return JenkinsXmlTemplate
+     */
+    static JenkinsXmlTemplate parse(String xml) {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        try {
+            XMLStreamReader reader = factory.createXMLStreamReader(new StringReader(xml));
+            try {
+                reader.nextTag();
+                return new JenkinsXmlTemplate(readElement(reader));
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IllegalArgumentException("Invalid jenkins job template: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Writes the template. The content of top level elements whose name is a key in replacements
+     * is written by the corresponding ElementWriter instead of being copied from the template.
+     *
+     * @param writer
+     * @param replacements
+     * @throws XMLStreamException
+     */
+    void write(XMLStreamWriter writer, Map<String, ElementWriter> replacements)
+            throws XMLStreamException {
+        writer.writeStartElement(root.name);
+        root.writeAttributes(writer);
+        for (Element child : root.children) {
+            ElementWriter replacement = replacements.get(child.name);
+            if (replacement == null) {
+                child.write(writer);
+            } else {
+                writer.writeStartElement(child.name);
+                child.writeAttributes(writer);
+                replacement.write(writer);
+                writer.writeEndElement();
+            }
+        }
+        writer.writeEndElement();
+    }
+
+    private static Element readElement(XMLStreamReader reader) throws XMLStreamException {
+        String name = reader.getLocalName();
+        List<String[]> attributes = new ArrayList<>();
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            attributes.add(new String[] { reader.getAttributeLocalName(i), reader.getAttributeValue(i) });
+        }
+
+        List<Element> children = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        while (reader.next() != XMLStreamConstants.END_ELEMENT) {
+            switch (reader.getEventType()) {
+            case XMLStreamConstants.START_ELEMENT:
+                children.add(readElement(reader));
+                break;
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.CDATA:
+                text.append(reader.getText());
+                break;
+            default:
+                break;
+            }
+        }
+
+        String content = children.isEmpty() ? text.toString() : "";
+        return new Element(name, attributes, content, children);
+    }
+
+    private static class Element {
+        private final String name;
+        private final List<String[]> attributes;
+        private final String text;
+        private final List<Element> children;
+
+        Element(String name, List<String[]> attributes, String text, List<Element> children) {
+            this.name = name;
+            this.attributes = Collections.unmodifiableList(attributes);
+            this.text = text;
+            this.children = Collections.unmodifiableList(children);
+        }
+
+        void write(XMLStreamWriter writer) throws XMLStreamException {
+            if (children.isEmpty() && text.isEmpty()) {
+                writer.writeEmptyElement(name);
+                writeAttributes(writer);
+                return;
+            }
+
+            writer.writeStartElement(name);
+            writeAttributes(writer);
+            writer.writeCharacters(text);
+            for (Element child : children) {
+                child.write(writer);
+            }
+            writer.writeEndElement();
+        }
+
+        void writeAttributes(XMLStreamWriter writer) throws XMLStreamException {
+            for (String[] attribute : attributes) {
+                writer.writeAttribute(attribute[0], attribute[1]);
+            }
+        }
+    }
+}
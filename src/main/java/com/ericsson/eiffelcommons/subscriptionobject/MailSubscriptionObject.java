@@ -33,6 +33,20 @@ public class MailSubscriptionObject extends SubscriptionObject<MailSubscriptionO
         subscriptionJson.put("notificationType", "MAIL");
     }
 
+    private MailSubscriptionObject(MailSubscriptionObject prototype, String subscriptionName) {
+        super(MailSubscriptionObject.class, prototype, subscriptionName);
+    }
+
+    /**
+     * Creates a copy of this subscription with a new name. Requirements and notification
+     * settings are shared with this subscription until either of them modifies them.
+     * @param subscriptionName
+     * @return MailSubscriptionObject
+     */
+    public MailSubscriptionObject copy(String subscriptionName) {
+        return new MailSubscriptionObject(this, subscriptionName);
+    }
+
     /**
      * Sets the field emailSubject to given value
      * @param emailSubject
@@ -39,6 +39,20 @@ public class RestPostSubscriptionObject extends SubscriptionObject<RestPostSubsc
         subscriptionJson.put(NOTIFICATION_TYPE_KEY, NOTIFICATION_TYPE);
     }
 
+    private RestPostSubscriptionObject(RestPostSubscriptionObject prototype, String subscriptionName) {
+        super(RestPostSubscriptionObject.class, prototype, subscriptionName);
+    }
+
+    /**
+     * Creates a copy of this subscription with a new name. Requirements and notification
+     * settings are shared with this subscription until either of them modifies them.
+     * @param subscriptionName
+     * @return RestPostSubscriptionObject
+     */
+    public RestPostSubscriptionObject copy(String subscriptionName) {
+        return new RestPostSubscriptionObject(this, subscriptionName);
+    }
+
     /**
      * Sets the field authenticationType to BASIC_AUTH together with the username and password.
      * @param username
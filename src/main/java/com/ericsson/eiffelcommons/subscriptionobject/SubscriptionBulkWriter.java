@@ -0,0 +1,195 @@
+/*
+   Copyright 2019 Ericsson AB.
+   For a full list of individual contributors, please see the commit history.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.ericsson.eiffelcommons.subscriptionobject;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.http.entity.ContentProducer;
+import org.apache.http.entity.ContentType;
+
+import com.ericsson.eiffelcommons.http.HttpRequest;
+import com.ericsson.eiffelcommons.http.ResponseEntity;
+
+/**
+ * Writes many subscriptions as JSON arrays, the format Eiffel Intelligence expects when
+ * subscriptions are added or updated. Each subscription is written directly to the target writer
+ * or stream, so the whole document is never built in memory.
+ *
+ * Subscriptions are split into batches of at most batchSize subscriptions, one batch per request.
+ * Only the subscriptions of the current batch are referenced, so memory use is bounded by the
+ * batch size when the subscriptions are created lazily by the given iterator.
+ *
+ * @author Ericsson 2019
+ *
+ */
+public class SubscriptionBulkWriter {
+
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    private final int batchSize;
+
+    /**
+     * Creates a bulk writer with the default batch size.
+     */
+    public SubscriptionBulkWriter() {
+        this(DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Creates a bulk writer.
+     *
+     * @param batchSize
+     *            :: Maximum number of subscriptions in one batch
+     */
+    public SubscriptionBulkWriter(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1, was " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Writes all given subscriptions as one JSON array.
+     *
+     * @param subscriptions
+     * @param writer
+     * @throws IOException
+     */
+    public static void writeArray(Iterable<? extends SubscriptionObject<?>> subscriptions,
+            Writer writer) throws IOException {
+        writer.write('[');
+        boolean first = true;
+        for (SubscriptionObject<?> subscription : subscriptions) {
+            if (!first) {
+                writer.write(',');
+            }
+            subscription.writeTo(writer);
+            first = false;
+        }
+        writer.write(']');
+    }
+
+    /**
+     * Writes all given subscriptions as one UTF-8 encoded JSON array. The stream is flushed but
+     * not closed.
+     *
+     * @param subscriptions
+     * @param outputStream
+     * @throws IOException
+     */
+    public static void writeArray(Iterable<? extends SubscriptionObject<?>> subscriptions,
+            OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(
+                new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        writeArray(subscriptions, writer);
+        writer.flush();
+    }
+
+    /**
+     * Returns a ContentProducer that streams the given subscriptions as one JSON array, to be
+     * used as the body of a HttpRequest. The producer may be written several times, e.g. when the
+     * request is retried.
+     *
+     * @param subscriptions
+     * @return ContentProducer
+     */
+    public static ContentProducer toContentProducer(
+            Iterable<? extends SubscriptionObject<?>> subscriptions) {
+        return outputStream -> writeArray(subscriptions, outputStream);
+    }
+
+    /**
+     * Splits the subscriptions into batches and hands each batch to the handler. The next batch
+     * is not taken from the iterator until the handler has returned.
+     *
+     * @param subscriptions
+     * @param handler
+     * @return the number of batches handled
+     * @throws IOException
+     *             if thrown by the handler, no further batches are handled
+     */
+    public int forEachBatch(Iterator<? extends SubscriptionObject<?>> subscriptions,
+            BatchHandler handler) throws IOException {
+        int batchIndex = 0;
+        List<SubscriptionObject<?>> batch = new ArrayList<>(batchSize);
+        while (subscriptions.hasNext()) {
+            batch.add(subscriptions.next());
+            if (batch.size() == batchSize || !subscriptions.hasNext()) {
+                handler.handleBatch(batchIndex++, Collections.unmodifiableList(batch));
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        return batchIndex;
+    }
+
+    /**
+     * Posts the subscriptions in batches, each batch as the streamed JSON array body of the given
+     * request. The request is reused for all batches and its URL, method and headers are kept,
+     * only the body is replaced.
+     *
+     * @param request
+     *            :: Request to perform, e.g. a POST towards /subscriptions
+     * @param subscriptions
+     * @param handler
+     *            :: Receives the response of each batch
+     * @return the number of batches sent
+     * @throws IOException
+     */
+    public int sendBatches(HttpRequest request,
+            Iterator<? extends SubscriptionObject<?>> subscriptions, ResponseHandler handler)
+            throws IOException {
+        return forEachBatch(subscriptions, (batchIndex, batch) -> {
+            request.setBody(toContentProducer(batch), ContentType.APPLICATION_JSON);
+            try {
+                handler.handleResponse(batchIndex, batch, request.performRequest());
+            } catch (URISyntaxException e) {
+                throw new IOException("Failed to send subscription batch " + batchIndex, e);
+            }
+        });
+    }
+
+    /**
+     * Receives one batch of subscriptions.
+     */
+    @FunctionalInterface
+    public interface BatchHandler {
+        void handleBatch(int batchIndex, List<SubscriptionObject<?>> batch) throws IOException;
+    }
+
+    /**
+     * Receives the response to one batch of subscriptions.
+     */
+    @FunctionalInterface
+    public interface ResponseHandler {
+        void handleResponse(int batchIndex, List<SubscriptionObject<?>> batch,
+                ResponseEntity response) throws IOException;
+    }
+}
@@ -0,0 +1,345 @@
+/*
+   Copyright 2019 Ericsson AB.
+   For a full list of individual contributors, please see the commit history.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.ericsson.eiffelcommons.subscriptionobject;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.http.HttpStatus;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.entity.ContentType;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import com.ericsson.eiffelcommons.constants.MediaType;
+import com.ericsson.eiffelcommons.exceptions.SubscriptionManagerException;
+import com.ericsson.eiffelcommons.http.HttpExecutor;
+import com.ericsson.eiffelcommons.http.HttpRequest;
+import com.ericsson.eiffelcommons.http.HttpRequest.HttpMethod;
+import com.ericsson.eiffelcommons.http.ResponseEntity;
+
+/**
+ * Client for the subscription REST API of Eiffel Intelligence. Subscriptions are created, updated
+ * and deleted in batches, each batch in a single request with the subscriptions streamed into the
+ * request body.
+ *
+ * reconcileSubscriptions fetches the existing subscriptions once and compares them locally by
+ * subscription name, so only new and changed subscriptions are sent.
+ *
+ * @author Ericsson 2019
+ *
+ */
+public class SubscriptionManager {
+
+    private static final String SUBSCRIPTIONS_ENDPOINT = "/subscriptions";
+    private static final String SUBSCRIPTION_NAMES_PARAMETER = "subscriptionNames";
+
+    // fields set by Eiffel Intelligence that are not part of the subscription sent to it, and
+    // the basic auth credentials which it stores encrypted so they never match the sent ones
+    private static final Set<String> SERVER_MANAGED_KEYS = Collections.unmodifiableSet(
+            new HashSet<>(Arrays.asList("_id", "created", "ldapUserName", "userName",
+                    "password")));
+
+    private String eiBaseUrl;
+    private String encoding;
+    private HttpExecutor executor;
+    private int batchSize = SubscriptionBulkWriter.DEFAULT_BATCH_SIZE;
+
+    /**
+     * Constructor, takes the Eiffel Intelligence base url.
+     *
+     * @param eiBaseUrl :: Eiffel Intelligence base url http://somehost:8090
+     */
+    public SubscriptionManager(String eiBaseUrl) {
+        this(eiBaseUrl, new HttpExecutor());
+    }
+
+    /**
+     * Constructor, takes the Eiffel Intelligence base url and the executor used for all requests.
+     *
+     * @param eiBaseUrl :: Eiffel Intelligence base url http://somehost:8090
+     * @param executor  :: HttpExecutor used to perform the requests
+     */
+    public SubscriptionManager(String eiBaseUrl, HttpExecutor executor) {
+        this.eiBaseUrl = eiBaseUrl;
+        this.executor = executor;
+    }
+
+    /**
+     * Constructor, takes the Eiffel Intelligence base url, the credentials of an LDAP user and
+     * the executor used for all requests.
+     *
+     * @param eiBaseUrl :: Eiffel Intelligence base url http://somehost:8090
+     * @param username  :: LDAP username as String
+     * @param password  :: LDAP password as String
+     * @param executor  :: HttpExecutor used to perform the requests
+     */
+    public SubscriptionManager(String eiBaseUrl, String username, String password,
+            HttpExecutor executor) {
+        this(eiBaseUrl, executor);
+        String authString = String.join(":", username, password);
+        this.encoding = Base64.getEncoder()
+                              .encodeToString(authString.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sets the maximum number of subscriptions sent in one request.
+     *
+     * @param batchSize
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1, was " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Fetches all subscriptions stored in Eiffel Intelligence with a single request.
+     *
+     * @return Map of subscription name to subscription JSON, in the order returned
+     * @throws SubscriptionManagerException
+     * @throws URISyntaxException
+     * @throws IOException
+     * @throws ClientProtocolException
+     */
+    public Map<String, JSONObject> getSubscriptions()
+            throws SubscriptionManagerException, ClientProtocolException, URISyntaxException,
+            IOException {
+        HttpRequest httpRequest = createRequest(HttpMethod.GET);
+        ResponseEntity response = httpRequest.performRequest();
+        if (response.getStatusCode() != HttpStatus.SC_OK) {
+            throw createRequestFailedException("fetch subscriptions", response);
+        }
+
+        JSONArray subscriptions = new JSONArray(response.getBody());
+        Map<String, JSONObject> subscriptionsByName = new LinkedHashMap<>();
+        for (int i = 0; i < subscriptions.length(); i++) {
+            JSONObject subscription = subscriptions.getJSONObject(i);
+            subscriptionsByName.put(subscription.optString("subscriptionName"), subscription);
+        }
+
+        return subscriptionsByName;
+    }
+
+    /**
+     * Creates the given subscriptions in batches.
+     *
+     * @param subscriptions
+     * @return the number of requests sent
+     * @throws SubscriptionManagerException
+     *             if Eiffel Intelligence rejects a batch, earlier batches are kept
+     * @throws URISyntaxException
+     * @throws IOException
+     * @throws ClientProtocolException
+     */
+    public int addSubscriptions(List<? extends SubscriptionObject<?>> subscriptions)
+            throws SubscriptionManagerException, ClientProtocolException, URISyntaxException,
+            IOException {
+        return sendInBatches(HttpMethod.POST, subscriptions);
+    }
+
+    /**
+     * Updates the given subscriptions, matched by subscription name, in batches.
+     *
+     * @param subscriptions
+     * @return the number of requests sent
+     * @throws SubscriptionManagerException
+     *             if Eiffel Intelligence rejects a batch, earlier batches are kept
+     * @throws URISyntaxException
+     * @throws IOException
+     * @throws ClientProtocolException
+     */
+    public int updateSubscriptions(List<? extends SubscriptionObject<?>> subscriptions)
+            throws SubscriptionManagerException, ClientProtocolException, URISyntaxException,
+            IOException {
+        return sendInBatches(HttpMethod.PUT, subscriptions);
+    }
+
+    /**
+     * Deletes the subscriptions with the given names in batches.
+     *
+     * @param subscriptionNames
+     * @return the number of requests sent
+     * @throws SubscriptionManagerException
+     *             if Eiffel Intelligence rejects a batch, earlier batches are kept
+     * @throws URISyntaxException
+     * @throws IOException
+     * @throws ClientProtocolException
+     */
+    public int deleteSubscriptions(List<String> subscriptionNames)
+            throws SubscriptionManagerException, ClientProtocolException, URISyntaxException,
+            IOException {
+        int requestCount = 0;
+        for (int start = 0; start < subscriptionNames.size(); start += batchSize) {
+            List<String> batch = subscriptionNames.subList(start,
+                    Math.min(start + batchSize, subscriptionNames.size()));
+            HttpRequest httpRequest = createRequest(HttpMethod.DELETE);
+            httpRequest.addParameter(SUBSCRIPTION_NAMES_PARAMETER, String.join(",", batch));
+
+            ResponseEntity response = httpRequest.performRequest();
+            requestCount++;
+            if (response.getStatusCode() != HttpStatus.SC_OK) {
+                throw createRequestFailedException("delete subscriptions " + batch, response);
+            }
+        }
+
+        return requestCount;
+    }
+
+    /**
+     * Creates the given subscriptions that do not exist and updates those that differ from the
+     * existing ones. Existing subscriptions not among the given ones are kept.
+     *
+     * @param subscriptions
+     * @return SubscriptionReconcileResult
+     * @throws SubscriptionManagerException
+     * @throws URISyntaxException
+     * @throws IOException
+     * @throws ClientProtocolException
+     */
+    public SubscriptionReconcileResult upsertSubscriptions(
+            Collection<? extends SubscriptionObject<?>> subscriptions)
+            throws SubscriptionManagerException, ClientProtocolException, URISyntaxException,
+            IOException {
+        return reconcileSubscriptions(subscriptions, false);
+    }
+
+    /**
+     * Makes the subscriptions in Eiffel Intelligence match the given ones. The existing
+     * subscriptions are fetched once and compared by subscription name, then the new
+     * subscriptions are created and the changed ones updated in batches. A subscription is
+     * changed if any field set in the given subscription has another value in the existing one.
+     * The basic auth username and password are not compared since Eiffel Intelligence stores
+     * them encrypted, so a subscription where only the credentials changed is left unchanged.
+     *
+     * @param subscriptions
+     * @param deleteOthers
+     *            :: If true, existing subscriptions not among the given ones are deleted
+     * @return SubscriptionReconcileResult
+     * @throws SubscriptionManagerException
+     * @throws URISyntaxException
+     * @throws IOException
+     * @throws ClientProtocolException
+     */
+    public SubscriptionReconcileResult reconcileSubscriptions(
+            Collection<? extends SubscriptionObject<?>> subscriptions, boolean deleteOthers)
+            throws SubscriptionManagerException, ClientProtocolException, URISyntaxException,
+            IOException {
+        SubscriptionReconcileResult result = new SubscriptionReconcileResult();
+        Map<String, JSONObject> existingSubscriptions = getSubscriptions();
+        result.addRequests(1);
+
+        Set<String> subscriptionNames = new HashSet<>();
+        List<SubscriptionObject<?>> newSubscriptions = new ArrayList<>();
+        List<SubscriptionObject<?>> changedSubscriptions = new ArrayList<>();
+        for (SubscriptionObject<?> subscription : subscriptions) {
+            String subscriptionName = subscription.getSubscriptionName();
+            if (!subscriptionNames.add(subscriptionName)) {
+                throw new SubscriptionManagerException(
+                        "Subscription name " + subscriptionName + " is used more than once.");
+            }
+
+            JSONObject existingSubscription = existingSubscriptions.get(subscriptionName);
+            if (existingSubscription == null) {
+                newSubscriptions.add(subscription);
+                result.addCreated(subscriptionName);
+            } else if (!subscription.isSimilarTo(existingSubscription, SERVER_MANAGED_KEYS)) {
+                changedSubscriptions.add(subscription);
+                result.addUpdated(subscriptionName);
+            } else {
+                result.addUnchanged(subscriptionName);
+            }
+        }
+
+        List<String> otherSubscriptionNames = new ArrayList<>();
+        if (deleteOthers) {
+            for (String existingName : existingSubscriptions.keySet()) {
+                if (!subscriptionNames.contains(existingName)) {
+                    otherSubscriptionNames.add(existingName);
+                }
+            }
+        }
+
+        result.addRequests(addSubscriptions(newSubscriptions));
+        result.addRequests(updateSubscriptions(changedSubscriptions));
+        result.addRequests(deleteSubscriptions(otherSubscriptionNames));
+        otherSubscriptionNames.forEach(result::addDeleted);
+
+        return result;
+    }
+
+    private int sendInBatches(HttpMethod method, List<? extends SubscriptionObject<?>> subscriptions)
+            throws SubscriptionManagerException, ClientProtocolException, URISyntaxException,
+            IOException {
+        int requestCount = 0;
+        for (int start = 0; start < subscriptions.size(); start += batchSize) {
+            List<? extends SubscriptionObject<?>> batch = subscriptions.subList(start,
+                    Math.min(start + batchSize, subscriptions.size()));
+            HttpRequest httpRequest = createRequest(method);
+            httpRequest.setBody(SubscriptionBulkWriter.toContentProducer(batch),
+                    ContentType.APPLICATION_JSON);
+
+            ResponseEntity response = httpRequest.performRequest();
+            requestCount++;
+            if (response.getStatusCode() != HttpStatus.SC_OK) {
+                String action = String.format("%s a batch of %d subscriptions starting with %s",
+                        method == HttpMethod.POST ? "create" : "update", batch.size(),
+                        batch.get(0)
+                             .getSubscriptionName());
+                throw createRequestFailedException(action, response);
+            }
+        }
+
+        return requestCount;
+    }
+
+    private HttpRequest createRequest(HttpMethod method) {
+        HttpRequest httpRequest = new HttpRequest(method, executor);
+        httpRequest.setBaseUrl(eiBaseUrl)
+                   .addHeader("Accept", MediaType.APPLICATION_JSON)
+                   .setEndpoint(SUBSCRIPTIONS_ENDPOINT);
+        if (encoding != null) {
+            httpRequest.addHeader("Authorization", "Basic " + encoding);
+        }
+
+        return httpRequest;
+    }
+
+    private SubscriptionManagerException createRequestFailedException(String action,
+            ResponseEntity response) {
+        String message = String.format(
+                "Failed to %s in Eiffel Intelligence. Response code: %s. Message: %s", action,
+                response.getStatusCodeValue(), response.getBody());
+        return new SubscriptionManagerException(message);
+    }
+}
@@ -17,23 +17,27 @@
 package com.ericsson.eiffelcommons.subscriptionobject;
 
 import java.io.IOException;
+import java.io.Writer;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 
 import com.ericsson.eiffelcommons.utils.FileUtils;
 
-import lombok.Getter;
-
 public abstract class SubscriptionObject<T extends SubscriptionObject<?>> {
     private static final String SUBSCRIPTION_TEMPLATE_PATH = "subscriptionsTemplate.json";
 
     // reference to self as the subclass type
     protected final T self;
 
-    @Getter
     protected JSONObject subscriptionJson;
 
+    // top level keys whose JSONObject or JSONArray value is shared with a copy or prototype
+    private final Set<String> sharedKeys = ConcurrentHashMap.newKeySet();
+
     /**
      * Creates a subscription with a specific name.
      *
@@ -46,6 +50,56 @@ public abstract class SubscriptionObject<T extends SubscriptionObject<?>> {
         this.self = selfClass.cast(this);
     }
 
+    /**
+     * Creates a copy of a prototype subscription with a new name. Nested objects and arrays, such
+     * as requirements and notification message key values, are shared with the prototype until
+     * either of them modifies them, so creating a copy costs little more than copying the top
+     * level fields.
+     *
+     * The prototype may be copied from several threads at once, but must not be modified while
+     * it is being copied.
+     *
+     * @param selfClass
+     * @param prototype
+     * @param subscriptionName
+     */
+    protected SubscriptionObject(final Class<T> selfClass, SubscriptionObject<T> prototype,
+            String subscriptionName) {
+        subscriptionJson = new JSONObject();
+        for (String key : prototype.subscriptionJson.keySet()) {
+            Object value = prototype.subscriptionJson.get(key);
+            if (value instanceof JSONObject || value instanceof JSONArray) {
+                prototype.sharedKeys.add(key);
+                sharedKeys.add(key);
+            }
+            subscriptionJson.put(key, value);
+        }
+        subscriptionJson.put("subscriptionName", subscriptionName);
+        this.self = selfClass.cast(this);
+    }
+
+    /**
+     * Returns the JSON of the subscription. Any part still shared with a copy or prototype is
+     * copied first, so the returned JSON may be modified freely.
+     *
+     * @return JSONObject
+     */
+    public JSONObject getSubscriptionJson() {
+        for (String key : sharedKeys) {
+            getOwnedJson(key);
+        }
+        return subscriptionJson;
+    }
+
+    /**
+     * Returns the name of the subscription.
+     *
+     * @return String
+     */
+    public String getSubscriptionName() {
+        return subscriptionJson.optString("subscriptionName");
+    }
+
     /**
      * Adds a notification body to the subscriptionObject.
      *
@@ -68,7 +122,7 @@ public abstract class SubscriptionObject<T extends SubscriptionObject<?>> {
         keyValue.put("formkey", notificationKey);
         keyValue.put("formvalue", notificationValue);
 
-        JSONArray notificationMessageKeyValue = subscriptionJson.getJSONArray(
+        JSONArray notificationMessageKeyValue = (JSONArray) getOwnedJson(
                 "notificationMessageKeyValues");
         notificationMessageKeyValue.put(keyValue);
         return this.self;
@@ -83,7 +137,7 @@ public abstract class SubscriptionObject<T extends SubscriptionObject<?>> {
      * @return SubscriptionObject<T>
      */
     public T addConditionToRequirement(int requirementIndex, JSONObject condition) {
-        JSONArray requirements = subscriptionJson.getJSONArray("requirements");
+        JSONArray requirements = (JSONArray) getOwnedJson("requirements");
         JSONObject requirement = requirements.getJSONObject(requirementIndex);
         JSONArray conditions = requirement.getJSONArray("conditions");
         conditions.put(condition);
@@ -121,11 +175,81 @@ public abstract class SubscriptionObject<T extends SubscriptionObject<?>> {
      */
     public JSONArray getAsSubscriptions() {
         JSONArray subscriptions = new JSONArray();
-        subscriptions.put(subscriptionJson);
+        subscriptions.put(getSubscriptionJson());
 
         return subscriptions;
     }
 
+    /**
+     * Writes the JSON of the subscription to a writer without building it as a String first.
+     * Parts shared with a copy or prototype are written as they are and not copied.
+     *
+     * @param writer
+     * @throws IOException
+     */
+    public void writeTo(Writer writer) throws IOException {
+        try {
+            subscriptionJson.write(writer);
+        } catch (JSONException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Checks if an existing subscription, as returned by Eiffel Intelligence, has the same value
+     * for every field set in this subscription. Fields only present in the existing subscription,
+     * and the ignored keys, are not compared. Nothing is copied by the comparison.
+     *
+     * @param existingJson
+     * @param ignoredKeys
+     * @return boolean
+     */
+    boolean isSimilarTo(JSONObject existingJson, Set<String> ignoredKeys) {
+        for (String key : subscriptionJson.keySet()) {
+            if (ignoredKeys.contains(key)) {
+                continue;
+            }
+            Object value = subscriptionJson.get(key);
+            Object existingValue = existingJson.opt(key);
+            if (value instanceof JSONObject) {
+                if (!(existingValue instanceof JSONObject)
+                        || !((JSONObject) value).similar(existingValue)) {
+                    return false;
+                }
+            } else if (value instanceof JSONArray) {
+                if (!(existingValue instanceof JSONArray)
+                        || !((JSONArray) value).similar(existingValue)) {
+                    return false;
+                }
+            } else if (!value.equals(existingValue)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the nested object or array stored under a top level key, copying it first if it is
+     * shared with a copy or prototype.
+     *
+     * @param key
+     * @return JSONObject or JSONArray
+     */
+    private Object getOwnedJson(String key) {
+        if (sharedKeys.remove(key)) {
+            Object value = subscriptionJson.get(key);
+            if (value instanceof JSONObject) {
+                subscriptionJson.put(key, FileUtils.deepCopy((JSONObject) value));
+            } else if (value instanceof JSONArray) {
+                subscriptionJson.put(key, FileUtils.deepCopy((JSONArray) value));
+            }
+        }
+        return subscriptionJson.get(key);
+    }
+
     @Override
     public String toString() {
         return subscriptionJson.toString();
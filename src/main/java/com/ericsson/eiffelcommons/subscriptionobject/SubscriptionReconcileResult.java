@@ -0,0 +1,92 @@
+/*
+   Copyright 2019 Ericsson AB.
+   For a full list of individual contributors, please see the commit history.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.ericsson.eiffelcommons.subscriptionobject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import lombok.Getter;
+
+/**
+ * Names of the subscriptions created, updated, deleted and left unchanged by
+ * SubscriptionManager.reconcileSubscriptions, together with the number of requests sent to
+ * Eiffel Intelligence.
+ *
+ * @author Ericsson 2019
+ *
+ */
+public class SubscriptionReconcileResult {
+
+    private final List<String> created = new ArrayList<>();
+    private final List<String> updated = new ArrayList<>();
+    private final List<String> deleted = new ArrayList<>();
+    private final List<String> unchanged = new ArrayList<>();
+    @Getter
+    private int requestCount = 0;
+
+    /**
+     * Returns true if any subscription was created, updated or deleted.
+     *
+     * @return boolean
+     */
+    public boolean hasChanges() {
+        return !created.isEmpty() || !updated.isEmpty() || !deleted.isEmpty();
+    }
+
+    public List<String> getCreated() {
+        return Collections.unmodifiableList(created);
+    }
+
+    public List<String> getUpdated() {
+        return Collections.unmodifiableList(updated);
+    }
+
+    public List<String> getDeleted() {
+        return Collections.unmodifiableList(deleted);
+    }
+
+    public List<String> getUnchanged() {
+        return Collections.unmodifiableList(unchanged);
+    }
+
+    void addRequests(int count) {
+        requestCount += count;
+    }
+
+    void addCreated(String subscriptionName) {
+        created.add(subscriptionName);
+    }
+
+    void addUpdated(String subscriptionName) {
+        updated.add(subscriptionName);
+    }
+
+    void addDeleted(String subscriptionName) {
+        deleted.add(subscriptionName);
+    }
+
+    void addUnchanged(String subscriptionName) {
+        unchanged.add(subscriptionName);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("created: %d, updated: %d, deleted: %d, unchanged: %d, requests: %d",
+                created.size(), updated.size(), deleted.size(), unchanged.size(), requestCount);
+    }
+}
@@ -16,18 +16,32 @@
 */
 package com.ericsson.eiffelcommons.utils;
 
-import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.util.stream.Collectors;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.commons.io.IOUtils;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
+/**
+ * Access to resource files. Each resource is read and parsed once per class loader, later calls
+ * return the cached content, or a deep copy of the cached JSON so that callers may modify it.
+ *
+ * Resources are looked up through the context class loader of the calling thread first, then the
+ * class loader of this library, and last the system class loader.
+ */
 public class FileUtils {
 
+    private static final Map<ClassLoader, Map<String, CachedResource>> CACHE = Collections.synchronizedMap(
+            new WeakHashMap<>());
+
     /**
      * Return a resource file in string format.
      *
@@ -36,14 +50,7 @@ public class FileUtils {
      * @throws FileNotFoundException
      */
     public static String getResourceFileAsString(String fileName) throws FileNotFoundException {
-        ClassLoader classLoader = ClassLoader.getSystemClassLoader();
-        InputStream inputStream = classLoader.getResourceAsStream(fileName);
-        if (inputStream != null) {
-            BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
-            return reader.lines()
-                         .collect(Collectors.joining(System.lineSeparator()));
-        }
-        throw new FileNotFoundException("Could not locate recourse file [" + fileName + "].");
+        return getCachedResource(fileName).content;
     }
 
     /**
@@ -54,7 +61,7 @@ public class FileUtils {
      * @throws IOException
      */
     public static JSONArray getResourceFileAsJsonArray(String fileName) throws FileNotFoundException {
-        return new JSONArray(getResourceFileAsString(fileName));
+        return deepCopy(getCachedResource(fileName).getJsonArray());
     }
 
     /**
@@ -65,6 +72,124 @@ public class FileUtils {
      * @throws IOException
      */
     public static JSONObject getResourceFileAsJsonObject(String fileName) throws FileNotFoundException {
-        return new JSONObject(getResourceFileAsString(fileName));
+        return deepCopy(getCachedResource(fileName).getJsonObject());
+    }
+
+    /**
+     * Drops all cached resources, they are read again on next access.
+     */
+    public static void clearCache() {
+        CACHE.clear();
+    }
+
+    /**
+     * Returns a copy of the given JSON object, nested objects and arrays are copied as well.
+     *
+     * @param json
+     * @return
+     */
+    public static JSONObject deepCopy(JSONObject json) {
+        JSONObject copy = new JSONObject();
+        for (String key : json.keySet()) {
+            copy.put(key, deepCopyValue(json.get(key)));
+        }
+        return copy;
+    }
+
+    /**
+     * Returns a copy of the given JSON array, nested objects and arrays are copied as well.
+     *
+     * @param json
+     * @return
+     */
+    public static JSONArray deepCopy(JSONArray json) {
+        JSONArray copy = new JSONArray();
+        for (int i = 0; i < json.length(); i++) {
+            copy.put(deepCopyValue(json.get(i)));
+        }
+        return copy;
+    }
+
+    private static Object deepCopyValue(Object value) {
+        if (value instanceof JSONObject) {
+            return deepCopy((JSONObject) value);
+        }
+        if (value instanceof JSONArray) {
+            return deepCopy((JSONArray) value);
+        }
+        return value;
+    }
+
+    private static CachedResource getCachedResource(String fileName) throws FileNotFoundException {
+        ClassLoader contextClassLoader = Thread.currentThread()
+                                               .getContextClassLoader();
+        ClassLoader cacheKey = contextClassLoader != null ? contextClassLoader
+                : FileUtils.class.getClassLoader();
+        if (cacheKey == null) {
+            cacheKey = ClassLoader.getSystemClassLoader();
+        }
+
+        Map<String, CachedResource> resources = CACHE.computeIfAbsent(cacheKey,
+                classLoader -> new ConcurrentHashMap<>());
+        CachedResource resource = resources.get(fileName);
+        if (resource == null) {
+            resource = new CachedResource(readResource(fileName, contextClassLoader));
+            resources.putIfAbsent(fileName, resource);
+        }
+
+        return resource;
+    }
+
+    private static String readResource(String fileName, ClassLoader contextClassLoader)
+            throws FileNotFoundException {
+        InputStream inputStream = null;
+        if (contextClassLoader != null) {
+            inputStream = contextClassLoader.getResourceAsStream(fileName);
+        }
+        if (inputStream == null && FileUtils.class.getClassLoader() != null) {
+            inputStream = FileUtils.class.getClassLoader()
+                                         .getResourceAsStream(fileName);
+        }
+        if (inputStream == null) {
+            inputStream = ClassLoader.getSystemClassLoader()
+                                     .getResourceAsStream(fileName);
+        }
+        if (inputStream == null) {
+            throw new FileNotFoundException("Could not locate recourse file [" + fileName + "].");
+        }
+
+        try (InputStream resourceStream = inputStream) {
+            return IOUtils.toString(resourceStream, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read recourse file [" + fileName + "].", e);
+        }
+    }
+
+    /**
+     * The content of a resource file, parsed to JSON on first use. The parsed JSON is never handed
+     * out, only copies of it.
+     */
+    private static class CachedResource {
+        private final String content;
+        private volatile JSONObject jsonObject;
+        private volatile JSONArray jsonArray;
+
+        CachedResource(String content) {
+            this.content = content;
+        }
+
+        JSONObject getJsonObject() {
+            if (jsonObject == null) {
+                jsonObject = new JSONObject(content);
+            }
+            return jsonObject;
+        }
+
+        JSONArray getJsonArray() {
+            if (jsonArray == null) {
+                jsonArray = new JSONArray(content);
+            }
+            return jsonArray;
+        }
     }
 }
@@ -0,0 +1,215 @@
+package com.ericsson.eiffelcommons.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockserver.integration.ClientAndServer.startClientAndServer;
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.HttpResponse.response;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ContentType;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockserver.integration.ClientAndServer;
+import org.mockserver.matchers.Times;
+
+import com.ericsson.eiffelcommons.http.HttpRequest.HttpMethod;
+
+public class AsyncHttpExecutorTest {
+
+    private static final String URL_FAKE = "http://ensure-non-existant-webpage.com";
+    private static final String URL_MOCK = "http://localhost:{port}";
+    private static final String ENDPOINT_MOCK = "/endpoint";
+    private static final String ENDPOINT_UPLOAD = "/upload";
+    private static final String RESPONSE_MOCK = "{\"message\":\"dummy\"}";
+
+    private static ClientAndServer clientAndServer;
+
+    @BeforeClass
+    public static void setUpMocks() throws IOException {
+        clientAndServer = startClientAndServer();
+        clientAndServer.when(request().withMethod("GET").withPath(ENDPOINT_MOCK))
+                       .respond(response().withStatusCode(200).withBody(RESPONSE_MOCK));
+        clientAndServer.when(request().withMethod("POST").withPath(ENDPOINT_UPLOAD))
+                       .respond(response().withStatusCode(200));
+    }
+
+    @AfterClass
+    public static void tearDownMocks() {
+        clientAndServer.stop();
+    }
+
+    @Test
+    public void testExecuteRequestAsync() throws Exception {
+        try (AsyncHttpExecutor executor = new AsyncHttpExecutor()) {
+            ResponseEntity response = executor.executeRequestAsync(createMockRequest()).get();
+            assertEquals(200, response.getStatusCode());
+            assertEquals(RESPONSE_MOCK, response.getBody());
+        }
+    }
+
+    @Test
+    public void testMaxInFlightRequests() throws Exception {
+        HttpExecutorConfig config = new HttpExecutorConfig().setIoThreadCount(1)
+                                                            .setMaxInFlightRequests(2);
+        try (AsyncHttpExecutor executor = new AsyncHttpExecutor(config)) {
+            List<CompletableFuture<ResponseEntity>> futures = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                futures.add(executor.executeRequestAsync(createMockRequest()));
+            }
+
+            for (CompletableFuture<ResponseEntity> future : futures) {
+                assertEquals(RESPONSE_MOCK, future.get().getBody());
+            }
+            assertEquals(0, executor.getPendingRequestCount());
+        }
+    }
+
+    @Test
+    public void testQueuedRequestsAreNotDispatchedOnReactorThreads() throws Exception {
+        HttpExecutorConfig config = new HttpExecutorConfig().setIoThreadCount(1)
+                                                            .setMaxInFlightRequests(1);
+        Set<String> dispatchThreads = ConcurrentHashMap.newKeySet();
+        RequestTracer tracer = new RequestTracer() {
+            @Override
+            public void onRequest(HttpRequestBase request) {
+                dispatchThreads.add(Thread.currentThread()
+                                          .getName());
+            }
+        };
+        try (AsyncHttpExecutor executor = new AsyncHttpExecutor(config).setRequestTracer(tracer)) {
+            List<CompletableFuture<ResponseEntity>> futures = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                futures.add(executor.executeRequestAsync(createMockRequest()));
+            }
+
+            for (CompletableFuture<ResponseEntity> future : futures) {
+                assertEquals(200, future.get().getStatusCode());
+            }
+        }
+
+        for (String threadName : dispatchThreads) {
+            assertFalse(threadName, threadName.startsWith("I/O dispatcher"));
+        }
+    }
+
+    @Test
+    public void testExecuteAfterCloseReleasesInFlightPermits() throws Exception {
+        HttpExecutorConfig config = new HttpExecutorConfig().setMaxInFlightRequests(1);
+        AsyncHttpExecutor executor = new AsyncHttpExecutor(config);
+        executor.close();
+
+        List<CompletableFuture<ResponseEntity>> futures = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            futures.add(executor.executeRequestAsync(createMockRequest()));
+        }
+
+        for (CompletableFuture<ResponseEntity> future : futures) {
+            try {
+                future.get(5, TimeUnit.SECONDS);
+                fail("Expected the request to fail");
+            } catch (ExecutionException | CancellationException e) {
+                // The stopped client rejects the request, depending on its state, with an
+                // IllegalStateException or a CancellationException
+            }
+        }
+        assertEquals(0, executor.getPendingRequestCount());
+    }
+
+    @Test
+    public void testExecuteRequestAsyncWithFileBody() throws Exception {
+        Path file = Files.createTempFile("body", ".json");
+        try (AsyncHttpExecutor executor = new AsyncHttpExecutor()) {
+            Files.write(file, RESPONSE_MOCK.getBytes(StandardCharsets.UTF_8));
+            HttpRequest request = new HttpRequest(HttpMethod.POST, executor);
+            request.setBaseUrl(URL_MOCK.replace("{port}", String.valueOf(clientAndServer.getLocalPort())))
+                   .setEndpoint(ENDPOINT_UPLOAD)
+                   .setBody(file.toFile(), ContentType.APPLICATION_JSON);
+            assertEquals(200, request.performRequestAsync().get().getStatusCode());
+        } finally {
+            Files.delete(file);
+        }
+
+        assertEquals(RESPONSE_MOCK, clientAndServer.retrieveRecordedRequests(
+                request().withPath(ENDPOINT_UPLOAD))[0].getBodyAsString());
+    }
+
+    @Test
+    public void testExecuteRequestAsyncWithRetry() throws Exception {
+        String endpoint = "/retry";
+        clientAndServer.when(request().withPath(endpoint), Times.exactly(2))
+                       .respond(response().withStatusCode(503).withHeader("Retry-After", "0"));
+        clientAndServer.when(request().withPath(endpoint))
+                       .respond(response().withStatusCode(200).withBody(RESPONSE_MOCK));
+
+        RetryPolicy retryPolicy = new RetryPolicy().setMaxAttempts(3)
+                                                   .setInitialBackoffMillis(10)
+                                                   .setJitter(0);
+        try (AsyncHttpExecutor executor = new AsyncHttpExecutor().setRetryPolicy(retryPolicy)) {
+            HttpRequest request = new HttpRequest(HttpMethod.GET, executor);
+            request.setBaseUrl(URL_MOCK.replace("{port}", String.valueOf(clientAndServer.getLocalPort())))
+                   .setEndpoint(endpoint);
+            assertEquals(RESPONSE_MOCK, request.performRequestAsync().get().getBody());
+        }
+
+        assertEquals(3, clientAndServer.retrieveRecordedRequests(request().withPath(endpoint)).length);
+    }
+
+    @Test
+    public void testSharedInstanceUsesDaemonThreads() {
+        AsyncHttpExecutor.getInstance();
+
+        List<Thread> reactorThreads = new ArrayList<>();
+        for (Thread thread : Thread.getAllStackTraces()
+                                   .keySet()) {
+            if (thread.getName()
+                      .startsWith("shared-async-http-executor-")) {
+                reactorThreads.add(thread);
+            }
+        }
+
+        assertFalse(reactorThreads.isEmpty());
+        for (Thread thread : reactorThreads) {
+            assertTrue(thread.isDaemon());
+        }
+    }
+
+    @Test(expected = UnknownHostException.class)
+    public void testExecuteRequestAsyncUnknownHost() throws Throwable {
+        HttpGet request = new HttpGet();
+        request.setURI(new URI(URL_FAKE));
+
+        try (AsyncHttpExecutor executor = new AsyncHttpExecutor()) {
+            executor.executeRequestAsync(request).get();
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        }
+    }
+
+    private HttpGet createMockRequest() throws URISyntaxException {
+        HttpGet request = new HttpGet();
+        String url = URL_MOCK.replace("{port}", String.valueOf(clientAndServer.getLocalPort()));
+        request.setURI(new URI(url + ENDPOINT_MOCK));
+        return request;
+    }
+}
@@ -0,0 +1,95 @@
+package com.ericsson.eiffelcommons.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.ericsson.eiffelcommons.http.CircuitBreaker.State;
+
+public class CircuitBreakerTest {
+
+    @Test
+    public void testOpensOnFailureRate() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(createPolicy());
+        for (int i = 0; i < 3; i++) {
+            assertTrue(circuitBreaker.tryAcquirePermission());
+            circuitBreaker.onResult(1, false);
+        }
+        assertEquals(State.CLOSED, circuitBreaker.getState());
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(circuitBreaker.tryAcquirePermission());
+            circuitBreaker.onResult(1, true);
+        }
+        assertEquals(0.5, circuitBreaker.getFailureRate(), 0.001);
+        assertEquals(State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+    }
+
+    @Test
+    public void testOpensOnSlowCalls() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(createPolicy().setSlowCallRateThreshold(0.5));
+        for (int i = 0; i < 6; i++) {
+            circuitBreaker.tryAcquirePermission();
+            circuitBreaker.onResult(i % 2 == 0 ? 1 : 200, false);
+        }
+
+        assertEquals(State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    public void testSlidingWindowForgetsOldFailures() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(createPolicy());
+        for (int i = 0; i < 2; i++) {
+            circuitBreaker.tryAcquirePermission();
+            circuitBreaker.onResult(1, true);
+        }
+        for (int i = 0; i < 10; i++) {
+            circuitBreaker.tryAcquirePermission();
+            circuitBreaker.onResult(1, false);
+        }
+
+        assertEquals(0.0, circuitBreaker.getFailureRate(), 0.001);
+        assertEquals(State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    public void testHalfOpenProbes() throws InterruptedException {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(createPolicy().setOpenDurationMillis(200));
+        openCircuit(circuitBreaker);
+        assertEquals(State.OPEN, circuitBreaker.getState());
+        Thread.sleep(250);
+
+        assertEquals(State.HALF_OPEN, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+        circuitBreaker.onResult(1, false);
+        circuitBreaker.onResult(1, false);
+        assertEquals(State.CLOSED, circuitBreaker.getState());
+
+        openCircuit(circuitBreaker);
+        Thread.sleep(250);
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        circuitBreaker.onResult(1, true);
+        assertEquals(State.OPEN, circuitBreaker.getState());
+    }
+
+    private void openCircuit(CircuitBreaker circuitBreaker) {
+        for (int i = 0; i < 6; i++) {
+            circuitBreaker.tryAcquirePermission();
+            circuitBreaker.onResult(1, true);
+        }
+    }
+
+    private CircuitBreakerPolicy createPolicy() {
+        return new CircuitBreakerPolicy().setSlidingWindowSize(10)
+                                         .setMinimumNumberOfCalls(6)
+                                         .setFailureRateThreshold(0.5)
+                                         .setSlowCallDurationMillis(100)
+                                         .setOpenDurationMillis(60000)
+                                         .setHalfOpenProbeCalls(2);
+    }
+}
@@ -0,0 +1,86 @@
+package com.ericsson.eiffelcommons.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class HttpExecutorRegistryTest {
+
+    @After
+    public void tearDown() throws IOException {
+        HttpExecutorRegistry.closeAll();
+    }
+
+    @Test
+    public void testRegisterAndGet() {
+        HttpExecutor fast = HttpExecutorRegistry.register("jenkins-fast",
+                new HttpExecutorConfig().setSocketTimeoutMillis(1000));
+        HttpExecutor bulk = HttpExecutorRegistry.register("ei-bulk",
+                new HttpExecutorConfig().setMaxConnectionsPerRoute(4));
+
+        assertSame(fast, HttpExecutorRegistry.get("jenkins-fast"));
+        assertSame(bulk, HttpExecutorRegistry.get("ei-bulk"));
+        assertNotSame(fast, bulk);
+        assertEquals(Arrays.asList("ei-bulk", "jenkins-fast"),
+                new ArrayList<>(HttpExecutorRegistry.getNames()));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRegisterTwice() {
+        HttpExecutorRegistry.register("jenkins-fast", new HttpExecutorConfig());
+        HttpExecutorRegistry.register("jenkins-fast", new HttpExecutorConfig());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetUnknown() {
+        HttpExecutorRegistry.get("unknown");
+    }
+
+    @Test
+    public void testGetOrCreateConcurrently() throws Exception {
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<HttpExecutor>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(threads.submit(
+                        () -> HttpExecutorRegistry.getOrCreate("ei-bulk", new HttpExecutorConfig())));
+            }
+            HttpExecutor first = futures.get(0)
+                                        .get();
+            for (Future<HttpExecutor> future : futures) {
+                assertSame(first, future.get());
+            }
+            assertSame(first, HttpExecutorRegistry.get("ei-bulk"));
+        } finally {
+            threads.shutdown();
+        }
+    }
+
+    @Test
+    public void testClose() throws IOException {
+        HttpExecutorRegistry.register("jenkins-fast", new HttpExecutorConfig());
+        HttpExecutorRegistry.close("jenkins-fast");
+
+        assertTrue(HttpExecutorRegistry.getNames()
+                                       .isEmpty());
+        try {
+            HttpExecutorRegistry.get("jenkins-fast");
+            fail("Expected the executor to be unregistered");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+}
@@ -1,8 +1,12 @@
 package com.ericsson.eiffelcommons.http;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockserver.integration.ClientAndServer.startClientAndServer;
 import static org.mockserver.model.HttpRequest.request;
 import static org.mockserver.model.HttpResponse.response;
@@ -11,17 +15,34 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
+import org.apache.http.HttpHost;
 import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.pool.PoolStats;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.mockserver.integration.ClientAndServer;
+import org.mockserver.matchers.Times;
 import org.powermock.reflect.Whitebox;
 
+import com.ericsson.eiffelcommons.exceptions.BulkheadFullException;
+import com.ericsson.eiffelcommons.exceptions.CircuitBreakerOpenException;
 import com.ericsson.eiffelcommons.http.HttpExecutor;
+import com.ericsson.eiffelcommons.http.HttpRequest.HttpMethod;
 import com.ericsson.eiffelcommons.http.ResponseEntity;
 
 public class HttpExecutorTest {
@@ -30,6 +51,7 @@ public class HttpExecutorTest {
     private static final String URL_MOCK = "http://localhost:{port}";
     private static final String ENDPOINT_MOCK = "/endpoint";
     private static final String RESPONSE_MOCK = "{\"message\":\"dummy\"}";
+    private static final String TRACE_PARENT = "00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01";
 
     private static ClientAndServer clientAndServer;
 
@@ -98,6 +120,322 @@ public class HttpExecutorTest {
         assertEquals(RESPONSE_MOCK, response.getBody());
     }
 
+    @Test
+    public void testPooledExecutor()
+            throws URISyntaxException, ClientProtocolException, IOException {
+        setUpMock();
+
+        HttpGet request = new HttpGet();
+        String url = URL_MOCK.replace("{port}", String.valueOf(clientAndServer.getLocalPort()));
+        request.setURI(new URI(url + ENDPOINT_MOCK));
+
+        HttpExecutorConfig config = new HttpExecutorConfig().setMaxTotalConnections(10)
+                                                            .setMaxConnectionsPerRoute(5);
+        try (HttpExecutor executor = new HttpExecutor(config)) {
+            ResponseEntity response = executor.executeRequest(request);
+            assertEquals(RESPONSE_MOCK, response.getBody());
+            response = executor.executeRequest(request);
+            assertEquals(RESPONSE_MOCK, response.getBody());
+
+            PoolStats stats = executor.getPoolStats();
+            assertEquals(10, stats.getMax());
+            assertEquals(0, stats.getLeased());
+            assertEquals(1, stats.getAvailable());
+
+            HttpHost host = new HttpHost("localhost", clientAndServer.getLocalPort(), "http");
+            assertEquals(5, executor.getPoolStats(host).getMax());
+        }
+    }
+
+    @Test
+    public void testPoolStatsWithoutPool() {
+        HttpExecutor executor = new HttpExecutor();
+        assertNull(executor.getPoolStats());
+    }
+
+    @Test
+    public void testRetryOnServiceUnavailable()
+            throws URISyntaxException, ClientProtocolException, IOException {
+        String endpoint = "/retry";
+        clientAndServer.when(request().withPath(endpoint), Times.exactly(2))
+                       .respond(response().withStatusCode(503));
+        clientAndServer.when(request().withPath(endpoint))
+                       .respond(response().withStatusCode(200).withBody(RESPONSE_MOCK));
+
+        HttpGet request = new HttpGet(createMockUri(endpoint));
+        HttpExecutor executor = new HttpExecutor().setRetryPolicy(createRetryPolicy());
+        ResponseEntity response = executor.executeRequest(request);
+
+        assertEquals(RESPONSE_MOCK, response.getBody());
+        assertEquals(3, clientAndServer.retrieveRecordedRequests(request().withPath(endpoint)).length);
+    }
+
+    @Test
+    public void testNoRetryOfNonIdempotentRequest()
+            throws URISyntaxException, ClientProtocolException, IOException {
+        String endpoint = "/retry-post";
+        clientAndServer.when(request().withPath(endpoint))
+                       .respond(response().withStatusCode(503));
+
+        HttpPost request = new HttpPost(createMockUri(endpoint));
+        HttpExecutor executor = new HttpExecutor();
+        ResponseEntity response = executor.executeRequest(request, createRetryPolicy());
+
+        assertEquals(503, response.getStatusCode());
+        assertEquals(1, clientAndServer.retrieveRecordedRequests(request().withPath(endpoint)).length);
+    }
+
+    @Test
+    public void testNoRetryWhenRetryAfterTooLong()
+            throws URISyntaxException, ClientProtocolException, IOException {
+        String endpoint = "/retry-after";
+        clientAndServer.when(request().withPath(endpoint))
+                       .respond(response().withStatusCode(503).withHeader("Retry-After", "120"));
+
+        HttpGet request = new HttpGet(createMockUri(endpoint));
+        HttpExecutor executor = new HttpExecutor();
+        ResponseEntity response = executor.executeRequest(request, createRetryPolicy());
+
+        assertEquals(503, response.getStatusCode());
+        assertEquals(1, clientAndServer.retrieveRecordedRequests(request().withPath(endpoint)).length);
+    }
+
+    @Test
+    public void testRetryGivesUpAfterMaxAttempts()
+            throws URISyntaxException, ClientProtocolException, IOException {
+        String endpoint = "/retry-max";
+        clientAndServer.when(request().withPath(endpoint))
+                       .respond(response().withStatusCode(502));
+
+        HttpGet request = new HttpGet(createMockUri(endpoint));
+        HttpExecutor executor = new HttpExecutor();
+        ResponseEntity response = executor.executeRequest(request, createRetryPolicy());
+
+        assertEquals(502, response.getStatusCode());
+        assertEquals(3, clientAndServer.retrieveRecordedRequests(request().withPath(endpoint)).length);
+    }
+
+    @Test
+    public void testCircuitBreakerOpens()
+            throws URISyntaxException, ClientProtocolException, IOException {
+        String endpoint = "/circuit-breaker";
+        clientAndServer.when(request().withPath(endpoint))
+                       .respond(response().withStatusCode(503));
+
+        HttpGet request = new HttpGet(createMockUri(endpoint));
+        HttpExecutor executor = new HttpExecutor().setCircuitBreakerPolicy(
+                new CircuitBreakerPolicy().setMinimumNumberOfCalls(3));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(503, executor.executeRequest(request).getStatusCode());
+        }
+
+        HttpHost host = new HttpHost("localhost", clientAndServer.getLocalPort(), "http");
+        assertEquals(CircuitBreaker.State.OPEN, executor.getCircuitBreaker(host).getState());
+        try {
+            executor.executeRequest(request);
+            fail("Expected the circuit breaker to reject the request.");
+        } catch (CircuitBreakerOpenException e) {
+            // expected
+        }
+        assertEquals(3, clientAndServer.retrieveRecordedRequests(request().withPath(endpoint)).length);
+    }
+
+    @Test(expected = BulkheadFullException.class)
+    public void testBulkheadFull() throws Throwable {
+        String endpoint = "/bulkhead";
+        clientAndServer.when(request().withPath(endpoint))
+                       .respond(response().withStatusCode(200)
+                                          .withDelay(TimeUnit.MILLISECONDS, 1000));
+
+        HttpExecutor executor = new HttpExecutor().setBulkheadPolicy(
+                new BulkheadPolicy().setMaxConcurrentCalls(1));
+        CompletableFuture<ResponseEntity> slowRequest = CompletableFuture.supplyAsync(() -> {
+            try {
+                return executor.executeRequest(new HttpGet(createMockUri(endpoint)));
+            } catch (IOException | URISyntaxException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        long stopTime = System.currentTimeMillis() + 5000;
+        while (clientAndServer.retrieveRecordedRequests(request().withPath(endpoint)).length == 0
+                && System.currentTimeMillis() < stopTime) {
+            Thread.sleep(10);
+        }
+        try {
+            executor.executeRequest(new HttpGet(createMockUri(endpoint)));
+        } finally {
+            assertEquals(200, slowRequest.get().getStatusCode());
+        }
+    }
+
+    @Test
+    public void testStreamingRequestHoldsBulkheadSlot() throws URISyntaxException, IOException {
+        setUpMock();
+        try (HttpExecutor executor = new HttpExecutor(new HttpExecutorConfig())) {
+            executor.setBulkheadPolicy(new BulkheadPolicy().setMaxConcurrentCalls(1));
+            StreamingResponseEntity first = executor.executeStreamingRequest(
+                    new HttpGet(createMockUri(ENDPOINT_MOCK)),
+                    StreamingResponseEntity.UNLIMITED_BODY_SIZE);
+            try {
+                executor.executeStreamingRequest(new HttpGet(createMockUri(ENDPOINT_MOCK)),
+                        StreamingResponseEntity.UNLIMITED_BODY_SIZE);
+                fail("Expected the bulkhead to be full while the first body is open");
+            } catch (BulkheadFullException e) {
+                // Expected
+            }
+
+            assertEquals(RESPONSE_MOCK, first.readBody());
+            try (StreamingResponseEntity second = executor.executeStreamingRequest(
+                    new HttpGet(createMockUri(ENDPOINT_MOCK)),
+                    StreamingResponseEntity.UNLIMITED_BODY_SIZE)) {
+                assertEquals(200, second.getStatusCode());
+            }
+            first.close();
+        }
+    }
+
+    @Test
+    public void testMetricsRecorder() throws URISyntaxException, IOException {
+        setUpMock();
+        List<String> requests = new ArrayList<>();
+        List<Boolean> leases = new ArrayList<>();
+        List<Supplier<PoolStats>> pools = new ArrayList<>();
+        MetricsRecorder recorder = new MetricsRecorder() {
+            @Override
+            public void recordRequest(String host, String method, String endpoint,
+                    int statusCode, long durationNanos, long bytesSent, long bytesReceived) {
+                requests.add(String.join(" ", host, method, endpoint, String.valueOf(statusCode),
+                        String.valueOf(bytesSent), String.valueOf(bytesReceived)));
+            }
+
+            @Override
+            public void recordConnectionLease(String host, long waitNanos, boolean leased) {
+                leases.add(leased);
+            }
+
+            @Override
+            public void bindConnectionPool(Supplier<PoolStats> poolStats) {
+                pools.add(poolStats);
+            }
+        };
+
+        String url = URL_MOCK.replace("{port}", String.valueOf(clientAndServer.getLocalPort()));
+        try (HttpExecutor executor = new HttpExecutor(new HttpExecutorConfig())) {
+            executor.setMetricsRecorder(recorder);
+            HttpRequest request = new HttpRequest(HttpMethod.GET, executor);
+            request.setBaseUrl(url)
+                   .setEndpointTemplate("/{name}")
+                   .setEndpoint(ENDPOINT_MOCK);
+            request.performRequest();
+            executor.executeRequest(new HttpGet(url + ENDPOINT_MOCK));
+
+            assertEquals(Arrays.asList(url + " GET /{name} 200 0 " + RESPONSE_MOCK.length(),
+                    url + " GET " + ENDPOINT_MOCK + " 200 0 " + RESPONSE_MOCK.length()), requests);
+            assertEquals(Arrays.asList(true, true), leases);
+            assertEquals(1, pools.size());
+            assertEquals(0, pools.get(0)
+                                 .get()
+                                 .getLeased());
+        }
+    }
+
+    @Test
+    public void testGetInstanceConcurrently() throws Exception {
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<HttpExecutor>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(threads.submit(HttpExecutor::getInstance));
+            }
+            HttpExecutor first = futures.get(0)
+                                        .get();
+            for (Future<HttpExecutor> future : futures) {
+                assertSame(first, future.get());
+            }
+            assertSame(first, HttpExecutor.getInstance());
+        } finally {
+            threads.shutdown();
+            Whitebox.setInternalState(HttpExecutor.class, "instance", (HttpExecutor) null);
+        }
+    }
+
+    @Test
+    public void testRequestTracer() throws URISyntaxException, IOException {
+        setUpMock();
+        List<RequestTiming> timings = new ArrayList<>();
+        RequestTracer tracer = new RequestTracer() {
+            @Override
+            public void onRequest(HttpRequestBase request) {
+                request.setHeader("traceparent", TRACE_PARENT);
+            }
+
+            @Override
+            public void onResponse(HttpRequestBase request, int statusCode, RequestTiming timing) {
+                timings.add(timing);
+            }
+        };
+
+        try (HttpExecutor executor = new HttpExecutor(new HttpExecutorConfig())) {
+            executor.setRequestTracer(tracer);
+            executor.executeRequest(new HttpGet(createMockUri(ENDPOINT_MOCK)));
+            executor.executeRequest(new HttpGet(createMockUri(ENDPOINT_MOCK)));
+        }
+
+        assertEquals(2, clientAndServer.retrieveRecordedRequests(request().withPath(ENDPOINT_MOCK)
+                                                                          .withHeader("traceparent",
+                                                                                  TRACE_PARENT)).length);
+        assertEquals(2, timings.size());
+        RequestTiming first = timings.get(0);
+        assertTrue(first.isNewConnection());
+        assertTrue(first.getDnsNanos() >= 0);
+        assertEquals(-1, first.getTlsHandshakeNanos());
+        assertTrue(first.getLeaseNanos() >= 0);
+        assertTrue(first.getTimeToFirstByteNanos() >= 0);
+        assertTrue(first.getBodyReadNanos() >= 0);
+        assertTrue(first.getTotalNanos() >= first.getTimeToFirstByteNanos());
+
+        RequestTiming second = timings.get(1);
+        assertFalse(second.isNewConnection());
+        assertEquals(-1, second.getDnsNanos());
+        assertTrue(second.getTimeToFirstByteNanos() >= 0);
+    }
+
+    @Test
+    public void testRequestTracerFailure() throws URISyntaxException, IOException {
+        List<RequestTiming> timings = new ArrayList<>();
+        RequestTracer tracer = new RequestTracer() {
+            @Override
+            public void onFailure(HttpRequestBase request, Throwable failure,
+                    RequestTiming timing) {
+                timings.add(timing);
+            }
+        };
+
+        HttpExecutor executor = new HttpExecutor().setRequestTracer(tracer);
+        try {
+            executor.executeRequest(new HttpGet(URL_FAKE));
+            fail("Expected an UnknownHostException");
+        } catch (UnknownHostException e) {
+            assertEquals(1, timings.size());
+            assertTrue(timings.get(0)
+                              .getDnsNanos() >= 0);
+            assertEquals(-1, timings.get(0)
+                                    .getTimeToFirstByteNanos());
+        }
+    }
+
+    private URI createMockUri(String endpoint) throws URISyntaxException {
+        String url = URL_MOCK.replace("{port}", String.valueOf(clientAndServer.getLocalPort()));
+        return new URI(url + endpoint);
+    }
+
+    private RetryPolicy createRetryPolicy() {
+        return new RetryPolicy().setMaxAttempts(3)
+                                .setInitialBackoffMillis(10)
+                                .setJitter(0);
+    }
+
     private void setUpMock() {
         clientAndServer.when(request().withMethod("GET").withPath(ENDPOINT_MOCK))
                        .respond(response().withStatusCode(200).withBody(RESPONSE_MOCK));
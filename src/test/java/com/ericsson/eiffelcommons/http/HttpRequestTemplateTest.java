@@ -0,0 +1,158 @@
+package com.ericsson.eiffelcommons.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.mockserver.integration.ClientAndServer.startClientAndServer;
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.HttpResponse.response;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+
+import org.apache.http.Header;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockserver.integration.ClientAndServer;
+import org.powermock.reflect.Whitebox;
+
+import com.ericsson.eiffelcommons.http.HttpRequest.HttpMethod;
+
+public class HttpRequestTemplateTest {
+
+    private static final String ENDPOINT = "/api/json";
+    private static final String AUTHORIZATION = "Basic dXNlcjpwYXNz";
+
+    private static ClientAndServer clientAndServer;
+
+    @BeforeClass
+    public static void setUpMocks() {
+        clientAndServer = startClientAndServer();
+        clientAndServer.when(request().withPath(ENDPOINT)
+                                      .withHeader("Authorization", AUTHORIZATION)
+                                      .withHeader("X-Tenant", "eiffel"))
+                       .respond(response().withStatusCode(200)
+                                          .withBody("{}"));
+    }
+
+    @AfterClass
+    public static void tearDownMocks() {
+        clientAndServer.stop();
+    }
+
+    @Test
+    public void testNewRequestSharesHeaders() {
+        HttpRequestTemplate template = HttpRequestTemplate.builder()
+                                                          .setBaseUrl("http://localhost:8080/")
+                                                          .setBasicAuth("user", "pass")
+                                                          .addHeader("X-Tenant", "eiffel")
+                                                          .build();
+
+        HttpRequest first = template.newRequest(HttpMethod.GET);
+        HttpRequest second = template.newRequest(HttpMethod.POST)
+                                     .addHeader("Content-type", "application/json");
+
+        assertEquals("http://localhost:8080", first.getBaseUrl());
+        Header[] firstHeaders = getRequestBase(first).getAllHeaders();
+        Header[] secondHeaders = getRequestBase(second).getAllHeaders();
+        assertEquals(2, firstHeaders.length);
+        assertEquals(3, secondHeaders.length);
+        assertEquals(AUTHORIZATION, firstHeaders[0].getValue());
+        assertSame(firstHeaders[0], secondHeaders[0]);
+        assertEquals(2, template.getHeaders()
+                                .size());
+    }
+
+    @Test
+    public void testSetBasicAuthReplacesAuthorization() {
+        HttpRequestTemplate template = HttpRequestTemplate.builder()
+                                                          .setBaseUrl("http://localhost:8080")
+                                                          .setBasicAuth("other", "secret")
+                                                          .build()
+                                                          .toBuilder()
+                                                          .setBasicAuth("user", "pass")
+                                                          .build();
+
+        assertEquals(1, template.getHeaders()
+                                .size());
+        assertEquals(AUTHORIZATION, template.getHeaders()
+                                            .get(0)
+                                            .getValue());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testBuildWithoutBaseUrl() {
+        HttpRequestTemplate.builder()
+                           .build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBuildWithInvalidBaseUrl() {
+        HttpRequestTemplate.builder()
+                           .setBaseUrl("http://local host")
+                           .build();
+    }
+
+    @Test
+    public void testPerformRequest() throws URISyntaxException, IOException {
+        try (HttpExecutor executor = new HttpExecutor(new HttpExecutorConfig())) {
+            HttpRequestTemplate template = HttpRequestTemplate.builder()
+                                                              .setBaseUrl("http://localhost:"
+                                                                      + clientAndServer.getLocalPort())
+                                                              .setBasicAuth("user", "pass")
+                                                              .addHeader("X-Tenant", "eiffel")
+                                                              .setExecutor(executor)
+                                                              .build();
+
+            for (int i = 0; i < 2; i++) {
+                ResponseEntity response = template.newRequest(HttpMethod.GET)
+                                                  .setEndpoint(ENDPOINT)
+                                                  .performRequest();
+                assertEquals(200, response.getStatusCode());
+            }
+        }
+    }
+
+    @Test
+    public void testTimeoutsKeepExecutorConfig() throws IOException {
+        try (HttpExecutor executor = new HttpExecutor(
+                new HttpExecutorConfig().setConnectionRequestTimeoutMillis(1234))) {
+            HttpRequestTemplate template = HttpRequestTemplate.builder()
+                                                              .setBaseUrl("http://localhost:8080")
+                                                              .setExecutor(executor)
+                                                              .setTimeouts(100, 200)
+                                                              .build();
+
+            RequestConfig config = getRequestBase(template.newRequest(HttpMethod.GET)).getConfig();
+            assertEquals(100, config.getConnectTimeout());
+            assertEquals(200, config.getSocketTimeout());
+            assertEquals(1234, config.getConnectionRequestTimeout());
+        }
+    }
+
+    @Test
+    public void testRetryPolicyIsCopied() {
+        RetryPolicy retryPolicy = new RetryPolicy().setMaxAttempts(2);
+        HttpRequestTemplate template = HttpRequestTemplate.builder()
+                                                          .setBaseUrl("http://localhost:8080")
+                                                          .setRetryPolicy(retryPolicy)
+                                                          .build();
+
+        retryPolicy.setMaxAttempts(5);
+        template.getRetryPolicy()
+                .getRetryableStatusCodes()
+                .add(500);
+        assertEquals(2, template.getRetryPolicy()
+                                .getMaxAttempts());
+        assertFalse(template.getRetryPolicy()
+                            .getRetryableStatusCodes()
+                            .contains(500));
+    }
+
+    private HttpRequestBase getRequestBase(HttpRequest request) {
+        return Whitebox.getInternalState(request, "request", HttpRequest.class);
+    }
+}
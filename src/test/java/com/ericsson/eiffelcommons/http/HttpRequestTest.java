@@ -1,8 +1,11 @@
 package com.ericsson.eiffelcommons.httptest;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
@@ -12,12 +15,17 @@ import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.http.HttpEntity;
 import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpRequestBase;
@@ -26,7 +34,9 @@ import org.apache.http.entity.ContentType;
 import org.junit.Test;
 import org.powermock.reflect.Whitebox;
 
+import com.ericsson.eiffelcommons.http.AsyncHttpExecutor;
 import com.ericsson.eiffelcommons.http.HttpExecutor;
+import com.ericsson.eiffelcommons.http.HttpExecutorConfig;
 import com.ericsson.eiffelcommons.http.HttpRequest;
 import com.ericsson.eiffelcommons.http.HttpRequest.HttpMethod;
 
@@ -59,26 +69,26 @@ public class HttpRequestTest {
         HttpRequest request = new HttpRequest(HttpMethod.POST);
         request.setBaseUrl(URL_2);
         request.setEndpoint(ENDPOINT_1);
-        URIBuilder builder = (URIBuilder) Whitebox.invokeMethod(request, "createURIBuilder");
-        assertEquals(EXPECTED_URI, builder.toString());
+        URI uri = request.getURI();
+        assertEquals(EXPECTED_URI, uri.toString());
 
         request = new HttpRequest(HttpMethod.GET);
         request.setBaseUrl(URL_2);
         request.setEndpoint(ENDPOINT_1);
-        builder = (URIBuilder) Whitebox.invokeMethod(request, "createURIBuilder");
-        assertEquals(EXPECTED_URI, builder.toString());
+        uri = request.getURI();
+        assertEquals(EXPECTED_URI, uri.toString());
 
         request = new HttpRequest(HttpMethod.DELETE);
         request.setBaseUrl(URL_2);
         request.setEndpoint(ENDPOINT_2);
-        builder = (URIBuilder) Whitebox.invokeMethod(request, "createURIBuilder");
-        assertEquals(EXPECTED_URI, builder.toString());
+        uri = request.getURI();
+        assertEquals(EXPECTED_URI, uri.toString());
 
         request = new HttpRequest(HttpMethod.PUT);
         request.setBaseUrl(URL_2);
         request.setEndpoint(ENDPOINT_2);
-        builder = (URIBuilder) Whitebox.invokeMethod(request, "createURIBuilder");
-        assertEquals(EXPECTED_URI, builder.toString());
+        uri = request.getURI();
+        assertEquals(EXPECTED_URI, uri.toString());
     }
 
     @Test
@@ -98,6 +108,31 @@ public class HttpRequestTest {
         assertTrue(method instanceof HttpGet);
     }
 
+    @Test
+    public void testExecutorConstructorsDoNotCreateClients() {
+        HttpExecutor executor = new HttpExecutor();
+        HttpRequest request = new HttpRequest(HttpMethod.GET, executor);
+        assertSame(executor, Whitebox.getInternalState(request, "executor", HttpRequest.class));
+
+        request = new HttpRequest(HttpMethod.GET, AsyncHttpExecutor.getInstance());
+        assertNull(Whitebox.getInternalState(request, "executor", HttpRequest.class));
+    }
+
+    @Test
+    public void testSetTimeoutsKeepsExecutorConfig() throws IOException {
+        try (HttpExecutor executor = new HttpExecutor(
+                new HttpExecutorConfig().setConnectionRequestTimeoutMillis(1234))) {
+            HttpRequest request = new HttpRequest(HttpMethod.GET, executor);
+            request.setTimeouts(100, 200);
+            HttpRequestBase requestBase = Whitebox.getInternalState(request, "request",
+                    HttpRequest.class);
+            RequestConfig config = requestBase.getConfig();
+            assertEquals(100, config.getConnectTimeout());
+            assertEquals(200, config.getSocketTimeout());
+            assertEquals(1234, config.getConnectionRequestTimeout());
+        }
+    }
+
     @Test
     public void testHttpExecutorConstructorAndPersistancy() {
         HttpExecutor executor = new HttpExecutor();
@@ -160,6 +195,59 @@ public class HttpRequestTest {
         assertEquals(BODY_CONTENT + "\n", actualBody);
     }
 
+    @Test
+    public void testStreamedBodyProperty() throws UnsupportedOperationException, IOException {
+        HttpRequest request = new HttpRequest(HttpMethod.POST);
+        request.setBody(outputStream -> outputStream.write(BODY_CONTENT.getBytes("UTF-8")),
+                ContentType.APPLICATION_JSON);
+        HttpEntityEnclosingRequestBase requestBase = Whitebox.getInternalState(request, "request",
+                HttpRequest.class);
+        HttpEntity entity = requestBase.getEntity();
+        assertTrue(entity.getContentType().toString().contains(BODY_HEADER));
+        assertTrue(entity.isChunked());
+        assertTrue(request.isRepeatable());
+        assertEquals(BODY_CONTENT, IOUtils.toString(entity.getContent(), "UTF-8"));
+
+        request.setBody(Paths.get(BODY_CONTENT_FILE), ContentType.APPLICATION_JSON);
+        entity = Whitebox.<HttpEntityEnclosingRequestBase> getInternalState(request, "request",
+                HttpRequest.class)
+                         .getEntity();
+        assertTrue(request.isRepeatable());
+        assertEquals(BODY_CONTENT + "\n", IOUtils.toString(entity.getContent(), "UTF-8"));
+
+        request.setBody(IOUtils.toInputStream(BODY_CONTENT, "UTF-8"), ContentType.APPLICATION_JSON);
+        entity = Whitebox.<HttpEntityEnclosingRequestBase> getInternalState(request, "request",
+                HttpRequest.class)
+                         .getEntity();
+        assertFalse(request.isRepeatable());
+        assertEquals(-1, entity.getContentLength());
+        assertEquals(BODY_CONTENT, IOUtils.toString(entity.getContent(), "UTF-8"));
+    }
+
+    @Test
+    public void testBinaryFileBody() throws IOException {
+        byte[] content = new byte[256];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        Path file = Files.createTempFile("body", ".bin");
+        try {
+            Files.write(file, content);
+            HttpRequest request = new HttpRequest(HttpMethod.POST);
+            request.setBody(file.toFile(), ContentType.APPLICATION_OCTET_STREAM);
+            HttpEntityEnclosingRequestBase requestBase = Whitebox.getInternalState(request,
+                    "request", HttpRequest.class);
+            HttpEntity entity = requestBase.getEntity();
+            assertEquals(content.length, entity.getContentLength());
+            assertTrue(entity.isRepeatable());
+            try (InputStream stream = entity.getContent()) {
+                assertArrayEquals(content, IOUtils.toByteArray(stream));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
     @Test(expected = IOException.class)
     public void testBodyException() throws IOException {
         HttpRequest request = new HttpRequest(HttpMethod.POST);
@@ -167,6 +255,12 @@ public class HttpRequestTest {
         request.setBody(file);
     }
 
+    @Test(expected = IOException.class)
+    public void testPathBodyException() throws IOException {
+        HttpRequest request = new HttpRequest(HttpMethod.POST);
+        request.setBody(Paths.get(BODY_CONTENT_FILE_INVALID), ContentType.APPLICATION_JSON);
+    }
+
     @Test
     public void testParameterProperty() {
         HttpRequest request = new HttpRequest(HttpMethod.GET);
@@ -214,6 +308,50 @@ public class HttpRequestTest {
         assertEquals(URL_1 + ENDPOINT_1, fullURI);
     }
 
+    @Test
+    public void testParametersKeepOrderAndEncoding() throws Exception {
+        String[] values = { "plain", "with space", "a+b&c=d", "jobs[name,color]", "\u00e5\u00e4\u00f6",
+                "\ud83d\ude00", "~!*'()" };
+        HttpRequest request = new HttpRequest(HttpMethod.GET);
+        request.setBaseUrl(URL_1)
+               .setEndpoint(ENDPOINT_1);
+        URIBuilder expected = new URIBuilder(URL_1 + ENDPOINT_1);
+        for (int i = values.length - 1; i >= 0; i--) {
+            request.addParameter("key" + i + values[i], values[i]);
+            expected.addParameter("key" + i + values[i], values[i]);
+        }
+
+        assertEquals(expected.build(), getPreparedURI(request));
+    }
+
+    @Test
+    public void testParametersAfterEndpointQuery() throws Exception {
+        HttpRequest request = new HttpRequest(HttpMethod.GET);
+        request.setBaseUrl(URL_1)
+               .setEndpoint("/api/json?depth=1")
+               .addParameter(PARAMETER_KEY_1, PARAMETER_VALUE_1);
+
+        assertEquals(URL_1 + "/api/json?depth=1&" + PARAMETER_KEY_1 + "=" + PARAMETER_VALUE_1,
+                getPreparedURI(request).toString());
+    }
+
+    @Test
+    public void testTemplatedEndpoint() throws Exception {
+        HttpRequest request = new HttpRequest(HttpMethod.GET);
+        request.setBaseUrl(URL_1)
+               .setTemplatedEndpoint("/job/{jobName}/{buildNumber}/api/json", "folder/my job", 12);
+
+        assertEquals("/job/{jobName}/{buildNumber}/api/json", request.getEndpointTemplate());
+        assertEquals("/job/folder/my%20job/12/api/json", request.getEndpoint());
+        assertEquals(URL_1 + "/job/folder/my%20job/12/api/json", request.getURI()
+                                                                       .toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTemplatedEndpointWrongNumberOfValues() {
+        new HttpRequest(HttpMethod.GET).setTemplatedEndpoint("/job/{jobName}/api/json");
+    }
+
     @Test(expected = UnknownHostException.class)
     public void testPerformRequestUnknownHost()
             throws ClientProtocolException, URISyntaxException, IOException {
@@ -238,6 +376,28 @@ public class HttpRequestTest {
         request.performRequest();
     }
 
+    @Test(expected = URISyntaxException.class)
+    public void testPerformRequestAsyncBadSyntax() throws Throwable {
+        HttpRequest request = new HttpRequest(HttpMethod.GET);
+        request.setBaseUrl(URL_BAD_SYNTAX);
+        try {
+            request.performRequestAsync().get();
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Test(expected = UnknownHostException.class)
+    public void testPerformRequestAsyncUnknownHost() throws Throwable {
+        HttpRequest request = new HttpRequest(HttpMethod.GET);
+        request.setBaseUrl(URL_1).setEndpoint(ENDPOINT_1);
+        try {
+            request.performRequestAsync().get();
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        }
+    }
+
     @Test(expected = UnknownHostException.class)
     public void testPerformRequestNoEndpoint()
             throws ClientProtocolException, URISyntaxException, IOException {
@@ -253,5 +413,10 @@ public class HttpRequestTest {
         request.setBaseUrl(URL_1).addParameter(PARAMETER_KEY_1, PARAMETER_VALUE_1);
         request.performRequest();
     }
-}
 
+    private URI getPreparedURI(HttpRequest request) throws Exception {
+        Whitebox.invokeMethod(request, "prepareURI");
+        HttpRequestBase method = Whitebox.getInternalState(request, "request", HttpRequest.class);
+        return method.getURI();
+    }
+}
@@ -0,0 +1,116 @@
+package com.ericsson.eiffelcommons.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockserver.integration.ClientAndServer.startClientAndServer;
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.HttpResponse.response;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.client.methods.HttpGet;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockserver.integration.ClientAndServer;
+
+public class StreamingResponseEntityTest {
+
+    private static final String URL_MOCK = "http://localhost:{port}";
+    private static final String ENDPOINT_MOCK = "/endpoint";
+    private static final String RESPONSE_MOCK = "{\"message\":\"dummy\"}";
+
+    private static ClientAndServer clientAndServer;
+
+    @BeforeClass
+    public static void setUpMocks() throws IOException {
+        clientAndServer = startClientAndServer();
+        clientAndServer.when(request().withMethod("GET").withPath(ENDPOINT_MOCK))
+                       .respond(response().withStatusCode(200).withBody(RESPONSE_MOCK));
+    }
+
+    @AfterClass
+    public static void tearDownMocks() {
+        clientAndServer.stop();
+    }
+
+    @Test
+    public void testGetInputStream() throws Exception {
+        try (HttpExecutor executor = new HttpExecutor(new HttpExecutorConfig());
+                StreamingResponseEntity response = executor.executeStreamingRequest(
+                        createMockRequest(), StreamingResponseEntity.UNLIMITED_BODY_SIZE)) {
+            assertEquals(200, response.getStatusCode());
+            try (InputStream inputStream = response.getInputStream()) {
+                assertEquals(RESPONSE_MOCK, IOUtils.toString(inputStream, "UTF-8"));
+            }
+            assertEquals(0, executor.getPoolStats().getLeased());
+        }
+    }
+
+    @Test
+    public void testGetChannel() throws Exception {
+        try (HttpExecutor executor = new HttpExecutor();
+                StreamingResponseEntity response = executor.executeStreamingRequest(
+                        createMockRequest(), StreamingResponseEntity.UNLIMITED_BODY_SIZE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1024);
+            try (ReadableByteChannel channel = response.getChannel()) {
+                while (channel.read(buffer) != -1) {
+                }
+            }
+            assertEquals(RESPONSE_MOCK, new String(buffer.array(), 0, buffer.position(), "UTF-8"));
+        }
+    }
+
+    @Test
+    public void testLazyBody() throws Exception {
+        try (HttpExecutor executor = new HttpExecutor(new HttpExecutorConfig());
+                StreamingResponseEntity response = executor.executeStreamingRequest(
+                        createMockRequest(), RESPONSE_MOCK.length())) {
+            assertEquals(RESPONSE_MOCK, response.getBody());
+            assertEquals(RESPONSE_MOCK, response.readBody());
+            assertEquals(0, executor.getPoolStats().getLeased());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testMaxBodySizeExceeded() throws Exception {
+        try (HttpExecutor executor = new HttpExecutor();
+                StreamingResponseEntity response = executor.executeStreamingRequest(
+                        createMockRequest(), RESPONSE_MOCK.length() - 1)) {
+            response.readBody();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testBodyAlreadyConsumed() throws Exception {
+        try (HttpExecutor executor = new HttpExecutor();
+                StreamingResponseEntity response = executor.executeStreamingRequest(
+                        createMockRequest(), StreamingResponseEntity.UNLIMITED_BODY_SIZE)) {
+            response.readBody();
+            response.getInputStream();
+        }
+    }
+
+    @Test
+    public void testCloseReleasesConnection() throws Exception {
+        try (HttpExecutor executor = new HttpExecutor(new HttpExecutorConfig())) {
+            StreamingResponseEntity response = executor.executeStreamingRequest(
+                    createMockRequest(), StreamingResponseEntity.UNLIMITED_BODY_SIZE);
+            assertEquals(1, executor.getPoolStats().getLeased());
+            response.close();
+            assertEquals(0, executor.getPoolStats().getLeased());
+        }
+    }
+
+    private HttpGet createMockRequest() throws URISyntaxException {
+        HttpGet request = new HttpGet();
+        String url = URL_MOCK.replace("{port}", String.valueOf(clientAndServer.getLocalPort()));
+        request.setURI(new URI(url + ENDPOINT_MOCK));
+        return request;
+    }
+}
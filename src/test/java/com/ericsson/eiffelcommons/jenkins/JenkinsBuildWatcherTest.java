@@ -0,0 +1,175 @@
+package com.ericsson.eiffelcommons.jenkins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockserver.integration.ClientAndServer.startClientAndServer;
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.HttpResponse.response;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONObject;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockserver.integration.ClientAndServer;
+import org.mockserver.model.HttpRequest;
+
+import com.ericsson.eiffelcommons.exceptions.JenkinsManagerException;
+
+public class JenkinsBuildWatcherTest {
+
+    private static final String JOB_NAME = "JenkinsJob";
+    private static final String ENDPOINT_CRUMB = "/crumbIssuer/api/json";
+    private static final String RESPONSE_CRUMB = "{\"crumb\":\"fb171d526b9cc9e25afe80b356e12cb7\",\"crumbRequestField\":\".crumb\"}";
+    private static final String ENDPOINT_JOB = String.format("/job/%s/api/json", JOB_NAME);
+    private static final String BUILDS_RUNNING = "{\"builds\":[{\"number\":2,\"building\":true},"
+            + "{\"number\":1,\"building\":false,\"result\":\"SUCCESS\"}]}";
+    private static final String BUILDS_FINISHED = "{\"builds\":[{\"number\":2,\"building\":false,\"result\":\"FAILURE\"},"
+            + "{\"number\":1,\"building\":false,\"result\":\"SUCCESS\"}]}";
+
+    private static final String BUILDS_RECENT = "{\"builds\":[{\"number\":11,\"building\":true},"
+            + "{\"number\":10,\"building\":false,\"result\":\"SUCCESS\"}]}";
+
+    private static ClientAndServer mockServer;
+    private JenkinsManager jenkinsManager;
+
+    @BeforeClass
+    public static void setUpMocks() throws IOException {
+        mockServer = startClientAndServer();
+    }
+
+    @AfterClass
+    public static void tearDownMocks() {
+        mockServer.stop();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        mockServer.reset();
+        mockServer.when(request().withMethod("GET").withPath(ENDPOINT_CRUMB))
+                  .respond(response().withStatusCode(200).withBody(RESPONSE_CRUMB));
+        jenkinsManager = new JenkinsManager("http://localhost:" + mockServer.getLocalPort(),
+                "username", "password");
+    }
+
+    @Test
+    public void testWatchBuilds() throws Exception {
+        setUpJobEndpoint(BUILDS_RUNNING);
+        try (JenkinsBuildWatcher watcher = createWatcher()) {
+            CompletableFuture<JSONObject> firstBuild = watcher.watchBuild(JOB_NAME, 1);
+            CompletableFuture<JSONObject> secondBuild = watcher.watchBuild(JOB_NAME, 2);
+
+            assertEquals("SUCCESS", firstBuild.get(5, TimeUnit.SECONDS).getString("result"));
+            assertFalse(secondBuild.isDone());
+
+            setUpJobEndpoint(BUILDS_FINISHED);
+            assertEquals("FAILURE", secondBuild.get(5, TimeUnit.SECONDS).getString("result"));
+            assertEquals(0, watcher.getWatchedBuildCount());
+        }
+    }
+
+    @Test
+    public void testWatchBuildsInOneRequestPerJob() throws Exception {
+        setUpJobEndpoint(BUILDS_FINISHED);
+        try (JenkinsBuildWatcher watcher = createWatcher()) {
+            CompletableFuture<JSONObject> firstBuild = watcher.watchBuild(JOB_NAME, 1);
+            CompletableFuture<JSONObject> secondBuild = watcher.watchBuild(JOB_NAME, 2);
+            CompletableFuture.allOf(firstBuild, secondBuild)
+                             .get(5, TimeUnit.SECONDS);
+        }
+
+        HttpRequest[] jobRequests = mockServer.retrieveRecordedRequests(
+                request().withMethod("GET").withPath(ENDPOINT_JOB));
+        assertEquals(1, jobRequests.length);
+        assertTrue(jobRequests[0].getFirstQueryStringParameter("tree").startsWith("builds["));
+    }
+
+    @Test(expected = JenkinsManagerException.class)
+    public void testWatchBuildFailsAfterConsecutiveFailures() throws Throwable {
+        mockServer.when(request().withMethod("GET").withPath(ENDPOINT_JOB))
+                  .respond(response().withStatusCode(500));
+        try (JenkinsBuildWatcher watcher = createWatcher().setMaxConsecutiveFailures(2)) {
+            watcher.watchBuild(JOB_NAME, 1)
+                   .get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Test
+    public void testCloseCancelsWatchedBuilds() {
+        setUpJobEndpoint(BUILDS_RUNNING);
+        JenkinsBuildWatcher watcher = createWatcher();
+        CompletableFuture<JSONObject> build = watcher.watchBuild(JOB_NAME, 3);
+        watcher.close();
+        assertTrue(build.isCancelled());
+    }
+
+    @Test
+    public void testMissingOldBuildOnlyFailsItself() throws Exception {
+        setUpJobEndpoint(BUILDS_RECENT);
+        try (JenkinsBuildWatcher watcher = createWatcher().setBuildHistoryDepth(2)
+                                                          .setMaxConsecutiveFailures(1)) {
+            CompletableFuture<JSONObject> deletedBuild = watcher.watchBuild(JOB_NAME, 3);
+            CompletableFuture<JSONObject> runningBuild = watcher.watchBuild(JOB_NAME, 11);
+            try {
+                deletedBuild.get(5, TimeUnit.SECONDS);
+                fail("Expected the deleted build to fail");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof JenkinsManagerException);
+            }
+            Thread.sleep(300);
+            assertFalse(runningBuild.isDone());
+            assertEquals(1, watcher.getWatchedBuildCount());
+        }
+    }
+
+    @Test
+    public void testMissingBuildInShortHistoryFails() throws Exception {
+        setUpJobEndpoint(BUILDS_RECENT);
+        try (JenkinsBuildWatcher watcher = createWatcher().setMaxConsecutiveFailures(1)) {
+            CompletableFuture<JSONObject> missingBuild = watcher.watchBuild(JOB_NAME, 9);
+            CompletableFuture<JSONObject> queuedBuild = watcher.watchBuild(JOB_NAME, 12);
+            try {
+                missingBuild.get(5, TimeUnit.SECONDS);
+                fail("Expected the missing build to fail");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof JenkinsManagerException);
+            }
+            Thread.sleep(300);
+            assertFalse(queuedBuild.isDone());
+            assertEquals(1, watcher.getWatchedBuildCount());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testWatchBuildAfterClose() throws Throwable {
+        JenkinsBuildWatcher watcher = createWatcher();
+        watcher.close();
+        CompletableFuture<JSONObject> build = watcher.watchBuild(JOB_NAME, 1);
+        assertEquals(0, watcher.getWatchedBuildCount());
+        try {
+            build.get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        }
+    }
+
+    private JenkinsBuildWatcher createWatcher() {
+        return new JenkinsBuildWatcher(jenkinsManager).setInitialPollIntervalMillis(50)
+                                                      .setMaxPollIntervalMillis(100);
+    }
+
+    private void setUpJobEndpoint(String body) {
+        mockServer.clear(request().withPath(ENDPOINT_JOB));
+        mockServer.when(request().withMethod("GET").withPath(ENDPOINT_JOB))
+                  .respond(response().withStatusCode(200).withBody(body));
+    }
+}
@@ -0,0 +1,81 @@
+package com.ericsson.eiffelcommons.jenkins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class JenkinsCrumbCacheTest {
+
+    private static final long TTL = 60000;
+
+    @Test
+    public void testCrumbIsCached() throws Exception {
+        AtomicInteger fetchCount = new AtomicInteger();
+        JenkinsCrumbCache cache = new JenkinsCrumbCache(
+                () -> "crumb" + fetchCount.incrementAndGet(), TTL);
+
+        JenkinsCrumbCache.Crumb crumb = cache.get();
+        assertEquals("crumb1", crumb.getValue());
+        assertSame(crumb, cache.get());
+        assertEquals(1, fetchCount.get());
+    }
+
+    @Test
+    public void testExpiredCrumbIsRenewed() throws Exception {
+        AtomicInteger fetchCount = new AtomicInteger();
+        JenkinsCrumbCache cache = new JenkinsCrumbCache(
+                () -> "crumb" + fetchCount.incrementAndGet(), 0);
+
+        assertEquals("crumb1", cache.get().getValue());
+        assertEquals("crumb2", cache.get().getValue());
+        assertEquals("crumb2", cache.peekValue());
+    }
+
+    @Test
+    public void testConcurrentRenewalIsSingleFlight() throws Exception {
+        AtomicInteger fetchCount = new AtomicInteger();
+        CountDownLatch fetchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFetch = new CountDownLatch(1);
+        JenkinsCrumbCache cache = new JenkinsCrumbCache(() -> {
+            if (fetchCount.incrementAndGet() > 1) {
+                fetchStarted.countDown();
+                awaitLatch(releaseFetch);
+            }
+            return "crumb" + fetchCount.get();
+        }, TTL);
+        JenkinsCrumbCache.Crumb rejectedCrumb = cache.get();
+
+        ExecutorService threadPool = Executors.newFixedThreadPool(8);
+        List<Future<JenkinsCrumbCache.Crumb>> renewals = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            renewals.add(threadPool.submit(() -> cache.renew(rejectedCrumb)));
+        }
+        fetchStarted.await(5, TimeUnit.SECONDS);
+        releaseFetch.countDown();
+
+        for (Future<JenkinsCrumbCache.Crumb> renewal : renewals) {
+            assertEquals("crumb2", renewal.get().getValue());
+        }
+        threadPool.shutdown();
+        assertEquals(2, fetchCount.get());
+    }
+
+    private static void awaitLatch(CountDownLatch latch) throws IOException {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        }
+    }
+}
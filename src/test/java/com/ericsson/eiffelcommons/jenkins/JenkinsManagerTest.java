@@ -2,7 +2,9 @@ package com.ericsson.eiffelcommons.jenkins;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockserver.integration.ClientAndServer.startClientAndServer;
 import static org.mockserver.model.HttpRequest.request;
 import static org.mockserver.model.HttpResponse.response;
@@ -12,9 +14,20 @@ import java.io.UnsupportedEncodingException;
 import java.net.ServerSocket;
 import java.net.URISyntaxException;
 import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import javax.xml.bind.DatatypeConverter;
 
@@ -25,9 +38,15 @@ import org.json.JSONObject;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.mockserver.integration.ClientAndServer;
+import org.mockserver.matchers.Times;
+import org.mockserver.model.HttpRequest;
 import org.mockserver.model.Parameter;
 
 import com.ericsson.eiffelcommons.exceptions.JenkinsManagerException;
+import com.ericsson.eiffelcommons.http.AsyncHttpExecutor;
+import com.ericsson.eiffelcommons.http.HttpExecutor;
+import com.ericsson.eiffelcommons.http.HttpExecutorConfig;
+import com.ericsson.eiffelcommons.http.MetricsRecorder;
 
 public class JenkinsManagerTest {
 
@@ -40,6 +59,8 @@ public class JenkinsManagerTest {
     private static final String INVALID_PROTOCOL = "httg";
     private static final String HOST = "localhost";
     private static final String ENDPOINT_CRUMB = "/crumbIssuer/api/json";
+    private static final String RESPONSE_CRUMB_RENEWED = "{\"crumb\":\"renewed\",\"crumbRequestField\":\".crumb\"}";
+    private static final String HEADER_CRUMB = "Jenkins-Crumb";
     private static final String RESPONSE_CRUMB = "{\"crumb\":\"fb171d526b9cc9e25afe80b356e12cb7\",\"crumbRequestField\":\".crumb\"}";
     private static final String JOB_NAME = "JenkinsJob";
     private static final String XML = "<?xml version=\"1.0\"?><test>Test</test>";
@@ -63,14 +84,34 @@ public class JenkinsManagerTest {
     private static final String ENDPOINT_PLUGIN = "/pluginManager/api/json";
     private static final String PLUGIN_NAME = "myPlugin";
     private static final String BODY_PLUGIN = String.format(
-            "{\"plugins\":[{\"shortName\":\"%s\"}]}", PLUGIN_NAME);
+            "{\"plugins\":[{\"shortName\":\"%s\",\"version\":\"1.0.0\"}]}", PLUGIN_NAME);
+    private static final String TREE_PLUGIN = "plugins[shortName,version]";
+    private static final String BODY_BUILD_STATUS = String.format(
+            "{\"number\":%s,\"building\":false,\"result\":\"SUCCESS\",\"duration\":1500}", BUILD_NUMBER);
     private static final String PLUGIN_NOT_FOUND = "dummy";
     private static final String ENDPOINT_PLUGIN_INSTALL = "/pluginManager/installNecessaryPlugins";
     private static final String PLUGIN_VERSION = "1.0.0";
     private static final String BODY_PLUGIN_INSTALL = String.format(
             "<jenkins><install plugin='%s@%s'/></jenkins>", PLUGIN_NAME, PLUGIN_VERSION);
+    private static final String PLUGIN_NAME_SECOND = "otherPlugin";
+    private static final String BODY_PLUGINS_INSTALL = String.format(
+            "<jenkins><install plugin='%s@%s'/><install plugin='%s@%s'/></jenkins>", PLUGIN_NAME,
+            PLUGIN_VERSION, PLUGIN_NAME_SECOND, PLUGIN_VERSION);
+    private static final String ENDPOINT_UPDATE_CENTER = "/updateCenter/api/json";
+    private static final String BODY_UPDATE_CENTER_BEFORE = "{\"jobs\":[{\"id\":1,\"name\":\"oldPlugin\","
+            + "\"status\":{\"success\":false,\"type\":\"Failure\"}}]}";
+    private static final String BODY_UPDATE_CENTER_INSTALLING = "{\"jobs\":[{\"id\":1,\"name\":\"oldPlugin\","
+            + "\"status\":{\"success\":false,\"type\":\"Failure\"}},{\"id\":2,\"name\":\"myPlugin\","
+            + "\"status\":{\"success\":false,\"type\":\"Installing\"}}]}";
+    private static final String BODY_UPDATE_CENTER_DONE = "{\"jobs\":[{\"id\":1,\"name\":\"oldPlugin\","
+            + "\"status\":{\"success\":false,\"type\":\"Failure\"}},{\"id\":2,\"name\":\"myPlugin\","
+            + "\"status\":{\"success\":true,\"type\":\"Success\"}}],\"restartRequiredForCompletion\":true}";
+    private static final String BODY_UPDATE_CENTER_FAILED = "{\"jobs\":[{\"id\":2,\"name\":\"myPlugin\","
+            + "\"status\":{\"success\":false,\"type\":\"Failure\"}}]}";
     private static final String ENDPOINT_RESTART = "/safeRestart";
     private static final String ENDPOINT_JENKINS = "/api/json";
+    private static final String QUEUE_LOCATION = "http://localhost/queue/item/1/";
+    private static final String MISSING_JOB_NAME = "MissingJob";
 
     private static HashMap<String, String> parametersMap = new HashMap<String, String>();
 
@@ -119,6 +160,21 @@ public class JenkinsManagerTest {
         assertEquals("", actualCrumb);
     }
 
+    @Test
+    public void jenkinsManagerConstructorSharedExecutor() throws Exception {
+        setUpCrumbEndpoint();
+        try (HttpExecutor executor = new HttpExecutor(new HttpExecutorConfig())) {
+            JenkinsManager jenkins = new JenkinsManager(PROTOCOL, HOST, port, USERNAME, PASSWORD,
+                    executor);
+            assertEquals(executor, jenkins.getExecutor());
+
+            setUpBuildEndpoint();
+            assertTrue(jenkins.buildJob(JOB_NAME, TOKEN_VALUE));
+            assertEquals(0, executor.getPoolStats().getLeased());
+            assertEquals(1, executor.getPoolStats().getAvailable());
+        }
+    }
+
     @Test(expected = UnsupportedSchemeException.class)
     public void jenkinsManagerConstructorInvalidProtocol()
             throws ClientProtocolException, URISyntaxException, IOException {
@@ -145,6 +201,58 @@ public class JenkinsManagerTest {
         assertTrue(success);
     }
 
+    @Test
+    public void createJobFromJenkinsXmlData() throws Exception {
+        JenkinsManager jenkins = setUpJenkinsManager();
+        setUpCreateEndpoint();
+        boolean success = jenkins.createJob(JOB_NAME, new JenkinsXmlData().addBashScript("echo"));
+        assertTrue(success);
+        HttpRequest[] requests = mockServer.retrieveRecordedRequests(request().withPath(ENDPOINT_CREATE));
+        assertTrue(requests[0].getBodyAsString().contains("<command>echo</command>"));
+    }
+
+    @Test
+    public void createJobFromStreamAndFile() throws Exception {
+        JenkinsManager jenkins = setUpJenkinsManager();
+        setUpCreateEndpoint();
+        Path jobXmlFile = Files.createTempFile("job", ".xml");
+        try {
+            Files.write(jobXmlFile, XML.getBytes(StandardCharsets.UTF_8));
+            assertTrue(jenkins.createJob(JOB_NAME, jobXmlFile));
+            assertTrue(jenkins.createJob(JOB_NAME, Files.newInputStream(jobXmlFile)));
+        } finally {
+            Files.delete(jobXmlFile);
+        }
+        HttpRequest[] requests = mockServer.retrieveRecordedRequests(request().withPath(ENDPOINT_CREATE));
+        assertEquals(2, requests.length);
+        assertEquals(XML, requests[0].getBodyAsString());
+        assertEquals(XML, requests[1].getBodyAsString());
+    }
+
+    @Test
+    public void createJobRenewsRejectedCrumb() throws Exception {
+        JenkinsManager jenkins = setUpJenkinsManager();
+        setUpCreateEndpointRejectingCrumb();
+        boolean success = jenkins.createJob(JOB_NAME, XML);
+        assertTrue(success);
+        assertEquals("renewed", jenkins.getCrumb());
+    }
+
+    @Test
+    public void createJobKeepsCrumbOnPermissionDenied() throws Exception {
+        JenkinsManager jenkins = setUpJenkinsManager();
+        setUpCreateEndpointDenied();
+        try {
+            jenkins.createJob(JOB_NAME, XML);
+            fail("Expected the job creation to be denied");
+        } catch (JenkinsManagerException e) {
+            assertEquals(1, mockServer.retrieveRecordedRequests(
+                    request().withMethod("POST").withPath(ENDPOINT_CREATE)).length);
+            assertEquals(0, mockServer.retrieveRecordedRequests(
+                    request().withMethod("GET").withPath(ENDPOINT_CRUMB)).length);
+        }
+    }
+
     @Test(expected = JenkinsManagerException.class)
     public void createJobNameNull() throws Exception {
         JenkinsManager jenkins = setUpJenkinsManager();
@@ -207,6 +315,43 @@ public class JenkinsManagerTest {
         assertTrue(success);
     }
 
+    @Test
+    public void buildJobRecordsMetrics() throws Exception {
+        JenkinsManager jenkins = setUpJenkinsManager();
+        setUpBuildEndpoint();
+        List<String> operations = new ArrayList<>();
+        List<String> endpoints = new ArrayList<>();
+        jenkins.getExecutor()
+               .setMetricsRecorder(new MetricsRecorder() {
+                   @Override
+                   public void recordRequest(String host, String method, String endpoint,
+                           int statusCode, long durationNanos, long bytesSent,
+                           long bytesReceived) {
+                       endpoints.add(method + " " + endpoint + " " + statusCode);
+                   }
+
+                   @Override
+                   public void recordOperation(String operation, long durationNanos,
+                           boolean success) {
+                       operations.add(operation + " " + success);
+                   }
+               });
+
+        jenkins.buildJob(JOB_NAME, TOKEN_VALUE);
+
+        assertEquals(Collections.singletonList("GET /job/{jobName}/build 201"), endpoints);
+        assertEquals(Collections.singletonList("buildJob true"), operations);
+    }
+
+    @Test
+    public void buildJobWithNullExecutor() throws Exception {
+        setUpCrumbEndpoint();
+        JenkinsManager jenkins = new JenkinsManager(URL + ":" + port, USERNAME, PASSWORD, null);
+        setUpBuildEndpoint();
+        assertSame(HttpExecutor.getInstance(), jenkins.getExecutor());
+        assertTrue(jenkins.buildJob(JOB_NAME, TOKEN_VALUE));
+    }
+
     @Test(expected = JenkinsManagerException.class)
     public void buildJobFailRequest() throws Exception {
         JenkinsManager jenkins = setUpJenkinsManager();
@@ -256,6 +401,65 @@ public class JenkinsManagerTest {
         assertTrue(success);
     }
 
+    @Test
+    public void buildJobs() throws Exception {
+        JenkinsManager jenkins = setUpJenkinsManager();
+        setUpBuildEndpointWithParametersAndLocation();
+        List<JenkinsJobTrigger> triggers = Arrays.asList(
+                new JenkinsJobTrigger(JOB_NAME, TOKEN_VALUE, parametersMap),
+                new JenkinsJobTrigger(MISSING_JOB_NAME, TOKEN_VALUE, parametersMap),
+                new JenkinsJobTrigger(JOB_NAME, null));
+
+        List<JenkinsJobTriggerResult> results = jenkins.buildJobs(triggers, 2);
+
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertEquals(201, results.get(0).getStatusCode());
+        assertEquals(QUEUE_LOCATION, results.get(0).getQueueLocation());
+        assertEquals(MISSING_JOB_NAME, results.get(1).getJobName());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals(404, results.get(1).getStatusCode());
+        assertFalse(results.get(2).isSuccess());
+        assertTrue(results.get(2).getException() instanceof JenkinsManagerException);
+    }
+
+    @Test
+    public void buildJobsWithAsyncExecutor() throws Exception {
+        JenkinsManager jenkins = setUpJenkinsManager();
+        setUpBuildEndpointWithParametersAndLocation();
+        List<JenkinsJobTrigger> triggers = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            triggers.add(new JenkinsJobTrigger(JOB_NAME, TOKEN_VALUE, parametersMap));
+        }
+
+        try (AsyncHttpExecutor asyncExecutor = new AsyncHttpExecutor(
+                new HttpExecutorConfig().setMaxConnectionsPerRoute(4))) {
+            jenkins.setAsyncExecutor(asyncExecutor);
+            List<JenkinsJobTriggerResult> results = jenkins.buildJobs(triggers, 4);
+
+            assertEquals(8, results.size());
+            for (JenkinsJobTriggerResult result : results) {
+                assertTrue(result.isSuccess());
+            }
+            assertEquals(8, mockServer.retrieveRecordedRequests(
+                    request().withPath(ENDPOINT_BUILD_PARAMETERS)).length);
+
+            try {
+                jenkins.buildJobs(triggers, 5);
+                fail("Expected the parallelism to exceed the connections per host");
+            } catch (JenkinsManagerException e) {
+                assertEquals(8, mockServer.retrieveRecordedRequests(
+                        request().withPath(ENDPOINT_BUILD_PARAMETERS)).length);
+            }
+        }
+    }
+
+    @Test(expected = JenkinsManagerException.class)
+    public void buildJobsInvalidParallelism() throws Exception {
+        JenkinsManager jenkins = setUpJenkinsManager();
+        jenkins.buildJobs(Arrays.asList(new JenkinsJobTrigger(JOB_NAME, TOKEN_VALUE)), 0);
+    }
+
     @Test
     public void getJenkinsBuildStatusData() throws Exception {
         JenkinsManager jenkins = setUpJenkinsManager();
@@ -301,6 +505,18 @@ public class JenkinsManagerTest {
         assertEquals(BODY, json.toString());
     }
 
+    @Test
+    public void getJenkinsBuildStatus() throws Exception {
+        JenkinsManager jenkins = setUpJenkinsManager();
+        setUpStatusEndpointWithTree();
+        JenkinsBuildStatus status = jenkins.getJenkinsBuildStatus(JOB_NAME, BUILD_NUMBER);
+        assertEquals(BUILD_NUMBER, status.getNumber());
+        assertEquals("SUCCESS", status.getResult());
+        assertFalse(status.isBuilding());
+        assertEquals(1500, status.getDuration());
+        assertTrue(status.isFinished());
+    }
+
     @Test
     public void pluginExists() throws Exception {
         JenkinsManager jenkins = setUpJenkinsManager();
@@ -324,6 +540,49 @@ public class JenkinsManagerTest {
         jenkins.pluginExists(PLUGIN_NAME);
     }
 
+    @Test
+    public void pluginsExist() throws Exception {
+        JenkinsManager jenkins = setUpJenkinsManager();
+        setUpPluginEndpoint();
+        Map<String, Boolean> plugins = jenkins.pluginsExist(
+                Arrays.asList(PLUGIN_NAME.toUpperCase(), PLUGIN_NOT_FOUND));
+        assertTrue(plugins.get(PLUGIN_NAME.toUpperCase()));
+        assertFalse(plugins.get(PLUGIN_NOT_FOUND));
+        assertTrue(jenkins.pluginExists(PLUGIN_NAME));
+        assertEquals(1, mockServer.retrieveRecordedRequests(request().withPath(ENDPOINT_PLUGIN)).length);
+    }
+
+    @Test
+    public void pluginInventoryInvalidatedByInstallPlugin() throws Exception {
+        JenkinsManager jenkins = setUpJenkinsManager();
+        setUpPluginEndpoint();
+        assertEquals(PLUGIN_VERSION, jenkins.getPluginInventory().getVersion(PLUGIN_NAME));
+        setUpPluginInstallEndpoint();
+        setUpPluginEndpointWithoutReset();
+        jenkins.installPlugin(PLUGIN_NAME, PLUGIN_VERSION);
+        assertTrue(jenkins.pluginExists(PLUGIN_NAME));
+        assertEquals(1, mockServer.retrieveRecordedRequests(request().withPath(ENDPOINT_PLUGIN)).length);
+    }
+
+    @Test
+    public void pluginInventoryExpires() throws Exception {
+        JenkinsManager jenkins = setUpJenkinsManager();
+        setUpPluginEndpoint();
+        jenkins.setPluginInventoryTtl(0);
+        jenkins.pluginExists(PLUGIN_NAME);
+        jenkins.pluginExists(PLUGIN_NAME);
+        assertEquals(2, mockServer.retrieveRecordedRequests(request().withPath(ENDPOINT_PLUGIN)).length);
+    }
+
+    @Test
+    public void getInstalledPlugins() throws Exception {
+        JenkinsManager jenkins = setUpJenkinsManager();
+        setUpPluginEndpoint();
+        Map<String, String> plugins = jenkins.getInstalledPlugins();
+        assertEquals(1, plugins.size());
+        assertEquals(PLUGIN_VERSION, plugins.get(PLUGIN_NAME));
+    }
+
     @Test
     public void installPlugin() throws Exception {
         JenkinsManager jenkins = setUpJenkinsManager();
@@ -332,6 +591,54 @@ public class JenkinsManagerTest {
         assertTrue(success);
     }
 
+    @Test
+    public void installPlugins() throws Exception {
+        JenkinsManager jenkins = setUpJenkinsManager();
+        setUpPluginsInstallEndpoint(BODY_UPDATE_CENTER_INSTALLING, BODY_UPDATE_CENTER_DONE);
+        boolean success = jenkins.installPlugins(createPluginsToInstall());
+        assertTrue(success);
+        assertEquals(1, mockServer.retrieveRecordedRequests(
+                request().withPath(ENDPOINT_PLUGIN_INSTALL)).length);
+        assertEquals(3, mockServer.retrieveRecordedRequests(
+                request().withPath(ENDPOINT_UPDATE_CENTER)).length);
+    }
+
+    @Test
+    public void installPluginsTimeout() throws Exception {
+        JenkinsManager jenkins = setUpJenkinsManager();
+        JenkinsPluginInstallPolicy policy = new JenkinsPluginInstallPolicy();
+        policy.setInitialPollIntervalMillis(10)
+              .setTimeoutMillis(200);
+        jenkins.setPluginInstallPolicy(policy);
+        setUpPluginsInstallEndpoint();
+        mockServer.when(request().withMethod("GET").withPath(ENDPOINT_UPDATE_CENTER))
+                  .respond(response().withStatusCode(200).withBody(BODY_UPDATE_CENTER_INSTALLING));
+        long start = System.currentTimeMillis();
+        try {
+            jenkins.installPlugins(createPluginsToInstall());
+            fail("Expected the installation to time out");
+        } catch (JenkinsManagerException e) {
+            assertTrue(e.getMessage()
+                        .contains("Timed out"));
+        }
+        assertTrue(System.currentTimeMillis() - start < 3000);
+    }
+
+    @Test(expected = JenkinsManagerException.class)
+    public void installPluginsFailedInstallation() throws Exception {
+        JenkinsManager jenkins = setUpJenkinsManager();
+        setUpPluginsInstallEndpoint(BODY_UPDATE_CENTER_FAILED, BODY_UPDATE_CENTER_FAILED);
+        jenkins.installPlugins(createPluginsToInstall());
+    }
+
+    @Test(expected = JenkinsManagerException.class)
+    public void installPluginsVersionEmpty() throws Exception {
+        JenkinsManager jenkins = setUpJenkinsManager();
+        Map<String, String> plugins = createPluginsToInstall();
+        plugins.put(PLUGIN_NAME_SECOND, "");
+        jenkins.installPlugins(plugins);
+    }
+
     @Test(expected = JenkinsManagerException.class)
     public void installPluginNameNull() throws Exception {
         JenkinsManager jenkins = setUpJenkinsManager();
@@ -377,6 +684,79 @@ public class JenkinsManagerTest {
         assertFalse(success);
     }
 
+    @Test
+    public void waitForRestart() throws Exception {
+        JenkinsManager jenkins = setUpJenkinsManager();
+        jenkins.setRestartPolicy(new JenkinsRestartPolicy().setInitialPollIntervalMillis(10));
+        setUpRestartingEndpoint();
+        JenkinsRestartResult result = jenkins.waitForRestart()
+                                             .get(10, TimeUnit.SECONDS);
+        assertTrue(result.isServerDownObserved());
+        assertEquals(3, result.getPollCount());
+        assertTrue(result.getTimeToReadyMillis() >= result.getDowntimeMillis());
+    }
+
+    @Test
+    public void waitForRestartRecordsMetrics() throws Exception {
+        JenkinsManager jenkins = setUpJenkinsManager();
+        jenkins.setRestartPolicy(new JenkinsRestartPolicy().setInitialPollIntervalMillis(10));
+        setUpRestartingEndpoint();
+        Map<String, Long> operations = new ConcurrentHashMap<>();
+        CountDownLatch recorded = new CountDownLatch(2);
+        jenkins.getExecutor()
+               .setMetricsRecorder(new MetricsRecorder() {
+                   @Override
+                   public void recordOperation(String operation, long durationNanos,
+                           boolean success) {
+                       if (operation.startsWith("restart") && success) {
+                           operations.put(operation, durationNanos);
+                           recorded.countDown();
+                       }
+                   }
+               });
+
+        JenkinsRestartResult result = jenkins.waitForRestart()
+                                             .get(10, TimeUnit.SECONDS);
+
+        assertTrue(recorded.await(5, TimeUnit.SECONDS));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(result.getDowntimeMillis()),
+                operations.get("restartDowntime").longValue());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(result.getTimeToReadyMillis()),
+                operations.get("restartTimeToReady").longValue());
+    }
+
+    @Test(expected = JenkinsManagerException.class)
+    public void waitForRestartTimeout() throws Throwable {
+        JenkinsManager jenkins = setUpJenkinsManager();
+        jenkins.setRestartPolicy(new JenkinsRestartPolicy().setInitialPollIntervalMillis(10)
+                                                           .setTimeoutMillis(200));
+        setUpRestartEndpointFail();
+        try {
+            jenkins.waitForRestart()
+                   .get(10, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Test
+    public void waitForRestartTimeoutDuringSlowPoll() throws Exception {
+        JenkinsManager jenkins = setUpJenkinsManager();
+        jenkins.setRestartPolicy(new JenkinsRestartPolicy().setInitialPollIntervalMillis(10)
+                                                           .setSocketTimeoutMillis(10000)
+                                                           .setTimeoutMillis(200));
+        setUpSlowJenkinsEndpoint();
+        long start = System.currentTimeMillis();
+        try {
+            jenkins.waitForRestart()
+                   .get(10, TimeUnit.SECONDS);
+            fail("Expected the wait to time out");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof JenkinsManagerException);
+        }
+        assertTrue(System.currentTimeMillis() - start < 3000);
+    }
+
     @Test(expected = JenkinsManagerException.class)
     public void restartJenkinsFailRequest() throws Exception {
         JenkinsManager jenkins = setUpJenkinsManager();
@@ -406,6 +786,31 @@ public class JenkinsManagerTest {
                   .respond(response().withStatusCode(200));
     }
 
+    private void setUpCreateEndpointRejectingCrumb() {
+        mockServer.reset();
+        String expiredCrumb = new JSONObject(RESPONSE_CRUMB).getString("crumb");
+        mockServer.when(request().withMethod("GET").withPath(ENDPOINT_CRUMB), Times.once())
+                  .respond(response().withStatusCode(200).withBody(RESPONSE_CRUMB_RENEWED));
+        mockServer.when(request().withMethod("POST")
+                                 .withPath(ENDPOINT_CREATE)
+                                 .withHeader(HEADER_CRUMB, expiredCrumb))
+                  .respond(response().withStatusCode(403)
+                                     .withReasonPhrase("No valid crumb was included in the request"));
+        mockServer.when(request().withMethod("POST")
+                                 .withPath(ENDPOINT_CREATE)
+                                 .withHeader(HEADER_CRUMB, "renewed"))
+                  .respond(response().withStatusCode(200));
+    }
+
+    private void setUpCreateEndpointDenied() {
+        mockServer.reset();
+        mockServer.when(request().withMethod("GET").withPath(ENDPOINT_CRUMB))
+                  .respond(response().withStatusCode(200).withBody(RESPONSE_CRUMB));
+        mockServer.when(request().withMethod("POST").withPath(ENDPOINT_CREATE))
+                  .respond(response().withStatusCode(403)
+                                     .withBody("user is missing the Job/Create permission"));
+    }
+
     private void setUpCreateEndpointFail() throws UnsupportedEncodingException {
         mockServer.reset();
         String encodedPassword = "Basic "
@@ -495,6 +900,16 @@ public class JenkinsManagerTest {
                   .respond(response().withStatusCode(201));
     }
 
+    private void setUpBuildEndpointWithParametersAndLocation() throws UnsupportedEncodingException {
+        mockServer.reset();
+        String encodedPassword = "Basic "
+                + createEncodingFromUsernameAndPassword(USERNAME, PASSWORD);
+        mockServer.when(request().withMethod("GET")
+                                 .withPath(ENDPOINT_BUILD_PARAMETERS)
+                                 .withHeader(HEADER_AUTH, encodedPassword))
+                  .respond(response().withStatusCode(201).withHeader("Location", QUEUE_LOCATION));
+    }
+
     private void setUpStatusEndpoint() throws UnsupportedEncodingException {
         mockServer.reset();
         String encodedPassword = "Basic "
@@ -505,6 +920,17 @@ public class JenkinsManagerTest {
                   .respond(response().withStatusCode(200).withBody(BODY));
     }
 
+    private void setUpStatusEndpointWithTree() throws UnsupportedEncodingException {
+        mockServer.reset();
+        String encodedPassword = "Basic "
+                + createEncodingFromUsernameAndPassword(USERNAME, PASSWORD);
+        mockServer.when(request().withMethod("GET")
+                                 .withPath(ENDPOINT_STATUS)
+                                 .withHeader(HEADER_AUTH, encodedPassword)
+                                 .withQueryStringParameter("tree", JenkinsBuildStatus.TREE))
+                  .respond(response().withStatusCode(200).withBody(BODY_BUILD_STATUS));
+    }
+
     private void setUpStatusEndpointFallback() throws UnsupportedEncodingException {
         mockServer.reset();
         String encodedPassword = "Basic "
@@ -527,11 +953,14 @@ public class JenkinsManagerTest {
 
     private void setUpPluginEndpoint() throws UnsupportedEncodingException {
         mockServer.reset();
+        setUpPluginEndpointWithoutReset();
+    }
+
+    private void setUpPluginEndpointWithoutReset() throws UnsupportedEncodingException {
         String encodedPassword = "Basic "
                 + createEncodingFromUsernameAndPassword(USERNAME, PASSWORD);
         List<Parameter> parameters = new ArrayList<Parameter>();
-        parameters.add(new Parameter("depth", "1"));
-        parameters.add(new Parameter("wrapper", "plugins"));
+        parameters.add(new Parameter("tree", TREE_PLUGIN));
         mockServer.when(request().withMethod("GET")
                                  .withPath(ENDPOINT_PLUGIN)
                                  .withHeader(HEADER_AUTH, encodedPassword)
@@ -544,8 +973,7 @@ public class JenkinsManagerTest {
         String encodedPassword = "Basic "
                 + createEncodingFromUsernameAndPassword(USERNAME, PASSWORD);
         List<Parameter> parameters = new ArrayList<Parameter>();
-        parameters.add(new Parameter("depth", "1"));
-        parameters.add(new Parameter("wrapper", "plugins"));
+        parameters.add(new Parameter("tree", TREE_PLUGIN));
         mockServer.when(request().withMethod("GET")
                                  .withPath(ENDPOINT_PLUGIN)
                                  .withHeader(HEADER_AUTH, encodedPassword)
@@ -564,6 +992,31 @@ public class JenkinsManagerTest {
                   .respond(response().withStatusCode(302));
     }
 
+    private void setUpPluginsInstallEndpoint(String... updateCenterBodies)
+            throws UnsupportedEncodingException {
+        mockServer.reset();
+        String encodedPassword = "Basic "
+                + createEncodingFromUsernameAndPassword(USERNAME, PASSWORD);
+        mockServer.when(request().withMethod("POST")
+                                 .withPath(ENDPOINT_PLUGIN_INSTALL)
+                                 .withHeader(HEADER_AUTH, encodedPassword)
+                                 .withBody(BODY_PLUGINS_INSTALL))
+                  .respond(response().withStatusCode(302));
+        mockServer.when(request().withMethod("GET").withPath(ENDPOINT_UPDATE_CENTER), Times.once())
+                  .respond(response().withStatusCode(200).withBody(BODY_UPDATE_CENTER_BEFORE));
+        for (String updateCenterBody : updateCenterBodies) {
+            mockServer.when(request().withMethod("GET").withPath(ENDPOINT_UPDATE_CENTER), Times.once())
+                      .respond(response().withStatusCode(200).withBody(updateCenterBody));
+        }
+    }
+
+    private Map<String, String> createPluginsToInstall() {
+        Map<String, String> plugins = new LinkedHashMap<>();
+        plugins.put(PLUGIN_NAME, PLUGIN_VERSION);
+        plugins.put(PLUGIN_NAME_SECOND, PLUGIN_VERSION);
+        return plugins;
+    }
+
     private void setUpPluginInstallEndpointFail() throws UnsupportedEncodingException {
         mockServer.reset();
         String encodedPassword = "Basic "
@@ -589,6 +1042,36 @@ public class JenkinsManagerTest {
                   .respond(response().withStatusCode(200));
     }
 
+    private void setUpRestartingEndpoint() throws UnsupportedEncodingException {
+        mockServer.reset();
+        String encodedPassword = "Basic "
+                + createEncodingFromUsernameAndPassword(USERNAME, PASSWORD);
+        mockServer.when(request().withMethod("GET")
+                                 .withPath(ENDPOINT_JENKINS)
+                                 .withHeader(HEADER_AUTH, encodedPassword), Times.once())
+                  .respond(response().withStatusCode(200).withBody("{\"quietingDown\":true}"));
+        mockServer.when(request().withMethod("GET")
+                                 .withPath(ENDPOINT_JENKINS)
+                                 .withHeader(HEADER_AUTH, encodedPassword), Times.once())
+                  .respond(response().withStatusCode(503));
+        mockServer.when(request().withMethod("GET")
+                                 .withPath(ENDPOINT_JENKINS)
+                                 .withHeader(HEADER_AUTH, encodedPassword))
+                  .respond(response().withStatusCode(200).withBody("{\"quietingDown\":false}"));
+    }
+
+    private void setUpSlowJenkinsEndpoint() throws UnsupportedEncodingException {
+        mockServer.reset();
+        String encodedPassword = "Basic "
+                + createEncodingFromUsernameAndPassword(USERNAME, PASSWORD);
+        mockServer.when(request().withMethod("GET")
+                                 .withPath(ENDPOINT_JENKINS)
+                                 .withHeader(HEADER_AUTH, encodedPassword))
+                  .respond(response().withStatusCode(200)
+                                     .withBody("{\"quietingDown\":true}")
+                                     .withDelay(TimeUnit.SECONDS, 5));
+    }
+
     private void setUpRestartEndpointFail() throws UnsupportedEncodingException {
         mockServer.reset();
         String encodedPassword = "Basic "
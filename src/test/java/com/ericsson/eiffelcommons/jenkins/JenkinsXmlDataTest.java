@@ -0,0 +1,65 @@
+package com.ericsson.eiffelcommons.jenkins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class JenkinsXmlDataTest {
+
+    private static final String XML_VERSION = "<?xml version='1.1' encoding='UTF-8'?>";
+    private static final String TOKEN = "myToken";
+    private static final String PARAMETER_KEY = "key";
+
+    @Test
+    public void getXmlAsStringFromTemplate() throws Exception {
+        String xml = new JenkinsXmlData().getXmlAsString();
+        assertTrue(xml.startsWith(XML_VERSION + "<project>"));
+        assertTrue(xml.contains("<scm class=\"hudson.scm.NullSCM\"/>"));
+        assertTrue(xml.contains("<builders></builders>"));
+        assertTrue(xml.endsWith("</project>"));
+    }
+
+    @Test
+    public void getXmlAsStringWithJobData() throws Exception {
+        String xml = new JenkinsXmlData().addJobToken(TOKEN)
+                                         .addBuildParameter(PARAMETER_KEY)
+                                         .addBashScript("echo 'a' && exit 0")
+                                         .addGrovyScript("println 'b'")
+                                         .getXmlAsString();
+
+        assertTrue(xml.contains("<authToken>" + TOKEN + "</authToken>"));
+        assertTrue(xml.contains("<hudson.model.ParametersDefinitionProperty><parameterDefinitions>"
+                + "<hudson.model.StringParameterDefinition><name>" + PARAMETER_KEY + "</name>"));
+        assertTrue(xml.contains("<command>echo 'a' &amp;&amp; exit 0</command>"));
+        assertTrue(xml.contains("<hudson.plugins.groovy.Groovy plugin=\"groovy@2.1\">"));
+        assertTrue(xml.indexOf("hudson.tasks.Shell") < xml.indexOf("hudson.plugins.groovy.Groovy"));
+    }
+
+    @Test
+    public void getXmlAsStringWithSystemGroovyScript() throws Exception {
+        String xml = new JenkinsXmlData().addSystemGrovyScript("println 'c'", true)
+                                         .getXmlAsString();
+        assertTrue(xml.contains("<hudson.plugins.groovy.SystemGroovy plugin=\"groovy@2.1\">"
+                + "<source class=\"hudson.plugins.groovy.StringSystemScriptSource\">"
+                + "<script plugin=\"script-security@1.51\"><script>println 'c'</script>"
+                + "<sandbox>true</sandbox></script></source></hudson.plugins.groovy.SystemGroovy>"));
+    }
+
+    @Test(expected = Exception.class)
+    public void addSecondSystemGroovyScript() throws Exception {
+        new JenkinsXmlData().addSystemGrovyScript("println 'c'", true)
+                            .addSystemGrovyScript("println 'd'", false);
+    }
+
+    @Test
+    public void writeToOutputStream() throws Exception {
+        JenkinsXmlData xmlData = new JenkinsXmlData().addBashScript("echo \u00e5");
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        xmlData.writeTo(outputStream);
+        assertEquals(xmlData.getXmlAsString(), new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+    }
+}
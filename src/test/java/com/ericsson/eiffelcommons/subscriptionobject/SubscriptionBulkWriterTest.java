@@ -0,0 +1,124 @@
+package com.ericsson.eiffelcommons.subscriptionobject;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockserver.integration.ClientAndServer.startClientAndServer;
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.HttpResponse.response;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockserver.integration.ClientAndServer;
+import org.mockserver.model.HttpRequest;
+
+import com.ericsson.eiffelcommons.http.HttpRequest.HttpMethod;
+
+public class SubscriptionBulkWriterTest {
+
+    private static ClientAndServer mockServer;
+    private static int port;
+
+    @BeforeClass
+    public static void beforeTest() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        mockServer = startClientAndServer(port);
+    }
+
+    @AfterClass
+    public static void afterTest() {
+        mockServer.stop();
+    }
+
+    @Test
+    public void testWriteArray() throws IOException {
+        List<RestPostSubscriptionObject> subscriptions = createSubscriptions(3);
+        StringWriter writer = new StringWriter();
+        SubscriptionBulkWriter.writeArray(subscriptions, writer);
+
+        JSONArray expected = new JSONArray();
+        for (RestPostSubscriptionObject subscription : subscriptions) {
+            expected.put(subscription.getSubscriptionJson());
+        }
+        assertEquals(expected.toString(), writer.toString());
+    }
+
+    @Test
+    public void testWriteEmptyArray() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        SubscriptionBulkWriter.writeArray(Collections.<SubscriptionObject<?>> emptyList(),
+                outputStream);
+
+        assertEquals("[]", new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testForEachBatch() throws IOException {
+        SubscriptionBulkWriter bulkWriter = new SubscriptionBulkWriter(2);
+        List<Integer> batchSizes = new ArrayList<>();
+        int batchCount = bulkWriter.forEachBatch(createSubscriptions(5).iterator(),
+                (batchIndex, batch) -> batchSizes.add(batch.size()));
+
+        assertEquals(3, batchCount);
+        assertEquals(Arrays.asList(2, 2, 1), batchSizes);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidBatchSize() {
+        new SubscriptionBulkWriter(0);
+    }
+
+    @Test
+    public void testSendBatches() throws IOException {
+        mockServer.when(request().withMethod("POST")
+                                 .withPath("/subscriptions"))
+                  .respond(response().withStatusCode(200));
+
+        List<RestPostSubscriptionObject> subscriptions = createSubscriptions(5);
+        com.ericsson.eiffelcommons.http.HttpRequest postRequest = new com.ericsson.eiffelcommons.http.HttpRequest(
+                HttpMethod.POST);
+        postRequest.setBaseUrl("http://localhost:" + port)
+                   .setEndpoint("/subscriptions");
+
+        List<Integer> statusCodes = new ArrayList<>();
+        int batchCount = new SubscriptionBulkWriter(3).sendBatches(postRequest,
+                subscriptions.iterator(),
+                (batchIndex, batch, response) -> statusCodes.add(response.getStatusCode()));
+
+        assertEquals(2, batchCount);
+        assertEquals(Arrays.asList(200, 200), statusCodes);
+
+        HttpRequest[] recordedRequests = mockServer.retrieveRecordedRequests(
+                request().withPath("/subscriptions"));
+        assertEquals(2, recordedRequests.length);
+        JSONArray firstBatch = new JSONArray(recordedRequests[0].getBodyAsString());
+        JSONArray secondBatch = new JSONArray(recordedRequests[1].getBodyAsString());
+        assertEquals(3, firstBatch.length());
+        assertEquals(2, secondBatch.length());
+        assertEquals("Subscription4", secondBatch.getJSONObject(1)
+                                                 .getString("subscriptionName"));
+    }
+
+    private List<RestPostSubscriptionObject> createSubscriptions(int count) throws IOException {
+        RestPostSubscriptionObject prototype = new RestPostSubscriptionObject("Prototype")
+                .setNotificationMeta("http://localhost:8080/job/JenkinsJob/build");
+        List<RestPostSubscriptionObject> subscriptions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            subscriptions.add(prototype.copy("Subscription" + i)
+                                       .addNotificationMessageKeyValue("json", "{}"));
+        }
+        return subscriptions;
+    }
+}
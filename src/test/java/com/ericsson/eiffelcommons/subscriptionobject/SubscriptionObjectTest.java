@@ -116,4 +116,46 @@ public class SubscriptionObjectTest {
 
         assertEquals("my_password", subscription.getString("password"));
     }
+
+    @Test
+    public void testCopy() {
+        JSONObject condition = new JSONObject().put("jmespath", "meta.type");
+        restPostSubscription.setNotificationMeta("SomeURL")
+                            .addConditionToRequirement(0, condition);
+
+        RestPostSubscriptionObject copy = restPostSubscription.copy("myCopy")
+                                                              .addNotificationMessageKeyValue("key", "value");
+        restPostSubscription.addConditionToRequirement(0, new JSONObject().put("jmespath", "other"));
+
+        JSONObject copyJson = copy.getSubscriptionJson();
+        assertEquals("myCopy", copyJson.getString("subscriptionName"));
+        assertEquals("REST_POST", copyJson.getString("notificationType"));
+        assertEquals("SomeURL", copyJson.getString("notificationMeta"));
+        assertEquals(1, copyJson.getJSONArray("notificationMessageKeyValues").length());
+        assertEquals(1, copyJson.getJSONArray("requirements")
+                                .getJSONObject(0)
+                                .getJSONArray("conditions")
+                                .length());
+
+        JSONObject prototypeJson = restPostSubscription.getSubscriptionJson();
+        assertEquals("mySubscription", prototypeJson.getString("subscriptionName"));
+        assertEquals(0, prototypeJson.getJSONArray("notificationMessageKeyValues").length());
+        assertEquals(2, prototypeJson.getJSONArray("requirements")
+                                     .getJSONObject(0)
+                                     .getJSONArray("conditions")
+                                     .length());
+    }
+
+    @Test
+    public void testCopyReturnsIndependentJson() {
+        MailSubscriptionObject copy = mailSubscription.copy("myMailCopy")
+                                                      .setEmailSubject("subject");
+        copy.getSubscriptionJson()
+            .getJSONArray("requirements")
+            .put(new JSONObject());
+
+        assertEquals("MAIL", copy.getSubscriptionJson().getString("notificationType"));
+        assertEquals(1, mailSubscription.getSubscriptionJson().getJSONArray("requirements").length());
+        assertTrue(!mailSubscription.getSubscriptionJson().has("emailSubject"));
+    }
 }
@@ -1,8 +1,15 @@
 package com.ericsson.eiffelcommons.utils;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -15,6 +22,7 @@ public class FileUtilsTest {
     public static final String INVALID_FILE_PATH = "dummy.json";
     public static final String KEY_SUBSCRIPTION = "subscriptionName";
     public static final String VALUE_SUBSCRIPTION = "myTestSubscription";
+    public static final String CONTEXT_FILE = "context-only.txt";
 
     @Test
     public void getFileAsString() throws FileNotFoundException {
@@ -50,4 +58,36 @@ public class FileUtilsTest {
     public void getFileAsJsonArrayNotFound() throws FileNotFoundException {
         FileUtils.getResourceFileAsJsonArray(INVALID_FILE_PATH);
     }
+
+    @Test
+    public void getFileAsJsonObjectReturnsCopies() throws FileNotFoundException {
+        JSONObject json = FileUtils.getResourceFileAsJsonObject(JSON_FILE);
+        json.put(KEY_SUBSCRIPTION, "changed");
+        JSONArray jsonArray = FileUtils.getResourceFileAsJsonArray(JSON_ARRAY_FILE);
+        jsonArray.getJSONObject(0).put(KEY_SUBSCRIPTION, "changed");
+
+        assertEquals(VALUE_SUBSCRIPTION, FileUtils.getResourceFileAsJsonObject(JSON_FILE)
+                                                  .getString(KEY_SUBSCRIPTION));
+        assertEquals(VALUE_SUBSCRIPTION, FileUtils.getResourceFileAsJsonArray(JSON_ARRAY_FILE)
+                                                  .getJSONObject(0)
+                                                  .getString(KEY_SUBSCRIPTION));
+    }
+
+    @Test
+    public void getFileAsStringFromContextClassLoader() throws IOException {
+        Path directory = Files.createTempDirectory("resources");
+        Path resource = Files.write(directory.resolve(CONTEXT_FILE),
+                VALUE_SUBSCRIPTION.getBytes(StandardCharsets.UTF_8));
+        Thread thread = Thread.currentThread();
+        ClassLoader originalClassLoader = thread.getContextClassLoader();
+        try (URLClassLoader classLoader = new URLClassLoader(
+                new URL[] { directory.toUri().toURL() }, originalClassLoader)) {
+            thread.setContextClassLoader(classLoader);
+            assertEquals(VALUE_SUBSCRIPTION, FileUtils.getResourceFileAsString(CONTEXT_FILE));
+        } finally {
+            thread.setContextClassLoader(originalClassLoader);
+            Files.delete(resource);
+            Files.delete(directory);
+        }
+    }
 }